@@ -1,22 +1,42 @@
 package com.erenkalkan.stockpulse.config;
 
+import com.erenkalkan.stockpulse.model.dto.AlertTriggeredEvent;
+import com.erenkalkan.stockpulse.model.dto.EmailMessageDTO;
 import com.erenkalkan.stockpulse.model.dto.StockPriceDTO;
-import com.erenkalkan.stockpulse.model.entity.Alert;
+import com.erenkalkan.stockpulse.service.cluster.AlertRouter;
+import com.erenkalkan.stockpulse.service.cluster.InstanceIdentity;
+import com.erenkalkan.stockpulse.service.cluster.UserPresenceRegistry;
+import com.erenkalkan.stockpulse.service.email.EmailDispatcher;
+import com.erenkalkan.stockpulse.service.kafka.AlertTriggeredEventDeserializer;
+import com.erenkalkan.stockpulse.service.kafka.AlertTriggeredEventSerializer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.TopicConfig;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+import org.springframework.kafka.support.converter.BatchMessagingMessageConverter;
 import org.springframework.kafka.support.converter.RecordMessageConverter;
 import org.springframework.kafka.support.converter.StringJsonMessageConverter;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.backoff.ExponentialBackOff;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class KafkaConfig {
@@ -24,6 +44,36 @@ public class KafkaConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${app.kafka.stock-prices.batch-size:500}")
+    private int stockPriceBatchSize;
+
+    @Value("${app.kafka.stock-prices.conflation-window-ms:100}")
+    private long stockPriceConflationWindowMs;
+
+    @Value("${app.email.dispatch.workers:3}")
+    private int emailDispatchWorkers;
+
+    @Value("${app.email.dispatch.batch-size:50}")
+    private int emailDispatchBatchSize;
+
+    @Value("${app.email.dispatch.max-attempts:4}")
+    private int emailDispatchMaxAttempts;
+
+    @Value("${app.email.dispatch.initial-backoff-ms:1000}")
+    private long emailDispatchInitialBackoffMs;
+
+    @Value("${app.email.dispatch.max-backoff-ms:10000}")
+    private long emailDispatchMaxBackoffMs;
+
+    @Value("${app.email.digest.window-ms:5000}")
+    private long emailDigestWindowMs;
+
+    @Value("${app.email.digest.initial-backoff-ms:1000}")
+    private long emailDigestInitialBackoffMs;
+
+    @Value("${app.email.digest.max-backoff-ms:60000}")
+    private long emailDigestMaxBackoffMs;
+
     private final String stockPricesTopic = "stock-prices";
     private final String alertTriggersTopic = "alert-triggers";
 
@@ -52,6 +102,41 @@ public class KafkaConfig {
                 .build();
     }
 
+    @Bean
+    public NewTopic alertEmailsTopic() {
+        return TopicBuilder.name(EmailDispatcher.TOPIC)
+                .partitions(3)  // One per dispatch worker
+                .replicas(1)
+                .build();
+    }
+
+    @Bean
+    public NewTopic alertEmailsDeadLetterTopic() {
+        return TopicBuilder.name(EmailDispatcher.DEAD_LETTER_TOPIC)
+                .partitions(1)
+                .replicas(1)
+                .build();
+    }
+
+    @Bean
+    public NewTopic userPresenceTopic() {
+        return TopicBuilder.name(UserPresenceRegistry.TOPIC)
+                .partitions(3)
+                .replicas(1)
+                .compact()      // One record per instance and user, removed by tombstones
+                .build();
+    }
+
+    // Only this instance consumes it, and routed alerts are worthless once the user's session is gone
+    @Bean
+    public NewTopic alertDeliveriesTopic(InstanceIdentity instanceIdentity) {
+        return TopicBuilder.name(AlertRouter.deliveryTopic(instanceIdentity.getId()))
+                .partitions(1)
+                .replicas(1)
+                .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(TimeUnit.HOURS.toMillis(1)))
+                .build();
+    }
+
     @Bean
     public ProducerFactory<String, StockPriceDTO> stockPriceProducerFactory() {
         Map<String, Object> configProps = new HashMap<>();
@@ -67,20 +152,59 @@ public class KafkaConfig {
         return new DefaultKafkaProducerFactory<>(configProps);
     }
 
+    // Alerts travel as compact AlertTriggeredEvents rather than JSON-serialized entities
     @Bean
-    public ProducerFactory<String, Alert> alertProducerFactory() {
+    public ProducerFactory<String, AlertTriggeredEvent> alertProducerFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, AlertTriggeredEventSerializer.class);
 
         // Essential performance and reliability settings
         configProps.put(ProducerConfig.ACKS_CONFIG, "1"); // Wait for leader acknowledgment
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
-        configProps.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false); // Prevent type info in headers
         return new DefaultKafkaProducerFactory<>(configProps);
     }
 
+    @Bean
+    public ProducerFactory<String, EmailMessageDTO> emailProducerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+
+        // The topic is the only copy of a queued email until it is sent
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
+        configProps.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+        return new DefaultKafkaProducerFactory<>(configProps);
+    }
+
+    @Bean
+    public KafkaTemplate<String, EmailMessageDTO> emailKafkaTemplate() {
+        return new KafkaTemplate<>(emailProducerFactory());
+    }
+
+    @Bean
+    public ProducerFactory<String, String> presenceProducerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+
+        // Connects and disconnects of one user must not be reordered by retries
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        // Sends happen on WebSocket connect and close, which must not hang while Kafka is unreachable
+        configProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, 5000);
+        return new DefaultKafkaProducerFactory<>(configProps);
+    }
+
+    @Bean
+    public KafkaTemplate<String, String> presenceKafkaTemplate() {
+        return new KafkaTemplate<>(presenceProducerFactory());
+    }
+
     @Bean
     public KafkaTemplate<String, StockPriceDTO> stockPriceKafkaTemplate() {
         KafkaTemplate<String, StockPriceDTO> template = new KafkaTemplate<>(stockPriceProducerFactory());
@@ -89,14 +213,126 @@ public class KafkaConfig {
     }
 
     @Bean
-    public KafkaTemplate<String, Alert> alertKafkaTemplate() {
-        KafkaTemplate<String, Alert> template = new KafkaTemplate<>(alertProducerFactory());
+    public KafkaTemplate<String, AlertTriggeredEvent> alertKafkaTemplate() {
+        KafkaTemplate<String, AlertTriggeredEvent> template = new KafkaTemplate<>(alertProducerFactory());
         template.setDefaultTopic(alertTriggersTopic);
-        return new KafkaTemplate<>(alertProducerFactory());
+        return template;
     }
 
     @Bean
     public RecordMessageConverter jsonMessageConverter() {
         return new StringJsonMessageConverter();
     }
+
+    // Batch consumption for stock-prices: each poll delivers up to batch-size ticks,
+    // which the listeners conflate per symbol before doing any work.
+    // alert-processor-group starts from the oldest retained tick when it has no committed offset,
+    // so alerts are checked against every price published before the group first joined
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> stockPriceBatchListenerContainerFactory() {
+        return stockPriceBatchFactory(stockPriceConsumerFactory(
+                Map.of(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest")));
+    }
+
+    // Per-instance fan-out groups start at the live end; missed prices come from the last-trade snapshot
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> stockPriceFanOutListenerContainerFactory() {
+        return stockPriceBatchFactory(stockPriceConsumerFactory(
+                Map.of(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest")));
+    }
+
+    private ConcurrentKafkaListenerContainerFactory<String, String> stockPriceBatchFactory(
+            ConsumerFactory<String, String> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.setBatchMessageConverter(new BatchMessagingMessageConverter(jsonMessageConverter()));
+        // Waiting between polls lets ticks accumulate, so every batch conflates more of them
+        factory.getContainerProperties().setIdleBetweenPolls(stockPriceConflationWindowMs);
+        return factory;
+    }
+
+    // Each consumer thread is one dispatch worker, sending up to batch-size emails per SMTP connection
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, EmailMessageDTO> emailBatchListenerContainerFactory(
+            EmailDispatcher emailDispatcher) {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, emailDispatchBatchSize);
+
+        // Deserialized here rather than by a message converter, so a dead-lettered record keeps its DTO value
+        ConcurrentKafkaListenerContainerFactory<String, EmailMessageDTO> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(configProps, new StringDeserializer(),
+                new ErrorHandlingDeserializer<>(new JsonDeserializer<>(EmailMessageDTO.class, false))));
+        factory.setBatchListener(true);
+        factory.setConcurrency(emailDispatchWorkers);
+        factory.setCommonErrorHandler(emailDispatchErrorHandler(emailDispatcher));
+        return factory;
+    }
+
+    // Retries wait on the container between redeliveries instead of sleeping inside the listener.
+    // alert-emails-dlt has one partition, so the producer picks it rather than mirroring the source partition
+    private DefaultErrorHandler emailDispatchErrorHandler(EmailDispatcher emailDispatcher) {
+        ExponentialBackOffWithMaxRetries backOff =
+                new ExponentialBackOffWithMaxRetries(Math.max(emailDispatchMaxAttempts - 1, 0));
+        backOff.setInitialInterval(emailDispatchInitialBackoffMs);
+        backOff.setMultiplier(2.0);
+        backOff.setMaxInterval(emailDispatchMaxBackoffMs);
+
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(emailKafkaTemplate(),
+                (record, exception) -> new TopicPartition(EmailDispatcher.DEAD_LETTER_TOPIC, -1));
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(recoverer, backOff);
+        errorHandler.setRetryListeners(emailDispatcher.retryListener(emailDispatchMaxAttempts));
+        return errorHandler;
+    }
+
+    // For alert-triggers and alert-deliveries. Records that aren't AlertTriggeredEvents, such as JSON alerts
+    // left over from before the event format, fail deserialization and are skipped instead of blocking the partition
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, AlertTriggeredEvent> alertEventListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, AlertTriggeredEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(alertEventConsumerFactory());
+        return factory;
+    }
+
+    // Alert emails are digested per poll: the pause between polls is the digest window, and the batch's
+    // offsets are committed only after the listener has written its emails to alert-emails
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, AlertTriggeredEvent> alertEmailListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, AlertTriggeredEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(alertEventConsumerFactory());
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setIdleBetweenPolls(Math.max(emailDigestWindowMs, 0));
+        factory.setCommonErrorHandler(alertEmailErrorHandler());
+        return factory;
+    }
+
+    // The records are the only copy of these alerts until their emails reach alert-emails, so a failed batch
+    // is redelivered with a growing pause until the write succeeds instead of being recovered and committed
+    DefaultErrorHandler alertEmailErrorHandler() {
+        ExponentialBackOff backOff = new ExponentialBackOff(emailDigestInitialBackoffMs, 2.0);
+        backOff.setMaxInterval(emailDigestMaxBackoffMs);
+        return new DefaultErrorHandler(backOff);
+    }
+
+    private ConsumerFactory<String, AlertTriggeredEvent> alertEventConsumerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        return new DefaultKafkaConsumerFactory<>(configProps, new StringDeserializer(),
+                new ErrorHandlingDeserializer<>(new AlertTriggeredEventDeserializer()));
+    }
+
+    // Not exposed as a bean so the default consumer factory used by the other listeners stays untouched
+    private ConsumerFactory<String, String> stockPriceConsumerFactory(Map<String, Object> overrides) {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, stockPriceBatchSize);
+        configProps.putAll(overrides);
+        return new DefaultKafkaConsumerFactory<>(configProps);
+    }
 }
@@ -2,6 +2,7 @@ package com.erenkalkan.stockpulse.controller;
 
 import com.erenkalkan.stockpulse.model.dto.StockDTO;
 import com.erenkalkan.stockpulse.model.dto.StockDataDTO;
+import com.erenkalkan.stockpulse.model.dto.StockQuoteDTO;
 import com.erenkalkan.stockpulse.service.StocksService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -36,4 +37,9 @@ public class StocksController {
     response.put("price", stocksService.fetchStockClosePrice(symbol));
     return ResponseEntity.ok(response);
   }
+
+  @GetMapping("/quote")
+  public ResponseEntity<StockQuoteDTO> getQuote(@RequestParam String symbol) {
+    return ResponseEntity.ok(stocksService.getQuote(symbol));
+  }
 }
@@ -0,0 +1,10 @@
+package com.erenkalkan.stockpulse.exception;
+
+import org.springframework.web.client.RestClientException;
+
+public class UpstreamQuotaExceededException extends RestClientException {
+
+    public UpstreamQuotaExceededException(String message) {
+        super(message);
+    }
+}
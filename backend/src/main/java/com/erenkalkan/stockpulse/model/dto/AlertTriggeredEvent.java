@@ -0,0 +1,42 @@
+package com.erenkalkan.stockpulse.model.dto;
+
+import com.erenkalkan.stockpulse.model.entity.Alert;
+import com.erenkalkan.stockpulse.model.entity.User;
+import com.erenkalkan.stockpulse.model.enums.ConditionType;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * What the alert-triggers topic carries instead of the Alert entity: just enough to notify the user,
+ * without the watchlist and user graph behind it.
+ */
+@Value
+@Builder
+public class AlertTriggeredEvent {
+  long alertId;
+  Long userId;
+  String email;
+  String symbol;
+  ConditionType condition;
+  double targetValue;
+  double triggerPrice;
+  long triggeredAt;
+
+  public static AlertTriggeredEvent of(Alert alert, double triggerPrice) {
+    return of(alert, alert.getCondition(), triggerPrice);
+  }
+
+  public static AlertTriggeredEvent of(Alert alert, ConditionType condition, double triggerPrice) {
+    User user = alert.getWatchlist().getUser();
+    return AlertTriggeredEvent.builder()
+            .alertId(alert.getId() == null ? 0 : alert.getId())
+            .userId(user.getId())
+            .email(user.getEmail())
+            .symbol(alert.getStock().getSymbol())
+            .condition(condition)
+            .targetValue(alert.getTargetValue())
+            .triggerPrice(triggerPrice)
+            .triggeredAt(System.currentTimeMillis())
+            .build();
+  }
+}
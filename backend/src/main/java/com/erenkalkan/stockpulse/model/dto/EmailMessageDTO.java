@@ -0,0 +1,17 @@
+package com.erenkalkan.stockpulse.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmailMessageDTO {
+  private String from;
+  private String to;
+  private String subject;
+  private String text;
+}
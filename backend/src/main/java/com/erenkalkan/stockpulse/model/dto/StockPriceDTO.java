@@ -1,5 +1,6 @@
 package com.erenkalkan.stockpulse.model.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,4 +14,6 @@ public class StockPriceDTO {
   private String symbol;
   private double price;
   private long timestamp;
+  @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+  private double volume;
 }
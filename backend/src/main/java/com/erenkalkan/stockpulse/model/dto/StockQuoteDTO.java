@@ -0,0 +1,21 @@
+package com.erenkalkan.stockpulse.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockQuoteDTO {
+
+  private String symbol;
+  private double price;
+  private long timestamp;
+  private double dayHigh;
+  private double dayLow;
+  private double volume;
+  private Double previousClose;
+}
@@ -11,4 +11,6 @@ import java.util.List;
 public interface AlertRepository extends JpaRepository<Alert, Long> {
 
   public List<Alert> findAllByStock(Stock stock);
+
+  public List<Alert> findAllByIsTriggeredFalse();
 }
@@ -1,17 +1,23 @@
 package com.erenkalkan.stockpulse.service;
 
 
+import com.erenkalkan.stockpulse.model.dto.AlertTriggeredEvent;
 import com.erenkalkan.stockpulse.model.dto.StockPriceDTO;
 import com.erenkalkan.stockpulse.model.entity.Alert;
 import com.erenkalkan.stockpulse.model.enums.ConditionType;
+import com.erenkalkan.stockpulse.service.alert.AlertIndex;
+import com.erenkalkan.stockpulse.service.alert.AlertTriggerWriter;
+import com.erenkalkan.stockpulse.service.kafka.TickConflationMetrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
@@ -20,31 +26,64 @@ public class AlertProcessingService {
 
   private final String alertTriggersTopic = "alert-triggers";
 
-  private final AlertService alertService;
-  private final KafkaTemplate<String, Alert> alertKafkaTemplate;
+  private final AlertIndex alertIndex;
+  private final AlertTriggerWriter alertTriggerWriter;
+  private final KafkaTemplate<String, AlertTriggeredEvent> alertKafkaTemplate;
+  private final TickConflationMetrics conflationMetrics;
 
+  private record PriceRange(double low, double high) {
 
-  @KafkaListener(topics = "stock-prices", groupId = "alert-processor-group")
-  public void processStockPrice(StockPriceDTO priceUpdate) {
-    log.info("Processing price update for {}: {}", priceUpdate.getSymbol(), priceUpdate.getPrice());
+    PriceRange include(double price) {
+      return new PriceRange(Math.min(low, price), Math.max(high, price));
+    }
+  }
 
-    List<Alert> alerts = alertService.findAllBySymbol(priceUpdate.getSymbol());
 
-    for (Alert alert : alerts) {
-      boolean conditionMet = false;
-      if (((ConditionType.ABOVE.equals(alert.getCondition()) && priceUpdate.getPrice() > alert.getTargetValue()) ||
-              (ConditionType.BELOW.equals(alert.getCondition()) && priceUpdate.getPrice() < alert.getTargetValue())) && !alert.isTriggered()) {
-        {
-          conditionMet = true;
-        }
-
-        if (conditionMet) {
-          log.info("Alert triggered for user {}: {} is {} {}",
-                  alert.getWatchlist().getUser(), alert.getStock().getSymbol(), alert.getCondition(), alert.getTargetValue());
-          alertKafkaTemplate.send(alertTriggersTopic, alert);
-          alert.setTriggered(true);
-        }
+  @KafkaListener(topics = "stock-prices", groupId = "alert-processor-group",
+          containerFactory = "stockPriceBatchListenerContainerFactory")
+  public void processStockPrices(List<StockPriceDTO> priceUpdates) {
+    // Every alert crossed by any tick in the batch is crossed by the batch's low or high,
+    // so a burst of ticks for one symbol costs a single evaluation
+    Map<String, PriceRange> rangeBySymbol = new LinkedHashMap<>();
+    for (StockPriceDTO priceUpdate : priceUpdates) {
+      if (priceUpdate == null || priceUpdate.getSymbol() == null) {
+        continue;
       }
+      double price = priceUpdate.getPrice();
+      rangeBySymbol.merge(priceUpdate.getSymbol(), new PriceRange(price, price),
+              (current, ignored) -> current.include(price));
+    }
+    conflationMetrics.record("alerts", priceUpdates.size(), rangeBySymbol.size());
+
+    rangeBySymbol.forEach((symbol, range) -> evaluate(symbol, range.low(), range.high()));
+  }
+
+  private void evaluate(String symbol, double low, double high) {
+    log.debug("Processing price range for {}: {} - {}", symbol, low, high);
+
+    // Matched alerts are removed from the index, so each one is resolved exactly once
+    List<Alert> alerts = alertIndex.match(symbol, low, high);
+
+    for (Alert alert : alerts) {
+      ConditionType condition = AlertIndex.directionOf(alert);
+      log.info("Alert triggered for user {}: {} is {} {}",
+              alert.getWatchlist().getUser(), alert.getStock().getSymbol(), condition, alert.getTargetValue());
+      alert.setTriggered(true);
+      alert.setTriggeredAt(LocalDateTime.now());
+      // Built now, while the watchlist and user are loaded, rather than on the writer thread
+      AlertTriggeredEvent event = AlertTriggeredEvent.of(alert, condition, condition == ConditionType.BELOW ? low : high);
+
+      // The trigger is only published once its state is stored, so a restart can never fire it twice
+      alertTriggerWriter.submit(alert, () -> publishTrigger(event));
+    }
+  }
+
+  // Keyed by user so all of a user's triggers stay in order on one partition
+  private void publishTrigger(AlertTriggeredEvent event) {
+    try {
+      alertKafkaTemplate.send(alertTriggersTopic, event.getEmail(), event);
+    } catch (Exception e) {
+      log.error("Failed to publish triggered alert {}", event.getAlertId(), e);
     }
   }
 }
@@ -8,6 +8,7 @@ import com.erenkalkan.stockpulse.model.entity.User;
 import com.erenkalkan.stockpulse.model.entity.Watchlist;
 import com.erenkalkan.stockpulse.model.enums.TriggerType;
 import com.erenkalkan.stockpulse.repository.AlertRepository;
+import com.erenkalkan.stockpulse.service.alert.AlertIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
@@ -25,6 +26,7 @@ public class AlertService {
   private final StocksService stocksService;
   private final WatchlistService watchlistService;
   private final UserService userService;
+  private final AlertIndex alertIndex;
 
 
   public Alert save(Alert alert) {
@@ -99,7 +101,7 @@ public class AlertService {
               .build();
     }
 
-    save(alert);
+    alertIndex.add(save(alert));
 
     return true;
   }
@@ -125,6 +127,8 @@ public class AlertService {
       throw new UnauthorizedAccessException("User is not authorized to delete this alert");
     }
 
-    return delete(alert);
+    boolean deleted = delete(alert);
+    alertIndex.remove(alert);
+    return deleted;
   }
 }
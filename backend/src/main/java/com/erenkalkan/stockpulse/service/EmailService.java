@@ -1,6 +1,6 @@
 package com.erenkalkan.stockpulse.service;
 
-import com.erenkalkan.stockpulse.model.entity.Alert;
+import com.erenkalkan.stockpulse.model.dto.AlertTriggeredEvent;
 import com.erenkalkan.stockpulse.model.entity.User;
 import com.erenkalkan.stockpulse.model.entity.VerificationToken;
 import com.erenkalkan.stockpulse.model.enums.TokenType;
@@ -11,6 +11,7 @@ import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Locale;
 
 @Service
@@ -48,31 +49,45 @@ public class EmailService {
     }
   }
 
-  public void sendAlertEmail(Alert alert) {
+  public SimpleMailMessage buildAlertEmail(AlertTriggeredEvent event, String firstName) {
 
-    User user = alert.getWatchlist().getUser();
-    String to = user.getEmail();
+    SimpleMailMessage mail = new SimpleMailMessage();
+    mail.setFrom(from);
+    mail.setTo(event.getEmail());
 
-    try {
-      SimpleMailMessage mail = new SimpleMailMessage();
-      mail.setFrom(from);
-      mail.setTo(to);
+    mail.setSubject(String.format("Your Alert for %s has been triggered!", event.getSymbol()));
 
-      mail.setSubject(String.format("Your Alert for %s has been triggered!", alert.getStock().getSymbol()));
+    mail.setText(String.format(Locale.US,"""
+            Hey %s,
+            We would like to inform you about your Alert for the stock: %s
+            Price is now %s your target of %.2f
+            """, firstName,
+            event.getSymbol(),
+            event.getCondition().toString().toLowerCase(), event.getTargetValue()));
 
-      mail.setText(String.format(Locale.US,"""
-              Hey %s,
-              We would like to inform you about your Alert for the stock: %s
-              Price is now %s your target of %.2f
-              """, user.getFirstName(),
-              alert.getStock().getSymbol(),
-              alert.getCondition().toString().toLowerCase(), alert.getTargetValue().doubleValue()));
+    return mail;
+  }
 
-      sender.send(mail);
-    }
-    catch(Exception e) {
-      throw new MailSendException("Failed to send alert trigger email", e);
+  // One email for several alerts of the same user that triggered within the digest window
+  public SimpleMailMessage buildAlertDigestEmail(List<AlertTriggeredEvent> events, String firstName) {
+
+    SimpleMailMessage mail = new SimpleMailMessage();
+    mail.setFrom(from);
+    mail.setTo(events.get(0).getEmail());
+
+    mail.setSubject(String.format("%d of your Alerts have been triggered!", events.size()));
+
+    StringBuilder text = new StringBuilder(String.format("""
+            Hey %s,
+            We would like to inform you about %d of your Alerts:
+            """, firstName, events.size()));
+    for (AlertTriggeredEvent event : events) {
+      text.append(String.format(Locale.US, "%s: Price is now %s your target of %.2f%n",
+              event.getSymbol(), event.getCondition().toString().toLowerCase(), event.getTargetValue()));
     }
+    mail.setText(text.toString());
+
+    return mail;
   }
 
 
@@ -0,0 +1,135 @@
+package com.erenkalkan.stockpulse.service;
+
+import com.erenkalkan.stockpulse.model.dto.StockPriceDTO;
+import com.erenkalkan.stockpulse.model.dto.StockQuoteDTO;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Last trade per symbol as seen on the stock-prices stream, with the running day high, low and volume.
+ * Backs subscribe snapshots and the REST close/quote endpoints. Trades can't tell the previous close,
+ * so that is seeded from a Finnhub quote at most once per trading day.
+ */
+@Component
+public class LastTradeTable {
+
+  private static final ZoneId MARKET_ZONE = ZoneId.of("America/New_York");
+
+  private final ConcurrentHashMap<String, Row> rows = new ConcurrentHashMap<>();
+
+  // Price fields belong to tradingDay; previousClose is only valid on closeDay
+  private record Row(double price, long timestamp, double dayHigh, double dayLow, double volume,
+                     LocalDate tradingDay, Double previousClose, LocalDate closeDay) {
+  }
+
+  public void record(StockPriceDTO trade) {
+    if (trade == null || trade.getSymbol() == null || trade.getPrice() <= 0) {
+      return;
+    }
+    LocalDate tradingDay = tradingDayOf(trade.getTimestamp());
+    rows.compute(trade.getSymbol(), (symbol, row) -> withTrade(row, trade, tradingDay));
+  }
+
+  public void recordAll(Collection<StockPriceDTO> trades) {
+    trades.forEach(this::record);
+  }
+
+  private static Row withTrade(Row row, StockPriceDTO trade, LocalDate tradingDay) {
+    double price = trade.getPrice();
+    if (row == null) {
+      return new Row(price, trade.getTimestamp(), price, price, trade.getVolume(), tradingDay, null, null);
+    }
+    if (tradingDay.isAfter(row.tradingDay())) {
+      return new Row(price, trade.getTimestamp(), price, price, trade.getVolume(), tradingDay,
+              row.previousClose(), row.closeDay());
+    }
+    if (tradingDay.isBefore(row.tradingDay())) {
+      return row;
+    }
+
+    // Trades can arrive slightly out of order; they still count towards the range and volume
+    boolean latest = trade.getTimestamp() >= row.timestamp();
+    return new Row(latest ? price : row.price(), latest ? trade.getTimestamp() : row.timestamp(),
+            Math.max(row.dayHigh(), price), row.dayLow() > 0 ? Math.min(row.dayLow(), price) : price,
+            row.volume() + trade.getVolume(), tradingDay, row.previousClose(), row.closeDay());
+  }
+
+  /** Merges a Finnhub quote; trades already streamed for the same day keep their price and volume. */
+  public StockQuoteDTO seed(String symbol, StockQuoteDTO quote) {
+    LocalDate today = currentTradingDay();
+    Row seeded = rows.compute(symbol, (key, row) -> {
+      if (quote.getPrice() <= 0) {
+        return row != null
+                ? new Row(row.price(), row.timestamp(), row.dayHigh(), row.dayLow(), row.volume(), row.tradingDay(),
+                        quote.getPreviousClose(), today)
+                : new Row(0, 0, 0, 0, 0, LocalDate.MIN, quote.getPreviousClose(), today);
+      }
+
+      LocalDate quoteDay = tradingDayOf(quote.getTimestamp());
+      if (row == null || quoteDay.isAfter(row.tradingDay())) {
+        return new Row(quote.getPrice(), quote.getTimestamp(), quote.getDayHigh(), quote.getDayLow(), 0, quoteDay,
+                quote.getPreviousClose(), today);
+      }
+      if (quoteDay.equals(row.tradingDay())) {
+        // The quote's range also covers trades from before this node was streaming the symbol
+        return new Row(row.price(), row.timestamp(), Math.max(row.dayHigh(), quote.getDayHigh()),
+                quote.getDayLow() > 0 ? Math.min(row.dayLow(), quote.getDayLow()) : row.dayLow(),
+                row.volume(), row.tradingDay(), quote.getPreviousClose(), today);
+      }
+      return new Row(row.price(), row.timestamp(), row.dayHigh(), row.dayLow(), row.volume(), row.tradingDay(),
+              quote.getPreviousClose(), today);
+    });
+    return toQuote(symbol, seeded, today);
+  }
+
+  /** Previous close for the current trading day, or null if it hasn't been seeded yet. */
+  public Double getPreviousClose(String symbol) {
+    Row row = rows.get(symbol);
+    return row != null && currentTradingDay().equals(row.closeDay()) ? row.previousClose() : null;
+  }
+
+  public StockQuoteDTO getQuote(String symbol) {
+    Row row = rows.get(symbol);
+    return row == null ? null : toQuote(symbol, row, currentTradingDay());
+  }
+
+  /** Quotes for the given symbols that have traded or been seeded with a price, in the given order. */
+  public List<StockQuoteDTO> getQuotes(Collection<String> symbols) {
+    LocalDate today = currentTradingDay();
+    List<StockQuoteDTO> quotes = new ArrayList<>(symbols.size());
+    for (String symbol : symbols) {
+      Row row = rows.get(symbol);
+      if (row != null && row.price() > 0) {
+        quotes.add(toQuote(symbol, row, today));
+      }
+    }
+    return quotes;
+  }
+
+  private static StockQuoteDTO toQuote(String symbol, Row row, LocalDate today) {
+    return StockQuoteDTO.builder()
+            .symbol(symbol)
+            .price(row.price())
+            .timestamp(row.timestamp())
+            .dayHigh(row.dayHigh())
+            .dayLow(row.dayLow())
+            .volume(row.volume())
+            .previousClose(today.equals(row.closeDay()) ? row.previousClose() : null)
+            .build();
+  }
+
+  LocalDate currentTradingDay() {
+    return LocalDate.now(MARKET_ZONE);
+  }
+
+  private static LocalDate tradingDayOf(long timestampMillis) {
+    return Instant.ofEpochMilli(timestampMillis).atZone(MARKET_ZONE).toLocalDate();
+  }
+}
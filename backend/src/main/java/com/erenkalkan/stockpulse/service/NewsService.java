@@ -2,6 +2,9 @@ package com.erenkalkan.stockpulse.service;
 
 import com.erenkalkan.stockpulse.exception.InvalidInputException;
 import com.erenkalkan.stockpulse.model.dto.NewsResponseDTO;
+import com.erenkalkan.stockpulse.service.cache.MarketDataCache;
+import com.erenkalkan.stockpulse.service.upstream.UpstreamProvider;
+import com.erenkalkan.stockpulse.service.upstream.UpstreamScheduler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -25,14 +28,29 @@ public class NewsService {
   @Value("${app.api.finnhub.key}")
   private String key;
 
+  @Value("${app.cache.market-data.ttl-ms.market-news:300000}")
+  private long marketNewsTtlMs;
+
+  @Value("${app.cache.market-data.ttl-ms.company-news:900000}")
+  private long companyNewsTtlMs;
+
+  @Value("${app.cache.market-data.refresh-after-ms.market-news:120000}")
+  private long marketNewsRefreshAfterMs;
+
+  @Value("${app.cache.market-data.refresh-after-ms.company-news:600000}")
+  private long companyNewsRefreshAfterMs;
+
   private final RestClient restClient;
+  private final MarketDataCache marketDataCache;
+  private final UpstreamScheduler upstreamScheduler;
 
 
   public List<NewsResponseDTO> getMarketNews() {
 
     String apiUrl = url + "news?category=general&token=" + key;
 
-    return fetchNews(apiUrl);
+    return marketDataCache.get("market-news", "general", marketNewsRefreshAfterMs, marketNewsTtlMs,
+            () -> fetchNews(apiUrl));
   }
 
 
@@ -42,21 +60,23 @@ public class NewsService {
       throw new InvalidInputException("Stock cannot be null or empty");
     }
 
-    String fromDate = LocalDate.now().minusMonths(1).toString();
-    String toDate = LocalDate.now().toString();
-
-    String apiUrl = url + "company-news?symbol=" + ticker + "&from=" + fromDate + "&to=" + toDate+ "&token=" + key;
+    // The date range is built per load, so a background refresh asks for the current month
+    return marketDataCache.get("company-news", ticker, companyNewsRefreshAfterMs, companyNewsTtlMs, () -> {
+      String fromDate = LocalDate.now().minusMonths(1).toString();
+      String toDate = LocalDate.now().toString();
 
-    return fetchNews(apiUrl);
+      String apiUrl = url + "company-news?symbol=" + ticker + "&from=" + fromDate + "&to=" + toDate+ "&token=" + key;
+      return fetchNews(apiUrl);
+    });
   }
 
   private List<NewsResponseDTO> fetchNews(String url) {
 
     try {
-      List<Map<String, Object>> response = restClient.get()
+      List<Map<String, Object>> response = upstreamScheduler.execute(UpstreamProvider.FINNHUB, () -> restClient.get()
               .uri(url)
               .retrieve()
-              .body(List.class);
+              .body(List.class));
 
       if (response != null && !response.isEmpty()) {
         List<NewsResponseDTO> results = new ArrayList<>();
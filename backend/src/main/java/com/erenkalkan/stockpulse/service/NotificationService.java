@@ -1,11 +1,13 @@
 package com.erenkalkan.stockpulse.service;
 
-import com.erenkalkan.stockpulse.model.entity.Alert;
+import com.erenkalkan.stockpulse.model.dto.AlertTriggeredEvent;
 import com.erenkalkan.stockpulse.service.websocket.AlertTriggerWebSocketHandler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.Locale;
+
 
 @Slf4j
 @Service
@@ -14,14 +16,14 @@ public class NotificationService {
 
   private final AlertTriggerWebSocketHandler webSocketHandler;
 
-  public void sendAlertNotification(Alert alert) {
-    String message = String.format("Alert for %s: Price is now %s your target of %.2f",
-            alert.getStock().getSymbol(), alert.getCondition().toString().toLowerCase(), alert.getTargetValue());
+  public void sendAlertNotification(AlertTriggeredEvent event) {
+    String message = String.format(Locale.US, "Alert for %s: Price is now %s your target of %.2f",
+            event.getSymbol(), event.getCondition().toString().toLowerCase(), event.getTargetValue());
     try {
-      webSocketHandler.broadcast(alert.getWatchlist().getUser(), message);
-      log.info("Sent WebSocket notification to user {}", alert.getWatchlist().getUser().getEmail());
+      webSocketHandler.broadcast(event.getEmail(), message);
+      log.info("Sent WebSocket notification to user {}", event.getEmail());
     } catch (Exception e) {
-      log.error("Failed to send WebSocket notification to user {}", alert.getWatchlist().getUser().getEmail(), e);
+      log.error("Failed to send WebSocket notification to user {}", event.getEmail(), e);
     }
   }
 }
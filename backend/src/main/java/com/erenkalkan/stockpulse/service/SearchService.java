@@ -2,6 +2,9 @@ package com.erenkalkan.stockpulse.service;
 
 import com.erenkalkan.stockpulse.exception.InvalidInputException;
 import com.erenkalkan.stockpulse.model.dto.SearchTickerResponseDTO;
+import com.erenkalkan.stockpulse.service.cache.MarketDataCache;
+import com.erenkalkan.stockpulse.service.upstream.UpstreamProvider;
+import com.erenkalkan.stockpulse.service.upstream.UpstreamScheduler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,6 +13,7 @@ import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientException;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -24,20 +28,31 @@ public class SearchService {
   @Value("${app.api.finnhub.key}")
   private String key;
 
+  @Value("${app.cache.market-data.ttl-ms.search:3600000}")
+  private long searchTtlMs;
+
   private final RestClient restClient;
+  private final MarketDataCache marketDataCache;
+  private final UpstreamScheduler upstreamScheduler;
 
   public List<SearchTickerResponseDTO> searchTicker(String input) {
 
     if (input == null || input.trim().isEmpty()) {
       throw new InvalidInputException("Input cannot be null or empty");
     }
+    // Every spelling of a query shares one cache entry, so the upstream call gets that same normalized query
+    String query = input.trim().toUpperCase(Locale.ROOT);
+    return marketDataCache.get("search", query, searchTtlMs, () -> fetchSearchResults(query));
+  }
+
+  private List<SearchTickerResponseDTO> fetchSearchResults(String input) {
     String apiUrl = url + "search?q=" + input + "&token=" + key;
 
     try {
-      Map<String, Object> response = restClient.get()
+      Map<String, Object> response = upstreamScheduler.execute(UpstreamProvider.FINNHUB, () -> restClient.get()
           .uri(apiUrl)
           .retrieve()
-          .body(Map.class);
+          .body(Map.class));
 
       if (response != null && response.containsKey("result")) {
         List<Map<String, String>> bestMatches = (List<Map<String, String>>) response.get("result");
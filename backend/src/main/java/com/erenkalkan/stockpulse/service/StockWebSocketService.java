@@ -1,205 +1,189 @@
 package com.erenkalkan.stockpulse.service;
 
-import com.erenkalkan.stockpulse.model.dto.StockPriceDTO;
-import com.erenkalkan.stockpulse.service.kafka.StockPriceProducer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.erenkalkan.stockpulse.service.ingest.ConsistentHashRing;
+import com.erenkalkan.stockpulse.service.ingest.FinnhubConnection;
+import com.erenkalkan.stockpulse.service.ingest.SymbolSubscriptions;
+import com.erenkalkan.stockpulse.service.ingest.TickRingBuffer;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.socket.CloseStatus;
-import org.springframework.web.socket.TextMessage;
-import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.client.WebSocketClient;
-import org.springframework.web.socket.client.standard.StandardWebSocketClient;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
-
-import java.util.HashSet;
+
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class StockWebSocketService {
 
+  private static final int VIRTUAL_NODES = 64;
+
   @Value("${app.api.finnhub.websocketUrl}")
   private String websocketUrl;
 
   @Value("${app.api.finnhub.key}")
   private String finnhubApiKey;
 
-  private final StockPriceProducer kafkaPublisher;
-  private final ObjectMapper objectMapper = new ObjectMapper();
+  @Value("${app.api.finnhub.subscription.flush-delay-ms:25}")
+  private long subscriptionFlushDelayMs;
+
+  @Value("${app.api.finnhub.reconnect.initial-backoff-ms:1000}")
+  private long initialBackoffMs;
+
+  @Value("${app.api.finnhub.reconnect.max-backoff-ms:60000}")
+  private long maxBackoffMs;
+
+  @Value("${app.api.finnhub.connections.max:4}")
+  private int maxConnections;
+
+  @Value("${app.api.finnhub.connections.max-symbols-per-connection:50}")
+  private int maxSymbolsPerConnection;
+
+  private final TickRingBuffer tickRingBuffer;
+  private final SymbolSubscriptions symbolSubscriptions;
   private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-  private WebSocketSession currentSession;
-  private volatile boolean shouldReconnect = true;
-  private final Set<String> subscribedSymbols = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean rebalanceScheduled = new AtomicBoolean();
+  private volatile boolean running = true;
+
+  // Guarded by this
+  private final List<FinnhubConnection> connections = new ArrayList<>();
+  private ConsistentHashRing ring;
 
   @PostConstruct
   public void initialize() {
     log.info("StockWebSocketService initialized - establishing WebSocket connection");
-    connectToFinnhub();
+    rebalance();
   }
 
-  public void addSymbols(List<String> symbols) {
+  public void subscribe(String sessionId, List<String> symbols) {
     if (symbols == null || symbols.isEmpty()) {
       return;
     }
 
-    subscribedSymbols.addAll(symbols);
-
-    if (currentSession != null && currentSession.isOpen()) {
-      try {
-        for (String symbol : symbols) {
-          String subscribeMessage = String.format("{\"type\":\"subscribe\",\"symbol\":\"%s\"}", symbol);
-          currentSession.sendMessage(new TextMessage(subscribeMessage));
-          log.info("Subscribed to symbol: {}", symbol);
-        }
-      } catch (Exception e) {
-        log.error("Error adding symbols", e);
-      }
-    }
-    else {
-      log.warn("Session has problems");
+    List<String> added = symbolSubscriptions.acquire(sessionId, symbols);
+    if (!added.isEmpty()) {
+      log.info("Symbols newly demanded upstream: {}", added);
+      scheduleRebalance();
     }
   }
 
-  public void removeSymbols(List<String> symbols) {
+  public void unsubscribe(String sessionId, List<String> symbols) {
     if (symbols == null || symbols.isEmpty()) {
       return;
     }
 
-    subscribedSymbols.removeAll(symbols);
-
-    if (currentSession != null && currentSession.isOpen()) {
-      try {
-        for (String symbol : symbols) {
-          String unsubscribeMessage = String.format("{\"type\":\"unsubscribe\",\"symbol\":\"%s\"}", symbol);
-          currentSession.sendMessage(new TextMessage(unsubscribeMessage));
-          log.info("Unsubscribed from symbol: {}", symbol);
-        }
-      } catch (Exception e) {
-        log.error("Error removing symbols", e);
-      }
+    List<String> removed = symbolSubscriptions.release(sessionId, symbols);
+    if (!removed.isEmpty()) {
+      log.info("Symbols no longer demanded upstream: {}", removed);
+      scheduleRebalance();
     }
   }
 
-  public Set<String> getSubscribedSymbols() {
-    return new HashSet<>(subscribedSymbols);
-  }
-
-  private void connectToFinnhub() {
-    WebSocketClient client = new StandardWebSocketClient();
-    String uri = websocketUrl + "?token=" + finnhubApiKey;
-
-    try {
-      log.info("Connecting to Finnhub WebSocket: {}", websocketUrl);
-      client.execute(new FinnhubWebSocketHandler(), uri);
-    } catch (Exception e) {
-      log.error("Failed to connect to Finnhub WebSocket", e);
-      scheduleReconnect();
+  public void releaseSession(String sessionId) {
+    List<String> removed = symbolSubscriptions.releaseAll(sessionId);
+    if (!removed.isEmpty()) {
+      log.info("Symbols no longer demanded upstream after session {} closed: {}", sessionId, removed);
+      scheduleRebalance();
     }
   }
 
-  private void scheduleReconnect() {
-    if (shouldReconnect) {
-      log.info("Scheduling reconnection in 10 seconds");
-      scheduler.schedule(this::connectToFinnhub, 10, TimeUnit.SECONDS);
+  // Symbols with untriggered alerts stay subscribed regardless of viewers, so alerts keep receiving ticks
+  public void holdForAlerts(String symbol) {
+    if (symbolSubscriptions.holdForAlerts(symbol)) {
+      log.info("Symbol newly demanded upstream for alerts: {}", symbol);
+      scheduleRebalance();
     }
   }
 
-  public void stopService() {
-    shouldReconnect = false;
-    if (currentSession != null && currentSession.isOpen()) {
-      try {
-        currentSession.close();
-      } catch (Exception e) {
-        log.error("Error closing WebSocket session", e);
-      }
+  public void releaseForAlerts(String symbol) {
+    if (symbolSubscriptions.releaseForAlerts(symbol)) {
+      log.info("Symbol no longer demanded upstream after its last alert: {}", symbol);
+      scheduleRebalance();
     }
-    scheduler.shutdown();
   }
 
-  private class FinnhubWebSocketHandler extends TextWebSocketHandler {
+  public Set<String> getSubscribedSymbols() {
+    return symbolSubscriptions.getDemandedSymbols();
+  }
 
-    @Override
-    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-      log.info("WebSocket connection established");
-      currentSession = session;
-    }
+  public synchronized int getConnectionCount() {
+    return connections.size();
+  }
 
-    @Override
-    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+  // Coalesces bursts of client (un)subscriptions, e.g. a page reload, into one pipelined batch of frames
+  private void scheduleRebalance() {
+    if (rebalanceScheduled.compareAndSet(false, true)) {
       try {
-        String payload = message.getPayload();
-
-        if (payload.equals("{\"type\":\"ping\"}")) {
-          // Respond to ping with pong
-          session.sendMessage(new TextMessage("{\"type\":\"pong\"}"));
-          return;
-        }
-
-        JsonNode rootNode = objectMapper.readTree(payload);
-        String type = rootNode.path("type").asText();
-
-        if ("trade".equals(type)) {
-          JsonNode dataArray = rootNode.path("data");
-          if (dataArray.isArray()) {
-            for (JsonNode tradeData : dataArray) {
-              processTradeData(tradeData);
-            }
-          }
-        }
-
-      } catch (Exception e) {
-        log.error("Error processing WebSocket message: {}", message.getPayload(), e);
+        scheduler.schedule(() -> {
+          rebalanceScheduled.set(false);
+          rebalance();
+        }, subscriptionFlushDelayMs, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        rebalanceScheduled.set(false);
       }
     }
+  }
 
-    private void processTradeData(JsonNode tradeData) {
-      try {
-        String symbol = tradeData.path("s").asText();
-        double price = tradeData.path("p").asDouble();
-        long timestamp = tradeData.path("t").asLong();
-
-        if (symbol.isEmpty() || price <= 0 || timestamp <= 0) {
-          log.warn("Invalid trade data received: {}", tradeData);
-          return;
-        }
-
-        StockPriceDTO stockPriceDTO = StockPriceDTO.builder()
-                .symbol(symbol)
-                .price(price)
-                .timestamp(timestamp)
-                .build();
+  // Shards the demanded symbols over the connections, growing or shrinking the pool to fit the per-connection limit
+  private synchronized void rebalance() {
+    if (!running) {
+      return;
+    }
 
-        kafkaPublisher.publishStockPrice(stockPriceDTO);
+    Set<String> demanded = symbolSubscriptions.getDemandedSymbols();
+    int target = targetConnectionCount(demanded.size(), connections.size());
 
-      } catch (Exception e) {
-        log.error("Error processing trade data: {}", tradeData, e);
-      }
+    while (connections.size() < target) {
+      FinnhubConnection connection = new FinnhubConnection(connections.size(), websocketUrl, finnhubApiKey,
+              tickRingBuffer, scheduler, initialBackoffMs, maxBackoffMs);
+      connections.add(connection);
+      connection.connect();
+    }
+    if (ring == null || ring.getNodes() != target) {
+      ring = new ConsistentHashRing(target, VIRTUAL_NODES);
+      log.info("Sharding {} symbols across {} Finnhub connections", demanded.size(), target);
+    }
+    if (demanded.size() > target * maxSymbolsPerConnection) {
+      log.warn("{} symbols exceed the limit of {} connections with {} symbols each",
+              demanded.size(), target, maxSymbolsPerConnection);
     }
 
-    @Override
-    public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
-      log.error("WebSocket transport error", exception);
+    List<Set<String>> shards = ring.assign(demanded, maxSymbolsPerConnection);
+    for (int i = 0; i < connections.size(); i++) {
+      connections.get(i).assign(i < target ? shards.get(i) : Set.of());
     }
 
-    @Override
-    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
-      log.warn("WebSocket connection closed with status: {} - {}", status.getCode(), status.getReason());
-      currentSession = null;
+    // Make before break: a moving symbol is subscribed on its new connection before leaving the old one
+    connections.forEach(FinnhubConnection::subscribeMissing);
+    connections.forEach(FinnhubConnection::unsubscribeStale);
 
-      if (shouldReconnect) {
-        scheduleReconnect();
-      }
+    while (connections.size() > target) {
+      connections.remove(connections.size() - 1).close();
+    }
+  }
+
+  // Shrinks only once demand drops well below the smaller pool's capacity, so churn around a boundary does not flap
+  private int targetConnectionCount(int symbols, int current) {
+    int limit = Math.max(maxSymbolsPerConnection, 1);
+    int needed = Math.max(1, Math.min(Math.max(maxConnections, 1), (symbols + limit - 1) / limit));
+    if (needed < current && symbols > (current - 1) * limit * 3 / 4) {
+      return current;
     }
+    return needed;
+  }
+
+  public synchronized void stopService() {
+    running = false;
+    connections.forEach(FinnhubConnection::close);
+    connections.clear();
+    scheduler.shutdown();
   }
 }
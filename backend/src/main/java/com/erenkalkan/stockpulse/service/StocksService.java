@@ -4,9 +4,14 @@ import com.erenkalkan.stockpulse.exception.InvalidInputException;
 import com.erenkalkan.stockpulse.model.dto.StockDTO;
 import com.erenkalkan.stockpulse.model.dto.StockDataDTO;
 import com.erenkalkan.stockpulse.model.dto.StockFinancialsDTO;
+import com.erenkalkan.stockpulse.model.dto.StockQuoteDTO;
 import com.erenkalkan.stockpulse.model.dto.StockRecommendationsDTO;
 import com.erenkalkan.stockpulse.model.entity.Stock;
 import com.erenkalkan.stockpulse.repository.StockRepository;
+import com.erenkalkan.stockpulse.service.cache.MarketDataCache;
+import com.erenkalkan.stockpulse.service.upstream.UpstreamProvider;
+import com.erenkalkan.stockpulse.service.upstream.UpstreamScheduler;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,11 +19,17 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientException;
 
-import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Service
@@ -38,51 +49,123 @@ public class StocksService {
   private String polygonKey;
 
   private final StockRepository stockRepository;
-  private static final long CACHE_TTL_MILLIS = 24 * 60 * 60 * 1000; // 1 day
-  private final ConcurrentHashMap<String, CacheEntry> cache = new ConcurrentHashMap<>();
-
-  private static class CacheEntry {
-    final StockDataDTO data;
-    final long timestamp;
-
-    CacheEntry(StockDataDTO data, long timestamp) {
-      this.data = data;
-      this.timestamp = timestamp;
-    }
-  }
+  private final LastTradeTable lastTradeTable;
+  private final MarketDataCache marketDataCache;
+  private final UpstreamScheduler upstreamScheduler;
+
+  @Value("${app.cache.market-data.ttl-ms.stock-profile:86400000}")
+  private long stockProfileTtlMs;
+  @Value("${app.cache.market-data.ttl-ms.stock-details:86400000}")
+  private long stockDetailsTtlMs;
+  @Value("${app.cache.market-data.ttl-ms.stock-financials:86400000}")
+  private long stockFinancialsTtlMs;
+  @Value("${app.cache.market-data.ttl-ms.stock-recommendations:3600000}")
+  private long stockRecommendationsTtlMs;
+  @Value("${app.cache.market-data.ttl-ms.company-name:604800000}")
+  private long companyNameTtlMs;
+
+  @Value("${app.cache.market-data.refresh-after-ms.stock-profile:43200000}")
+  private long stockProfileRefreshAfterMs;
+  @Value("${app.cache.market-data.refresh-after-ms.stock-details:43200000}")
+  private long stockDetailsRefreshAfterMs;
+  @Value("${app.cache.market-data.refresh-after-ms.stock-financials:43200000}")
+  private long stockFinancialsRefreshAfterMs;
+  @Value("${app.cache.market-data.refresh-after-ms.stock-recommendations:1800000}")
+  private long stockRecommendationsRefreshAfterMs;
+
+  @Value("${app.api.stock-page.details-timeout-ms:5000}")
+  private long detailsTimeoutMs;
+  @Value("${app.api.stock-page.section-timeout-ms:3000}")
+  private long sectionTimeoutMs;
+
+  // Bounded, and a saturated pool makes the request thread run the call itself rather than queue it
+  private static final int MAX_UPSTREAM_THREADS = 32;
+  private final ThreadPoolExecutor upstreamExecutor = new ThreadPoolExecutor(0, MAX_UPSTREAM_THREADS,
+          60, TimeUnit.SECONDS, new SynchronousQueue<>(), upstreamThreadFactory(),
+          new ThreadPoolExecutor.CallerRunsPolicy());
 
   public Stock save(Stock stock) {
     return stockRepository.save(stock);
   }
 
+  @PreDestroy
+  public void shutdown() {
+    upstreamExecutor.shutdownNow();
+  }
+
+  // The three upstream calls run concurrently, so the page costs the slowest call rather than their sum.
+  // Ticker details are required; financials and recommendations are left empty if they time out.
   public StockDTO getStock(String symbol) {
+    if (symbol == null || symbol.trim().isEmpty()) {
+      throw new InvalidInputException("Stock symbol cannot be null or empty");
+    }
 
-    StockDataDTO stockDataDTO = fetchStockDataFromPolygonAPI(symbol);
-    StockFinancialsDTO stockFinancialsDTO = fetchStockFinancials(stockDataDTO.getName());
-    StockRecommendationsDTO stockRecommendationsDTO = fetchStockRecommendations(symbol);
+    CompletableFuture<StockRecommendationsDTO> recommendations = CompletableFuture
+            .supplyAsync(() -> marketDataCache.get("stock-recommendations", symbol,
+                    stockRecommendationsRefreshAfterMs, stockRecommendationsTtlMs, () -> fetchStockRecommendations(symbol)), upstreamExecutor)
+            .completeOnTimeout(StockRecommendationsDTO.builder().build(), sectionTimeoutMs, TimeUnit.MILLISECONDS);
+    CompletableFuture<StockDataDTO> data = CompletableFuture
+            .supplyAsync(() -> marketDataCache.get("stock-details", symbol, stockDetailsRefreshAfterMs, stockDetailsTtlMs,
+                    () -> fetchStockDataFromPolygonAPI(symbol), stockData -> stockData.getName() != null), upstreamExecutor)
+            .orTimeout(detailsTimeoutMs, TimeUnit.MILLISECONDS);
+
+    // Company names rarely change, so once known financials can start without waiting for the ticker details
+    String companyName = marketDataCache.getIfPresent("company-name", symbol);
+    CompletableFuture<StockFinancialsDTO> financials = companyName != null
+            ? fetchStockFinancialsAsync(companyName)
+            : data.thenCompose(stockData -> fetchStockFinancialsAsync(stockData.getName()));
+
+    StockDataDTO stockDataDTO = await(data, "Timed out fetching stock data from Polygon API");
+    if (stockDataDTO.getName() != null && !stockDataDTO.getName().isBlank()) {
+      marketDataCache.put("company-name", symbol, stockDataDTO.getName(), companyNameTtlMs);
+    }
 
     return StockDTO.builder()
             .data(stockDataDTO)
-            .financials(stockFinancialsDTO)
-            .recommendations(stockRecommendationsDTO)
+            .financials(await(financials, "Timed out fetching stock financials from Polygon API"))
+            .recommendations(await(recommendations, "Timed out fetching stock recommendations from Finnhub API"))
             .build();
   }
 
+  private CompletableFuture<StockFinancialsDTO> fetchStockFinancialsAsync(String companyName) {
+    return CompletableFuture
+            .supplyAsync(() -> marketDataCache.get("stock-financials", companyName,
+                    stockFinancialsRefreshAfterMs, stockFinancialsTtlMs, () -> fetchStockFinancials(companyName)), upstreamExecutor)
+            .completeOnTimeout(null, sectionTimeoutMs, TimeUnit.MILLISECONDS);
+  }
+
+  // Rethrows what the call itself threw, so callers see the same exceptions as before the fan-out
+  private static <T> T await(CompletableFuture<T> future, String timeoutMessage) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof TimeoutException) {
+        throw new RestClientException(timeoutMessage, cause);
+      }
+      if (cause instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      throw e;
+    }
+  }
+
+  private static ThreadFactory upstreamThreadFactory() {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, "stock-upstream-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
   public StockDataDTO getStockDataForHomePage(String symbol) {
     if (symbol == null || symbol.trim().isEmpty()) {
       throw new InvalidInputException("Stock symbol cannot be null or empty");
     }
 
-    CacheEntry cached = cache.get(symbol);
-    long now = Instant.now().toEpochMilli();
-    if (cached != null && (now - cached.timestamp) < CACHE_TTL_MILLIS) {
-      return cached.data;
-    }
-
-    StockDataDTO data = fetchStockDataFromFinnhubAPI(symbol);
-
-    cache.put(symbol, new CacheEntry(data, now));
-    return data;
+    return marketDataCache.get("stock-profile", symbol, stockProfileRefreshAfterMs, stockProfileTtlMs,
+            () -> fetchStockDataFromFinnhubAPI(symbol), stockData -> stockData.getMarketCap() != null);
   }
 
   public Optional<Stock> findBySymbol(String symbol) {
@@ -96,10 +179,10 @@ public class StocksService {
     String apiUrl = finnhubUrl + "stock/profile2?symbol=" + symbol + "&token=" + finnhubKey;
 
     try {
-      Map<String, Object> result = restClient.get()
+      Map<String, Object> result = upstreamScheduler.execute(UpstreamProvider.FINNHUB, () -> restClient.get()
               .uri(apiUrl)
               .retrieve()
-              .body(Map.class);
+              .body(Map.class));
 
       if (result != null && !result.isEmpty()) {
 
@@ -134,10 +217,10 @@ public class StocksService {
     String apiUrl = polygonUrl + "v3/reference/tickers/" + symbol + "?apiKey=" + polygonKey;
 
     try {
-      Map<String, Object> result = restClient.get()
+      Map<String, Object> result = upstreamScheduler.execute(UpstreamProvider.POLYGON, () -> restClient.get()
               .uri(apiUrl)
               .retrieve()
-              .body(Map.class);
+              .body(Map.class));
 
       if (result != null && !result.isEmpty()) {
 
@@ -178,10 +261,10 @@ public class StocksService {
             "&order=desc&limit=1&sort=filing_date&apiKey=" + polygonKey;
 
     try {
-      Map<String, Object> result = restClient.get()
+      Map<String, Object> result = upstreamScheduler.execute(UpstreamProvider.POLYGON, () -> restClient.get()
               .uri(apiUrl)
               .retrieve()
-              .body(Map.class);
+              .body(Map.class));
 
       if (result != null && !result.isEmpty()) {
 
@@ -246,10 +329,10 @@ public class StocksService {
     String apiUrl = finnhubUrl + "stock/recommendation?symbol=" + symbol + "&token=" + finnhubKey;
 
     try {
-      List<Map<String, Object>> result = restClient.get()
+      List<Map<String, Object>> result = upstreamScheduler.execute(UpstreamProvider.FINNHUB, () -> restClient.get()
               .uri(apiUrl)
               .retrieve()
-              .body(List.class);
+              .body(List.class));
 
       if (result != null && !result.isEmpty()) {
 
@@ -278,29 +361,72 @@ public class StocksService {
     }
   }
 
+  // Served from the last-trade table; Finnhub is only asked once per symbol and trading day
   public Double fetchStockClosePrice(String symbol) {
     if (symbol == null || symbol.trim().isEmpty()) {
       throw new InvalidInputException("Stock symbol cannot be null or empty");
     }
+
+    Double previousClose = lastTradeTable.getPreviousClose(symbol);
+    if (previousClose != null) {
+      return previousClose;
+    }
+
+    StockQuoteDTO quote = fetchQuoteFromFinnhubAPI(symbol);
+    if (quote == null) {
+      return (double) 0;
+    }
+    return lastTradeTable.seed(symbol, quote).getPreviousClose();
+  }
+
+  public StockQuoteDTO getQuote(String symbol) {
+    if (symbol == null || symbol.trim().isEmpty()) {
+      throw new InvalidInputException("Stock symbol cannot be null or empty");
+    }
+
+    if (lastTradeTable.getPreviousClose(symbol) == null) {
+      StockQuoteDTO quote = fetchQuoteFromFinnhubAPI(symbol);
+      if (quote != null) {
+        return lastTradeTable.seed(symbol, quote);
+      }
+    }
+
+    StockQuoteDTO quote = lastTradeTable.getQuote(symbol);
+    return quote != null ? quote : StockQuoteDTO.builder().symbol(symbol).build();
+  }
+
+  private StockQuoteDTO fetchQuoteFromFinnhubAPI(String symbol) {
     String apiUrl = finnhubUrl + "quote?symbol=" + symbol + "&token=" + finnhubKey;
 
     try {
-      Map<String, Double> result = restClient.get()
+      Map<String, Object> result = upstreamScheduler.execute(UpstreamProvider.FINNHUB, () -> restClient.get()
               .uri(apiUrl)
               .retrieve()
-              .body(Map.class);
+              .body(Map.class));
 
       if (result != null && !result.isEmpty()) {
-        return result.get("pc");
+        return StockQuoteDTO.builder()
+                .symbol(symbol)
+                .price(extractNumber(result, "c"))
+                .timestamp((long) extractNumber(result, "t") * 1000) // Finnhub sends seconds
+                .dayHigh(extractNumber(result, "h"))
+                .dayLow(extractNumber(result, "l"))
+                .previousClose(extractNumber(result, "pc"))
+                .build();
       }
       log.warn("Empty or null response from Finnhub API for symbol: {}", symbol);
-      return (double) 0;
+      return null;
     }
     catch (Exception e) {
       throw new RestClientException("Failed to fetch stock close price from Finnhub API", e);
     }
   }
 
+  private double extractNumber(Map<String, Object> result, String fieldName) {
+    Object value = result.get(fieldName);
+    return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+  }
+
   // Helper method to extract long values from nested value objects
   private long extractLongValue(Map<String, Object> statement, String fieldName) {
     Map<String, Object> fieldData = (Map<String, Object>) statement.get(fieldName);
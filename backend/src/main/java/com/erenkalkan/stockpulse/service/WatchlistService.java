@@ -4,6 +4,7 @@ import com.erenkalkan.stockpulse.exception.*;
 import com.erenkalkan.stockpulse.model.entity.User;
 import com.erenkalkan.stockpulse.model.entity.Watchlist;
 import com.erenkalkan.stockpulse.repository.WatchlistRepository;
+import com.erenkalkan.stockpulse.service.alert.AlertIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
@@ -20,6 +21,7 @@ public class WatchlistService {
 
   private final WatchlistRepository watchlistRepository;
   private final UserService userService;
+  private final AlertIndex alertIndex;
 
 
   public Watchlist save(Watchlist watchlist) {
@@ -85,7 +87,10 @@ public class WatchlistService {
       throw new UnauthorizedAccessException("User is not authorized to delete this watchlist");
     }
 
-    return delete(watchlist);
+    // Alerts are removed together with the watchlist, so drop them from the index as well
+    boolean deleted = delete(watchlist);
+    alertIndex.removeByWatchlist(watchlist.getId());
+    return deleted;
   }
 
   public List<Watchlist> getAllWatchlists(Authentication authentication) {
@@ -0,0 +1,298 @@
+package com.erenkalkan.stockpulse.service.alert;
+
+import com.erenkalkan.stockpulse.model.entity.Alert;
+import com.erenkalkan.stockpulse.model.enums.ConditionType;
+import com.erenkalkan.stockpulse.model.enums.TriggerType;
+import com.erenkalkan.stockpulse.repository.AlertRepository;
+import com.erenkalkan.stockpulse.service.StockWebSocketService;
+import com.erenkalkan.stockpulse.service.upstream.RequestPriority;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * In-memory index of untriggered alerts keyed by symbol.
+ * Each symbol keeps an ABOVE and a BELOW ladder sorted by price, so a single
+ * price update resolves every crossed alert without touching the database.
+ * PERCENTAGE_CHANGE_PRICE alerts are converted to absolute levels against the symbol's
+ * previous close, so they share the same comparison path as TO_PRICE alerts. Indexing never calls upstream:
+ * a percentage alert whose previous close is not cached yet sits at its creation target as pending, and the
+ * scheduled pending check fetches the close and re-levels it.
+ * A symbol stays subscribed upstream while it has untriggered alerts, whether or not anyone is viewing it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlertIndex {
+
+  private final AlertRepository alertRepository;
+  private final ReferencePriceCache referencePriceCache;
+  private final StockWebSocketService stockWebSocketService;
+  private final ConcurrentHashMap<String, SymbolAlerts> alertsBySymbol = new ConcurrentHashMap<>();
+  private final Set<String> pendingReferencePrices = ConcurrentHashMap.newKeySet();
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+  @Value("${app.alerts.reference-price.refresh-check-minutes:15}")
+  private long refreshCheckMinutes;
+
+  @Value("${app.alerts.reference-price.pending-check-seconds:30}")
+  private long pendingCheckSeconds;
+
+  @PostConstruct
+  public void load() {
+    try {
+      List<Alert> alerts = alertRepository.findAllByIsTriggeredFalse();
+      alerts.forEach(this::add);
+      log.info("Loaded {} untriggered alerts into the alert index", alerts.size());
+    } catch (Exception e) {
+      log.error("Failed to load untriggered alerts into the alert index", e);
+    }
+    // Fetching reference prices is background work, so it only uses upstream quota that users leave free
+    scheduler.scheduleWithFixedDelay(() -> RequestPriority.PREFETCH.run(this::fillPendingReferencePrices),
+            0, pendingCheckSeconds, TimeUnit.SECONDS);
+    scheduler.scheduleWithFixedDelay(() -> RequestPriority.PREFETCH.run(this::refreshReferencePrices),
+            refreshCheckMinutes, refreshCheckMinutes, TimeUnit.MINUTES);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    scheduler.shutdown();
+  }
+
+  public void add(Alert alert) {
+    if (alert == null || alert.isTriggered() || alert.getStock() == null || alert.getStock().getSymbol() == null) {
+      return;
+    }
+    if (directionOf(alert) == null || alert.getTargetValue() == null) {
+      log.debug("Alert {} has no condition or target value, not indexing it", alert.getId());
+      return;
+    }
+
+    String symbol = alert.getStock().getSymbol();
+    SymbolAlerts symbolAlerts = alertsBySymbol.computeIfAbsent(symbol, key -> new SymbolAlerts());
+    symbolAlerts.add(alert, levelOf(alert));
+    if (isPercentageAlert(alert) && referencePriceCache.getCachedReferencePrice(symbol) == null) {
+      pendingReferencePrices.add(symbol);
+    }
+    updateDemand(symbol, symbolAlerts);
+  }
+
+  public void remove(Alert alert) {
+    if (alert == null || alert.getStock() == null || alert.getStock().getSymbol() == null) {
+      return;
+    }
+
+    String symbol = alert.getStock().getSymbol();
+    SymbolAlerts symbolAlerts = alertsBySymbol.get(symbol);
+    if (symbolAlerts != null) {
+      symbolAlerts.removeIf(indexed -> isSameAlert(indexed, alert));
+      updateDemand(symbol, symbolAlerts);
+    }
+  }
+
+  public void removeByWatchlist(Long watchlistId) {
+    if (watchlistId == null) {
+      return;
+    }
+    alertsBySymbol.forEach((symbol, symbolAlerts) -> {
+      symbolAlerts.removeIf(indexed ->
+              indexed.getWatchlist() != null && watchlistId.equals(indexed.getWatchlist().getId()));
+      updateDemand(symbol, symbolAlerts);
+    });
+  }
+
+  // Returns every alert crossed by the given price and removes them from the index,
+  // so concurrent price updates can never resolve the same alert twice.
+  public List<Alert> match(String symbol, double price) {
+    return match(symbol, price, price);
+  }
+
+  // Resolves a conflated price range in one pass: ABOVE alerts against the high, BELOW alerts against the low
+  public List<Alert> match(String symbol, double low, double high) {
+    SymbolAlerts symbolAlerts = alertsBySymbol.get(symbol);
+    if (symbolAlerts == null) {
+      return List.of();
+    }
+    List<Alert> matched = symbolAlerts.match(low, high);
+    if (!matched.isEmpty()) {
+      updateDemand(symbol, symbolAlerts);
+    }
+    return matched;
+  }
+
+  // Re-levels percentage alerts once their symbol's reference price rolls over to a new trading day
+  public void refreshReferencePrices() {
+    alertsBySymbol.forEach((symbol, symbolAlerts) -> {
+      try {
+        if (!symbolAlerts.hasPercentageAlerts() || referencePriceCache.isCurrent(symbol)) {
+          return;
+        }
+        if (referencePriceCache.getReferencePrice(symbol) != null) {
+          symbolAlerts.reprice(AlertIndex::isPercentageAlert, this::levelOf);
+          log.debug("Re-levelled percentage alerts for {}", symbol);
+        }
+      } catch (Exception e) {
+        log.error("Failed to refresh reference price for {}", symbol, e);
+      }
+    });
+  }
+
+  // Fetches the previous close for symbols whose percentage alerts were indexed without one;
+  // a symbol whose fetch fails stays pending for the next check
+  public void fillPendingReferencePrices() {
+    for (String symbol : List.copyOf(pendingReferencePrices)) {
+      pendingReferencePrices.remove(symbol);
+      SymbolAlerts symbolAlerts = alertsBySymbol.get(symbol);
+      if (symbolAlerts == null || !symbolAlerts.hasPercentageAlerts()) {
+        continue;
+      }
+      try {
+        if (referencePriceCache.getReferencePrice(symbol) != null) {
+          symbolAlerts.reprice(AlertIndex::isPercentageAlert, this::levelOf);
+          log.debug("Levelled pending percentage alerts for {}", symbol);
+          continue;
+        }
+      } catch (Exception e) {
+        log.error("Failed to fetch pending reference price for {}", symbol, e);
+      }
+      pendingReferencePrices.add(symbol);
+    }
+  }
+
+  // The stored condition, or for percentage alerts created without one, the direction implied by the sign
+  public static ConditionType directionOf(Alert alert) {
+    if (alert.getCondition() != null) {
+      return alert.getCondition();
+    }
+    if (isPercentageAlert(alert) && alert.getPercentageValue() != null) {
+      return alert.getPercentageValue() >= 0 ? ConditionType.ABOVE : ConditionType.BELOW;
+    }
+    return null;
+  }
+
+  public int size() {
+    return alertsBySymbol.values().stream().mapToInt(SymbolAlerts::size).sum();
+  }
+
+  // Holds the symbol's upstream stream on its first alert and releases it once the last one is gone
+  private void updateDemand(String symbol, SymbolAlerts symbolAlerts) {
+    synchronized (symbolAlerts) {
+      boolean hasAlerts = symbolAlerts.size() > 0;
+      if (hasAlerts == symbolAlerts.demanded) {
+        return;
+      }
+      symbolAlerts.demanded = hasAlerts;
+      if (hasAlerts) {
+        stockWebSocketService.holdForAlerts(symbol);
+      } else {
+        stockWebSocketService.releaseForAlerts(symbol);
+      }
+    }
+  }
+
+  private double levelOf(Alert alert) {
+    if (isPercentageAlert(alert) && alert.getPercentageValue() != null) {
+      Double referencePrice = referencePriceCache.getCachedReferencePrice(alert.getStock().getSymbol());
+      if (referencePrice != null) {
+        return referencePrice * (1 + alert.getPercentageValue() / 100.0);
+      }
+      // Fall back to the absolute level computed when the alert was created
+      log.debug("No reference price for {}, using the creation target of alert {}", alert.getStock().getSymbol(), alert.getId());
+    }
+    return alert.getTargetValue();
+  }
+
+  private static boolean isPercentageAlert(Alert alert) {
+    return TriggerType.PERCENTAGE_CHANGE_PRICE.equals(alert.getTriggerType());
+  }
+
+  private static boolean isSameAlert(Alert indexed, Alert alert) {
+    if (indexed == alert) {
+      return true;
+    }
+    return indexed.getId() != null && Objects.equals(indexed.getId(), alert.getId());
+  }
+
+  private static class SymbolAlerts {
+
+    // ABOVE alerts fire when price > level, BELOW alerts fire when price < level
+    private volatile PriceLadder above = PriceLadder.EMPTY;
+    private volatile PriceLadder below = PriceLadder.EMPTY;
+    // Guarded by this
+    private boolean demanded;
+
+    synchronized void add(Alert alert, double level) {
+      if (ConditionType.ABOVE.equals(directionOf(alert))) {
+        above = above.insert(level, alert);
+      } else {
+        below = below.insert(level, alert);
+      }
+    }
+
+    synchronized void removeIf(Predicate<Alert> filter) {
+      above = above.removeIf(filter);
+      below = below.removeIf(filter);
+    }
+
+    synchronized void reprice(Predicate<Alert> filter, Function<Alert, Double> levelOf) {
+      List<Alert> repriced = new ArrayList<>(above.filter(filter));
+      repriced.addAll(below.filter(filter));
+      removeIf(filter);
+      for (Alert alert : repriced) {
+        add(alert, levelOf.apply(alert));
+      }
+    }
+
+    boolean hasPercentageAlerts() {
+      return !above.filter(AlertIndex::isPercentageAlert).isEmpty()
+              || !below.filter(AlertIndex::isPercentageAlert).isEmpty();
+    }
+
+    List<Alert> match(double low, double high) {
+      // Lock-free fast path: most ticks cross nothing
+      PriceLadder currentAbove = above;
+      PriceLadder currentBelow = below;
+      boolean aboveCrossed = !currentAbove.isEmpty() && currentAbove.lowest() < high;
+      boolean belowCrossed = !currentBelow.isEmpty() && currentBelow.highest() > low;
+      if (!aboveCrossed && !belowCrossed) {
+        return List.of();
+      }
+
+      synchronized (this) {
+        List<Alert> matched = new ArrayList<>();
+
+        int aboveEnd = above.lowerBound(high);
+        if (aboveEnd > 0) {
+          matched.addAll(above.slice(0, aboveEnd));
+          above = above.keep(aboveEnd, above.size());
+        }
+
+        int belowStart = below.upperBound(low);
+        if (belowStart < below.size()) {
+          matched.addAll(below.slice(belowStart, below.size()));
+          below = below.keep(0, belowStart);
+        }
+
+        return matched;
+      }
+    }
+
+    int size() {
+      return above.size() + below.size();
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package com.erenkalkan.stockpulse.service.alert;
+
+import com.erenkalkan.stockpulse.model.entity.Alert;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write-behind persistence of alert trigger transitions.
+ * Triggers are collected in memory and flushed as one JDBC batch per size/time window.
+ * The onPersisted callback only runs after the batch is committed, so a trigger is never
+ * published for an alert that would be loaded as untriggered again after a restart.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlertTriggerWriter {
+
+  private static final String UPDATE_TRIGGERED_SQL =
+          "UPDATE watchlist_stocks SET is_triggered = true, triggered_at = ?, updated_at = ? WHERE id = ?";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  @Value("${app.alerts.write-behind.batch-size:100}")
+  private int batchSize;
+
+  @Value("${app.alerts.write-behind.flush-interval-ms:200}")
+  private long flushIntervalMs;
+
+  private final ConcurrentLinkedQueue<PendingTrigger> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingCount = new AtomicInteger();
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+  private record PendingTrigger(Alert alert, LocalDateTime triggeredAt, Runnable onPersisted) {
+  }
+
+  @PostConstruct
+  public void start() {
+    scheduler.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flushSafely();
+  }
+
+  public void submit(Alert alert, Runnable onPersisted) {
+    LocalDateTime triggeredAt = alert.getTriggeredAt() != null ? alert.getTriggeredAt() : LocalDateTime.now();
+    pending.add(new PendingTrigger(alert, triggeredAt, onPersisted));
+
+    // A full batch is flushed right away instead of waiting for the next window
+    if (pendingCount.incrementAndGet() >= batchSize && flushScheduled.compareAndSet(false, true)) {
+      try {
+        scheduler.execute(() -> {
+          flushScheduled.set(false);
+          flushSafely();
+        });
+      } catch (Exception e) {
+        flushScheduled.set(false);
+        log.warn("Could not schedule alert trigger flush: {}", e.getMessage());
+      }
+    }
+  }
+
+  public int getPendingCount() {
+    return pendingCount.get();
+  }
+
+  // Synchronized so a size-triggered flush never interleaves with the periodic one
+  synchronized void flush() {
+    while (!pending.isEmpty()) {
+      List<PendingTrigger> batch = new ArrayList<>(batchSize);
+      PendingTrigger trigger;
+      while (batch.size() < batchSize && (trigger = pending.poll()) != null) {
+        batch.add(trigger);
+      }
+      pendingCount.addAndGet(-batch.size());
+
+      try {
+        writeBatch(batch);
+      } catch (Exception e) {
+        // Keep the transitions and retry on the next window; nothing is published until they are stored
+        log.error("Failed to persist {} alert triggers, retrying in {} ms", batch.size(), flushIntervalMs, e);
+        pending.addAll(batch);
+        pendingCount.addAndGet(batch.size());
+        return;
+      }
+
+      for (PendingTrigger persisted : batch) {
+        try {
+          persisted.onPersisted().run();
+        } catch (Exception e) {
+          log.error("Error publishing persisted trigger for alert {}", persisted.alert().getId(), e);
+        }
+      }
+    }
+  }
+
+  private void flushSafely() {
+    try {
+      flush();
+    } catch (Exception e) {
+      log.error("Unexpected error while flushing alert triggers", e);
+    }
+  }
+
+  private void writeBatch(List<PendingTrigger> batch) {
+    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+    List<Object[]> args = new ArrayList<>(batch.size());
+    for (PendingTrigger trigger : batch) {
+      args.add(new Object[]{Timestamp.valueOf(trigger.triggeredAt()), now, trigger.alert().getId()});
+    }
+    jdbcTemplate.batchUpdate(UPDATE_TRIGGERED_SQL, args);
+    log.debug("Persisted {} alert triggers in one batch", batch.size());
+  }
+}
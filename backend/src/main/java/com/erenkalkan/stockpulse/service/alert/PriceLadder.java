@@ -0,0 +1,129 @@
+package com.erenkalkan.stockpulse.service.alert;
+
+import com.erenkalkan.stockpulse.model.entity.Alert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Immutable list of alerts sorted ascending by their price level.
+ * Every mutation returns a new ladder so readers never need a lock.
+ */
+final class PriceLadder {
+
+  static final PriceLadder EMPTY = new PriceLadder(new double[0], new Alert[0]);
+
+  private final double[] levels;
+  private final Alert[] alerts;
+
+  private PriceLadder(double[] levels, Alert[] alerts) {
+    this.levels = levels;
+    this.alerts = alerts;
+  }
+
+  int size() {
+    return levels.length;
+  }
+
+  boolean isEmpty() {
+    return levels.length == 0;
+  }
+
+  double lowest() {
+    return levels[0];
+  }
+
+  double highest() {
+    return levels[levels.length - 1];
+  }
+
+  PriceLadder insert(double level, Alert alert) {
+    int index = upperBound(level);
+    double[] newLevels = new double[levels.length + 1];
+    Alert[] newAlerts = new Alert[alerts.length + 1];
+
+    System.arraycopy(levels, 0, newLevels, 0, index);
+    System.arraycopy(alerts, 0, newAlerts, 0, index);
+    newLevels[index] = level;
+    newAlerts[index] = alert;
+    System.arraycopy(levels, index, newLevels, index + 1, levels.length - index);
+    System.arraycopy(alerts, index, newAlerts, index + 1, alerts.length - index);
+
+    return new PriceLadder(newLevels, newAlerts);
+  }
+
+  PriceLadder removeIf(Predicate<Alert> filter) {
+    double[] newLevels = new double[levels.length];
+    Alert[] newAlerts = new Alert[alerts.length];
+    int size = 0;
+
+    for (int i = 0; i < alerts.length; i++) {
+      if (!filter.test(alerts[i])) {
+        newLevels[size] = levels[i];
+        newAlerts[size] = alerts[i];
+        size++;
+      }
+    }
+
+    if (size == alerts.length) {
+      return this;
+    }
+    return size == 0 ? EMPTY : new PriceLadder(Arrays.copyOf(newLevels, size), Arrays.copyOf(newAlerts, size));
+  }
+
+  List<Alert> filter(Predicate<Alert> filter) {
+    List<Alert> matching = new ArrayList<>();
+    for (Alert alert : alerts) {
+      if (filter.test(alert)) {
+        matching.add(alert);
+      }
+    }
+    return matching;
+  }
+
+  // Index of the first level >= price
+  int lowerBound(double price) {
+    int low = 0;
+    int high = levels.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (levels[mid] < price) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  // Index of the first level > price
+  int upperBound(double price) {
+    int low = 0;
+    int high = levels.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (levels[mid] <= price) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  List<Alert> slice(int from, int to) {
+    return List.of(Arrays.copyOfRange(alerts, from, to));
+  }
+
+  PriceLadder keep(int from, int to) {
+    if (from == 0 && to == levels.length) {
+      return this;
+    }
+    if (from >= to) {
+      return EMPTY;
+    }
+    return new PriceLadder(Arrays.copyOfRange(levels, from, to), Arrays.copyOfRange(alerts, from, to));
+  }
+}
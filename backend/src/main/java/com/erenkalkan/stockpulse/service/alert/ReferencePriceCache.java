@@ -0,0 +1,64 @@
+package com.erenkalkan.stockpulse.service.alert;
+
+import com.erenkalkan.stockpulse.service.StocksService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-symbol previous close used as the reference for PERCENTAGE_CHANGE_PRICE alerts.
+ * Each symbol is fetched at most once per trading day.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferencePriceCache {
+
+  private static final ZoneId MARKET_ZONE = ZoneId.of("America/New_York");
+
+  private final StocksService stocksService;
+  private final ConcurrentHashMap<String, ReferencePrice> referencePrices = new ConcurrentHashMap<>();
+
+  private record ReferencePrice(double price, LocalDate tradingDay) {
+  }
+
+  // Returns the previous close for the current trading day, or null if it could not be fetched
+  public Double getReferencePrice(String symbol) {
+    LocalDate tradingDay = currentTradingDay();
+    ReferencePrice cached = referencePrices.get(symbol);
+    if (cached != null && cached.tradingDay().equals(tradingDay)) {
+      return cached.price();
+    }
+
+    try {
+      Double previousClose = stocksService.fetchStockClosePrice(symbol);
+      if (previousClose == null || previousClose <= 0) {
+        log.warn("No previous close available for {}", symbol);
+        return null;
+      }
+      referencePrices.put(symbol, new ReferencePrice(previousClose, tradingDay));
+      return previousClose;
+    } catch (Exception e) {
+      log.error("Failed to fetch reference price for {}: {}", symbol, e.getMessage());
+      return null;
+    }
+  }
+
+  // Never calls upstream, for callers that must not block on it
+  public Double getCachedReferencePrice(String symbol) {
+    ReferencePrice cached = referencePrices.get(symbol);
+    return cached != null && cached.tradingDay().equals(currentTradingDay()) ? cached.price() : null;
+  }
+
+  public boolean isCurrent(String symbol) {
+    return getCachedReferencePrice(symbol) != null;
+  }
+
+  LocalDate currentTradingDay() {
+    return LocalDate.now(MARKET_ZONE);
+  }
+}
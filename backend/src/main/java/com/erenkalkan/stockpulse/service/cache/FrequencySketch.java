@@ -0,0 +1,64 @@
+package com.erenkalkan.stockpulse.service.cache;
+
+/**
+ * Count-min sketch estimating how often each key was requested recently. Counters saturate at 15 and are
+ * all halved once the sample size is reached, so keys that were popular long ago lose their advantage.
+ * Not thread-safe: guarded by the owning cache.
+ */
+final class FrequencySketch {
+
+  private static final int DEPTH = 4;
+  private static final int MAX_COUNT = 15;
+  private static final int[] SEEDS = {0x97CB3127, 0xC2B2AE35, 0x85EBCA6B, 0x27D4EB2F};
+
+  private final byte[][] counters;
+  private final int mask;
+  private final int sampleSize;
+  private int additions;
+
+  FrequencySketch(long expectedEntries) {
+    int entries = (int) Math.min(Math.max(expectedEntries, 16), 1 << 24);
+    int width = Integer.highestOneBit(entries * 2 - 1);
+    counters = new byte[DEPTH][width];
+    mask = width - 1;
+    sampleSize = 10 * entries;
+  }
+
+  int frequency(Object key) {
+    int hash = key.hashCode();
+    int frequency = MAX_COUNT;
+    for (int row = 0; row < DEPTH; row++) {
+      frequency = Math.min(frequency, counters[row][index(hash, row)]);
+    }
+    return frequency;
+  }
+
+  void increment(Object key) {
+    int hash = key.hashCode();
+    boolean added = false;
+    for (int row = 0; row < DEPTH; row++) {
+      int index = index(hash, row);
+      if (counters[row][index] < MAX_COUNT) {
+        counters[row][index]++;
+        added = true;
+      }
+    }
+    if (added && ++additions >= sampleSize) {
+      reset();
+    }
+  }
+
+  private void reset() {
+    for (byte[] row : counters) {
+      for (int i = 0; i < row.length; i++) {
+        row[i] >>= 1;
+      }
+    }
+    additions /= 2;
+  }
+
+  private int index(int hash, int row) {
+    int h = (hash ^ SEEDS[row]) * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+}
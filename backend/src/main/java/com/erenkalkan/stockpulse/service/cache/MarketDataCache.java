@@ -0,0 +1,459 @@
+package com.erenkalkan.stockpulse.service.cache;
+
+import com.erenkalkan.stockpulse.service.upstream.RequestPriority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Shared cache for upstream market data (Finnhub and Polygon responses), bounded by total weight.
+ * A collection weighs one plus its size and any other value weighs one.
+ *
+ * <p>Eviction is W-TinyLFU: new entries land in a small LRU window, and when the cache is full an entry
+ * leaving the window only displaces the main region's least recently used entry if a frequency sketch
+ * says it is requested more often. A burst of one-off lookups therefore can't flush popular symbols.
+ * Entries found on a second request move to a protected segment that holds most of the main region.
+ *
+ * <p>Concurrent misses for the same endpoint and key are coalesced: one caller loads from upstream and the
+ * others wait for its result, so a trending symbol costs one upstream request rather than one per user.
+ * A waiter raises the loading caller to its own {@link RequestPriority}, so a user request that joins a
+ * background refresh or prefetch isn't held to that work's quota reserve.
+ *
+ * <p>Every entry carries its endpoint's TTL. Null and empty results are never stored, so a rate-limited
+ * upstream answer is retried on the next request instead of being served until it expires.
+ *
+ * <p>Endpoints may also set a refresh-after time shorter than the TTL. An entry past it is still served
+ * immediately while a small background pool reloads it, so only a request after the hard TTL waits on
+ * upstream. Refreshes are capped per minute and call upstream at {@link RequestPriority#REFRESH}, so they
+ * only use quota that user requests leave free.
+ */
+@Slf4j
+@Component
+public class MarketDataCache {
+
+  private static final double WINDOW_RATIO = 0.01;
+  private static final double PROTECTED_RATIO = 0.8;
+  private static final long REFRESH_BUDGET_WINDOW_MS = 60_000;
+
+  private final MeterRegistry meterRegistry;
+  private final long maxWeight;
+  private final long maxWindowWeight;
+  private final long maxProtectedWeight;
+
+  private final ThreadPoolExecutor refreshExecutor;
+  private final int maxRefreshesPerMinute;
+
+  // Guarded by this
+  private long refreshBudgetWindowStart;
+  private int refreshesInWindow;
+  private final Map<String, Node> nodes = new HashMap<>();
+  private final Segment window = new Segment();
+  private final Segment probation = new Segment();
+  private final Segment protectedSegment = new Segment();
+  private final FrequencySketch sketch;
+
+  // Loads currently running, so concurrent misses for one key wait for a single upstream call
+  private final ConcurrentHashMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+  // A load in progress and the priority its upstream calls are made at
+  private record Flight(CompletableFuture<Object> result, RequestPriority.Handle priority) {
+    Flight() {
+      this(new CompletableFuture<>(), RequestPriority.currentHandle());
+    }
+  }
+
+  private static final class Node {
+    final String key;
+    final String endpoint;
+    Object value;
+    long weight;
+    long expiresAt;
+    long refreshAt;
+    Segment segment;
+    Node prev;
+    Node next;
+
+    Node(String key, String endpoint) {
+      this.key = key;
+      this.endpoint = endpoint;
+    }
+  }
+
+  // Doubly linked LRU list: head is the least recently used entry, tail the most recent
+  private static final class Segment {
+    Node head;
+    Node tail;
+    long weight;
+
+    void addLast(Node node) {
+      node.segment = this;
+      node.prev = tail;
+      node.next = null;
+      if (tail == null) {
+        head = node;
+      } else {
+        tail.next = node;
+      }
+      tail = node;
+      weight += node.weight;
+    }
+
+    void remove(Node node) {
+      if (node.prev == null) {
+        head = node.next;
+      } else {
+        node.prev.next = node.next;
+      }
+      if (node.next == null) {
+        tail = node.prev;
+      } else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+      node.segment = null;
+      weight -= node.weight;
+    }
+  }
+
+  public MarketDataCache(MeterRegistry meterRegistry, long maxWeight) {
+    this(meterRegistry, maxWeight, 2, 64, 20);
+  }
+
+  @Autowired
+  public MarketDataCache(MeterRegistry meterRegistry,
+                         @Value("${app.cache.market-data.max-weight:10000}") long maxWeight,
+                         @Value("${app.cache.market-data.refresh.threads:2}") int refreshThreads,
+                         @Value("${app.cache.market-data.refresh.queue-capacity:64}") int refreshQueueCapacity,
+                         @Value("${app.cache.market-data.refresh.max-per-minute:20}") int maxRefreshesPerMinute) {
+    this.meterRegistry = meterRegistry;
+    this.maxWeight = maxWeight;
+    this.maxWindowWeight = Math.max(1, (long) (maxWeight * WINDOW_RATIO));
+    this.maxProtectedWeight = (long) ((maxWeight - maxWindowWeight) * PROTECTED_RATIO);
+    this.sketch = new FrequencySketch(maxWeight);
+    this.maxRefreshesPerMinute = maxRefreshesPerMinute;
+    this.refreshExecutor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(refreshQueueCapacity), refreshThreadFactory());
+
+    Gauge.builder("stockpulse.cache.weight", this, MarketDataCache::weight).register(meterRegistry);
+    Gauge.builder("stockpulse.cache.entries", this, MarketDataCache::size).register(meterRegistry);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    refreshExecutor.shutdownNow();
+  }
+
+  public <T> T get(String endpoint, String key, long ttlMs, Supplier<T> loader) {
+    return get(endpoint, key, 0, ttlMs, loader, value -> true);
+  }
+
+  public <T> T get(String endpoint, String key, long ttlMs, Supplier<T> loader, Predicate<? super T> shouldCache) {
+    return get(endpoint, key, 0, ttlMs, loader, shouldCache);
+  }
+
+  public <T> T get(String endpoint, String key, long refreshAfterMs, long ttlMs, Supplier<T> loader) {
+    return get(endpoint, key, refreshAfterMs, ttlMs, loader, value -> true);
+  }
+
+  // A TTL of zero or less disables caching for that call, though concurrent identical calls still share one load.
+  // Results rejected by shouldCache are returned but not stored, for upstream answers that only look successful.
+  // A refreshAfterMs of zero or less, or not below the TTL, disables background refresh
+  @SuppressWarnings("unchecked")
+  public <T> T get(String endpoint, String key, long refreshAfterMs, long ttlMs, Supplier<T> loader,
+                   Predicate<? super T> shouldCache) {
+    String cacheKey = endpoint + ':' + key;
+    if (ttlMs > 0) {
+      long now = System.currentTimeMillis();
+      Object cached = lookup(cacheKey, now);
+      if (cached != null) {
+        if (refreshAfterMs > 0 && claimRefresh(cacheKey, now)) {
+          record(endpoint, "stale");
+          scheduleRefresh(cacheKey, endpoint, refreshAfterMs, ttlMs, loader, shouldCache);
+        } else {
+          record(endpoint, "hit");
+        }
+        return (T) cached;
+      }
+    }
+
+    Flight flight = new Flight();
+    Flight leader = inFlight.putIfAbsent(cacheKey, flight);
+    if (leader != null) {
+      record(endpoint, "coalesced");
+      leader.priority().raiseTo(RequestPriority.current());
+      return (T) await(leader.result());
+    }
+
+    record(endpoint, "miss");
+    return load(cacheKey, endpoint, refreshAfterMs, ttlMs, loader, shouldCache, flight);
+  }
+
+  private <T> T load(String cacheKey, String endpoint, long refreshAfterMs, long ttlMs, Supplier<T> loader,
+                     Predicate<? super T> shouldCache, Flight flight) {
+    try {
+      T value = loader.get();
+      if (ttlMs > 0 && isCacheable(value) && shouldCache.test(value)) {
+        put(cacheKey, endpoint, value, refreshAfterMs, ttlMs);
+      }
+      flight.result().complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      flight.result().completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(cacheKey, flight);
+    }
+  }
+
+  // The stale entry keeps being served until the reload lands; if the refresh is skipped or fails,
+  // the claim is released so a later request tries again
+  private <T> void scheduleRefresh(String cacheKey, String endpoint, long refreshAfterMs, long ttlMs,
+                                   Supplier<T> loader, Predicate<? super T> shouldCache) {
+    if (!tryAcquireRefreshBudget()) {
+      releaseRefresh(cacheKey);
+      recordRefresh(endpoint, "skipped");
+      return;
+    }
+
+    try {
+      refreshExecutor.execute(() -> RequestPriority.REFRESH.run(() -> {
+        Flight flight = new Flight();
+        if (inFlight.putIfAbsent(cacheKey, flight) != null) {
+          releaseRefresh(cacheKey);
+          return;
+        }
+        try {
+          T value = load(cacheKey, endpoint, refreshAfterMs, ttlMs, loader, shouldCache, flight);
+          if (isCacheable(value) && shouldCache.test(value)) {
+            recordRefresh(endpoint, "success");
+            return;
+          }
+          recordRefresh(endpoint, "failed");
+        } catch (RuntimeException e) {
+          log.warn("Background refresh of {} failed: {}", cacheKey, e.getMessage());
+          recordRefresh(endpoint, "failed");
+        }
+        releaseRefresh(cacheKey);
+      }));
+    } catch (RejectedExecutionException e) {
+      releaseRefresh(cacheKey);
+      recordRefresh(endpoint, "skipped");
+    }
+  }
+
+  // For values that are learned as a by-product of another call rather than loaded on demand
+  @SuppressWarnings("unchecked")
+  public <T> T getIfPresent(String endpoint, String key) {
+    Object cached = lookup(endpoint + ':' + key, System.currentTimeMillis());
+    record(endpoint, cached != null ? "hit" : "miss");
+    return (T) cached;
+  }
+
+  public void put(String endpoint, String key, Object value, long ttlMs) {
+    if (ttlMs > 0 && isCacheable(value)) {
+      put(endpoint + ':' + key, endpoint, value, 0, ttlMs);
+    }
+  }
+
+  public synchronized long weight() {
+    return window.weight + probation.weight + protectedSegment.weight;
+  }
+
+  public synchronized int size() {
+    return nodes.size();
+  }
+
+  private synchronized Object lookup(String key, long now) {
+    sketch.increment(key);
+    Node node = nodes.get(key);
+    if (node == null) {
+      return null;
+    }
+    if (now >= node.expiresAt) {
+      evict(node, "expired");
+      return null;
+    }
+    onHit(node);
+    return node.value;
+  }
+
+  private synchronized boolean claimRefresh(String key, long now) {
+    Node node = nodes.get(key);
+    if (node == null || now < node.refreshAt) {
+      return false;
+    }
+    node.refreshAt = Long.MAX_VALUE;
+    return true;
+  }
+
+  private synchronized void releaseRefresh(String key) {
+    Node node = nodes.get(key);
+    if (node != null && node.refreshAt == Long.MAX_VALUE) {
+      node.refreshAt = 0;
+    }
+  }
+
+  private synchronized boolean tryAcquireRefreshBudget() {
+    long now = System.currentTimeMillis();
+    if (now - refreshBudgetWindowStart >= REFRESH_BUDGET_WINDOW_MS) {
+      refreshBudgetWindowStart = now;
+      refreshesInWindow = 0;
+    }
+    if (refreshesInWindow >= maxRefreshesPerMinute) {
+      return false;
+    }
+    refreshesInWindow++;
+    return true;
+  }
+
+  private synchronized void put(String key, String endpoint, Object value, long refreshAfterMs, long ttlMs) {
+    long weight = weigh(value);
+    if (weight > maxWeight) {
+      return;
+    }
+
+    Node node = nodes.get(key);
+    if (node == null) {
+      node = new Node(key, endpoint);
+      node.weight = weight;
+      nodes.put(key, node);
+      window.addLast(node);
+    } else {
+      Segment segment = node.segment;
+      segment.remove(node);
+      node.weight = weight;
+      segment.addLast(node);
+    }
+    long now = System.currentTimeMillis();
+    node.value = value;
+    node.expiresAt = now + ttlMs;
+    node.refreshAt = refreshAfterMs > 0 && refreshAfterMs < ttlMs ? now + refreshAfterMs : Long.MAX_VALUE;
+    evictIfNeeded();
+  }
+
+  private void onHit(Node node) {
+    Segment segment = node.segment;
+    segment.remove(node);
+    if (segment != probation) {
+      segment.addLast(node);
+      return;
+    }
+
+    protectedSegment.addLast(node);
+    while (protectedSegment.weight > maxProtectedWeight && protectedSegment.head != node) {
+      Node demoted = protectedSegment.head;
+      protectedSegment.remove(demoted);
+      probation.addLast(demoted);
+    }
+  }
+
+  private void evictIfNeeded() {
+    while (window.weight > maxWindowWeight && window.head != null) {
+      Node candidate = window.head;
+      window.remove(candidate);
+      probation.addLast(candidate);
+    }
+
+    while (weight() > maxWeight) {
+      Node victim = firstNonNull(probation.head, protectedSegment.head, window.head);
+      // The newest arrival in probation only stays if it is requested more often than the entry it displaces
+      Node candidate = probation.tail;
+      if (candidate != null && candidate != victim
+              && sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+        victim = candidate;
+      }
+      evict(victim, "size");
+    }
+  }
+
+  private void evict(Node node, String cause) {
+    node.segment.remove(node);
+    nodes.remove(node.key);
+    Counter.builder("stockpulse.cache.evictions")
+            .tag("endpoint", node.endpoint)
+            .tag("cause", cause)
+            .register(meterRegistry)
+            .increment();
+  }
+
+  private void recordRefresh(String endpoint, String result) {
+    Counter.builder("stockpulse.cache.refreshes")
+            .tag("endpoint", endpoint)
+            .tag("result", result)
+            .register(meterRegistry)
+            .increment();
+  }
+
+  private void record(String endpoint, String result) {
+    Counter.builder("stockpulse.cache.requests")
+            .tag("endpoint", endpoint)
+            .tag("result", result)
+            .register(meterRegistry)
+            .increment();
+  }
+
+  // Waiters see the leader's exception itself, just as if they had made the call
+  private static Object await(CompletableFuture<Object> flight) {
+    try {
+      return flight.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw e;
+    }
+  }
+
+  private static ThreadFactory refreshThreadFactory() {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, "market-data-refresh-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  private static Node firstNonNull(Node... candidates) {
+    for (Node candidate : candidates) {
+      if (candidate != null) {
+        return candidate;
+      }
+    }
+    throw new IllegalStateException("Cache is over its weight but holds no entries");
+  }
+
+  private static long weigh(Object value) {
+    return value instanceof Collection<?> collection ? 1 + collection.size() : 1;
+  }
+
+  private static boolean isCacheable(Object value) {
+    if (value == null) {
+      return false;
+    }
+    return !(value instanceof Collection<?> collection) || !collection.isEmpty();
+  }
+}
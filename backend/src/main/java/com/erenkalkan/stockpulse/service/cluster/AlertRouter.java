@@ -0,0 +1,56 @@
+package com.erenkalkan.stockpulse.service.cluster;
+
+import com.erenkalkan.stockpulse.model.dto.AlertTriggeredEvent;
+import com.erenkalkan.stockpulse.service.NotificationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Delivers triggered alerts to the instances holding the user's alert WebSocket sessions. Each instance
+ * consumes only its own alert-deliveries topic, so a trigger never reaches instances the user isn't on.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlertRouter {
+
+  private static final String DELIVERY_TOPIC_PREFIX = "alert-deliveries.";
+
+  private final InstanceIdentity instanceIdentity;
+  private final UserPresenceRegistry userPresenceRegistry;
+  private final NotificationService notificationService;
+  private final KafkaTemplate<String, AlertTriggeredEvent> alertKafkaTemplate;
+
+  public static String deliveryTopic(String instance) {
+    return DELIVERY_TOPIC_PREFIX + instance.replaceAll("[^a-zA-Z0-9._-]", "_");
+  }
+
+  public String getDeliveryTopic() {
+    return deliveryTopic(instanceIdentity.getId());
+  }
+
+  public void route(AlertTriggeredEvent event) {
+    String email = event.getEmail();
+    for (String instance : userPresenceRegistry.getInstances(email)) {
+      if (userPresenceRegistry.isLocal(instance)) {
+        notificationService.sendAlertNotification(event);
+        continue;
+      }
+      try {
+        alertKafkaTemplate.send(deliveryTopic(instance), email, event);
+        log.debug("Routed alert {} for user {} to instance {}", event.getAlertId(), email, instance);
+      } catch (Exception e) {
+        log.error("Failed to route alert {} to instance {}: {}", event.getAlertId(), instance, e.getMessage());
+      }
+    }
+  }
+
+  @KafkaListener(topics = "#{__listener.deliveryTopic}", groupId = "#{__listener.deliveryTopic}",
+          containerFactory = "alertEventListenerContainerFactory")
+  public void deliver(AlertTriggeredEvent event) {
+    notificationService.sendAlertNotification(event);
+  }
+}
@@ -0,0 +1,37 @@
+package com.erenkalkan.stockpulse.service.cluster;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.UUID;
+
+/**
+ * Identifies this backend instance among its replicas. The id names this instance's alert-deliveries topic
+ * and its consumer groups, so it must survive restarts: it defaults to the host name (the pod name on
+ * Kubernetes), and processes sharing a host need distinct app.instance-id values.
+ */
+@Slf4j
+@Getter
+@Component
+public class InstanceIdentity {
+
+  private final String id;
+
+  public InstanceIdentity(@Value("${app.instance-id:}") String configuredId) {
+    this.id = configuredId.isBlank() ? generateId() : configuredId;
+    log.info("Running as instance {}", id);
+  }
+
+  // A random id is only the last resort, since every restart then leaves its topic and groups behind
+  private static String generateId() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (Exception e) {
+      log.warn("Could not resolve the host name, set app.instance-id to a stable value: {}", e.getMessage());
+      return "instance-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+  }
+}
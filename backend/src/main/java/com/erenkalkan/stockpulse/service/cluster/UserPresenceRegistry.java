@@ -0,0 +1,168 @@
+package com.erenkalkan.stockpulse.service.cluster;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Which instances hold alert WebSocket sessions for each user, shared through the compacted user-presence topic.
+ * Records are keyed "instanceId/email" and tombstoned when the user's last local session closes. A key with an
+ * empty email is the instance's heartbeat; instances that stop sending it are ignored until they come back.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserPresenceRegistry implements ConsumerSeekAware {
+
+  public static final String TOPIC = "user-presence";
+  private static final char SEPARATOR = '/';
+  private static final String PRESENT = "1";
+
+  private final InstanceIdentity instanceIdentity;
+  private final KafkaTemplate<String, String> presenceKafkaTemplate;
+
+  // Guarded by this, so a connect and a stale-entry tombstone for the same user are published in order
+  private final Map<String, Integer> localSessions = new HashMap<>();
+  private final Map<String, Set<String>> instancesByUser = new ConcurrentHashMap<>();
+  private final Map<String, Long> lastHeartbeats = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+  @Value("${app.cluster.presence.heartbeat-ms:10000}")
+  private long heartbeatMs;
+
+  @Value("${app.cluster.presence.instance-timeout-ms:30000}")
+  private long instanceTimeoutMs;
+
+  @PostConstruct
+  public void start() {
+    scheduler.scheduleAtFixedRate(this::sendHeartbeat, 0, heartbeatMs, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public synchronized void shutdown() {
+    scheduler.shutdown();
+    localSessions.keySet().forEach(email -> publish(email, null));
+    localSessions.clear();
+    publish("", null);
+  }
+
+  public String getGroupId() {
+    return "presence-" + instanceIdentity.getId();
+  }
+
+  public synchronized void connected(String email) {
+    if (localSessions.merge(email, 1, Integer::sum) == 1) {
+      publish(email, PRESENT);
+    }
+  }
+
+  public synchronized void disconnected(String email) {
+    Integer count = localSessions.get(email);
+    if (count == null) {
+      return;
+    }
+    if (count > 1) {
+      localSessions.put(email, count - 1);
+    } else {
+      localSessions.remove(email);
+      publish(email, null);
+    }
+  }
+
+  /** Live instances holding at least one alert session for the user. */
+  public List<String> getInstances(String email) {
+    Set<String> instances = instancesByUser.get(email);
+    if (instances == null) {
+      return List.of();
+    }
+    return instances.stream().filter(this::isLive).collect(Collectors.toList());
+  }
+
+  public boolean isLocal(String instance) {
+    return instanceIdentity.getId().equals(instance);
+  }
+
+  // Presence is state, not a stream: each start replays the compacted topic to rebuild the full map
+  @Override
+  public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+    callback.seekToBeginning(assignments.keySet());
+  }
+
+  @KafkaListener(topics = TOPIC, groupId = "#{__listener.groupId}")
+  public void onPresence(ConsumerRecord<String, String> record) {
+    String key = record.key();
+    int separator = key == null ? -1 : key.indexOf(SEPARATOR);
+    if (separator < 0) {
+      return;
+    }
+    String instance = key.substring(0, separator);
+    String email = key.substring(separator + 1);
+
+    if (email.isEmpty()) {
+      if (record.value() == null) {
+        lastHeartbeats.remove(instance);
+      } else {
+        lastHeartbeats.put(instance, Long.parseLong(record.value()));
+      }
+      return;
+    }
+
+    if (record.value() == null) {
+      instancesByUser.computeIfPresent(email, (user, instances) -> {
+        instances.remove(instance);
+        return instances.isEmpty() ? null : instances;
+      });
+      return;
+    }
+
+    instancesByUser.computeIfAbsent(email, user -> ConcurrentHashMap.newKeySet()).add(instance);
+    if (isLocal(instance)) {
+      removeIfStale(email);
+    }
+  }
+
+  // An entry left behind by an earlier run of this instance that was not shut down cleanly
+  private synchronized void removeIfStale(String email) {
+    if (!localSessions.containsKey(email)) {
+      publish(email, null);
+    }
+  }
+
+  private boolean isLive(String instance) {
+    if (isLocal(instance)) {
+      return true;
+    }
+    Long lastHeartbeat = lastHeartbeats.get(instance);
+    return lastHeartbeat != null && System.currentTimeMillis() - lastHeartbeat <= instanceTimeoutMs;
+  }
+
+  private void sendHeartbeat() {
+    publish("", String.valueOf(System.currentTimeMillis()));
+  }
+
+  private void publish(String email, String value) {
+    try {
+      presenceKafkaTemplate.send(TOPIC, instanceIdentity.getId() + SEPARATOR + email, value);
+    } catch (Exception e) {
+      log.error("Failed to publish presence for {}: {}", email.isEmpty() ? "heartbeat" : email, e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.erenkalkan.stockpulse.service.email;
+
+import com.erenkalkan.stockpulse.model.dto.AlertTriggeredEvent;
+import com.erenkalkan.stockpulse.service.EmailService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Turns a batch of triggered alerts into one email per user, so a market gap that fires a dozen alerts
+ * costs the user a single email. The digest window is the pause between polls of the alert email listener,
+ * so pending alerts wait in alert-triggers rather than in memory, and a batch is only committed once its
+ * emails are on the durable alert-emails topic.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlertEmailDigest {
+
+  private final EmailService emailService;
+  private final EmailDispatcher emailDispatcher;
+  private final RecipientNameCache recipientNameCache;
+
+  // Throws if an email could not be queued; the container then redelivers the whole batch until it succeeds
+  public void sendAll(List<AlertTriggeredEvent> events) {
+    Map<String, List<AlertTriggeredEvent>> eventsByUser = new LinkedHashMap<>();
+    for (AlertTriggeredEvent event : events) {
+      eventsByUser.computeIfAbsent(event.getEmail(), email -> new ArrayList<>()).add(event);
+    }
+
+    // Every send is started before waiting, so the batch costs one round trip to the brokers
+    List<CompletableFuture<?>> queued = new ArrayList<>(eventsByUser.size());
+    for (List<AlertTriggeredEvent> userEvents : eventsByUser.values()) {
+      CompletableFuture<?> sent = send(userEvents);
+      if (sent != null) {
+        queued.add(sent);
+      }
+    }
+    CompletableFuture.allOf(queued.toArray(new CompletableFuture<?>[0])).join();
+  }
+
+  // An email that can't be built would fail the same way on every redelivery, so it is only logged
+  private CompletableFuture<?> send(List<AlertTriggeredEvent> events) {
+    SimpleMailMessage mail;
+    try {
+      String firstName = recipientNameCache.getFirstName(events.get(0));
+      mail = events.size() == 1
+              ? emailService.buildAlertEmail(events.get(0), firstName)
+              : emailService.buildAlertDigestEmail(events, firstName);
+    } catch (Exception e) {
+      log.error("Failed to build alert email for {} alerts: {}", events.size(), e.getMessage());
+      return null;
+    }
+    return emailDispatcher.enqueue(mail);
+  }
+}
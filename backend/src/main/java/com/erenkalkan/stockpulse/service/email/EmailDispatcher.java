@@ -0,0 +1,146 @@
+package com.erenkalkan.stockpulse.service.email;
+
+import com.erenkalkan.stockpulse.model.dto.EmailMessageDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.RetryListener;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends queued emails off the alert-triggers path. Messages are buffered in the alert-emails topic, and each
+ * listener thread sends a whole poll over one SMTP connection. Retries belong to the container's error handler
+ * (see KafkaConfig): failed messages are redelivered with exponential backoff and end up in alert-emails-dlt
+ * once their attempts are used up.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EmailDispatcher {
+
+  public static final String TOPIC = "alert-emails";
+  public static final String DEAD_LETTER_TOPIC = "alert-emails-dlt";
+
+  private final JavaMailSender sender;
+  private final KafkaTemplate<String, EmailMessageDTO> emailKafkaTemplate;
+  private final MeterRegistry meterRegistry;
+
+  // Keyed by recipient, so one user's emails stay in order; completes once the topic has the message
+  public CompletableFuture<SendResult<String, EmailMessageDTO>> enqueue(SimpleMailMessage mail) {
+    EmailMessageDTO message = EmailMessageDTO.builder()
+            .from(mail.getFrom())
+            .to(mail.getTo() != null && mail.getTo().length > 0 ? mail.getTo()[0] : null)
+            .subject(mail.getSubject())
+            .text(mail.getText())
+            .build();
+    return emailKafkaTemplate.send(TOPIC, message.getTo(), message);
+  }
+
+  // Offsets are committed once the listener returns, so a crash mid-batch re-sends rather than loses emails.
+  // On failure the error handler commits everything before the first failed message and redelivers the rest
+  // after its backoff, so messages behind the failed one that did go out are sent again
+  @KafkaListener(topics = TOPIC, groupId = "email-dispatch-group",
+          containerFactory = "emailBatchListenerContainerFactory")
+  public void dispatch(List<ConsumerRecord<String, EmailMessageDTO>> records) {
+    List<SimpleMailMessage> mails = new ArrayList<>(records.size());
+    List<Integer> positions = new ArrayList<>(records.size());
+    for (int i = 0; i < records.size(); i++) {
+      EmailMessageDTO message = records.get(i).value();
+      // Records that failed deserialization arrive without a value and would fail the same way again
+      if (message == null) {
+        log.error("Skipping unreadable email at offset {}", records.get(i).offset());
+        continue;
+      }
+      mails.add(toMail(message));
+      positions.add(i);
+    }
+
+    List<SimpleMailMessage> failed = send(mails);
+    record("sent", mails.size() - failed.size());
+    if (failed.isEmpty()) {
+      return;
+    }
+
+    int firstFailed = 0;
+    while (mails.get(firstFailed) != failed.get(0)) {
+      firstFailed++;
+    }
+    log.warn("Failed to send {} of {} emails, retrying from the one to {}", failed.size(), mails.size(),
+            failed.get(0).getTo());
+    throw new BatchListenerFailedException("Failed to send " + failed.size() + " of " + mails.size() + " emails",
+            positions.get(firstFailed));
+  }
+
+  // Feeds the retried and dead-lettered counts from the container's error handler
+  public RetryListener retryListener(int maxAttempts) {
+    return new RetryListener() {
+      @Override
+      public void failedDelivery(ConsumerRecord<?, ?> record, Exception ex, int deliveryAttempt) {
+        if (deliveryAttempt < maxAttempts) {
+          record("retried", 1);
+        }
+      }
+
+      @Override
+      public void recovered(ConsumerRecord<?, ?> record, Exception ex) {
+        log.error("Giving up on email to {} after {} attempts", record.key(), maxAttempts);
+        record("dead-lettered", 1);
+      }
+    };
+  }
+
+  // JavaMailSender sends a varargs batch over a single transport connection
+  private List<SimpleMailMessage> send(List<SimpleMailMessage> mails) {
+    try {
+      sender.send(mails.toArray(new SimpleMailMessage[0]));
+      return List.of();
+    } catch (MailSendException e) {
+      Map<Object, Exception> failedMessages = e.getFailedMessages();
+      if (failedMessages.isEmpty()) {
+        return mails;
+      }
+      List<SimpleMailMessage> failed = new ArrayList<>(failedMessages.size());
+      for (SimpleMailMessage mail : mails) {
+        if (failedMessages.containsKey(mail)) {
+          failed.add(mail);
+        }
+      }
+      return failed.isEmpty() ? mails : failed;
+    } catch (Exception e) {
+      log.error("Failed to send email batch: {}", e.getMessage());
+      return mails;
+    }
+  }
+
+  private SimpleMailMessage toMail(EmailMessageDTO message) {
+    SimpleMailMessage mail = new SimpleMailMessage();
+    mail.setFrom(message.getFrom());
+    mail.setTo(message.getTo());
+    mail.setSubject(message.getSubject());
+    mail.setText(message.getText());
+    return mail;
+  }
+
+  private void record(String outcome, int count) {
+    if (count > 0) {
+      Counter.builder("stockpulse.email.dispatch")
+              .tag("outcome", outcome)
+              .register(meterRegistry)
+              .increment(count);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package com.erenkalkan.stockpulse.service.email;
+
+import com.erenkalkan.stockpulse.model.dto.AlertTriggeredEvent;
+import com.erenkalkan.stockpulse.model.entity.User;
+import com.erenkalkan.stockpulse.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * First names for alert emails. Alert events only carry the user's id and email, so the name is looked up
+ * once and reused for every alert that user triggers until the entry expires.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RecipientNameCache {
+
+  private final UserRepository userRepository;
+  // Access ordered, so a full cache evicts the user that received an alert email the longest time ago
+  private final Map<Long, CachedName> namesByUserId = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, CachedName> eldest) {
+      return size() > maxSize;
+    }
+  };
+
+  @Value("${app.email.recipient-names.max-size:10000}")
+  private int maxSize;
+
+  @Value("${app.email.recipient-names.ttl-ms:3600000}")
+  private long ttlMs;
+
+  private record CachedName(String firstName, long loadedAt) {
+  }
+
+  // Falls back to the email address when the user can't be loaded, so the email still goes out
+  public String getFirstName(AlertTriggeredEvent event) {
+    Long userId = event.getUserId();
+    if (userId == null) {
+      return event.getEmail();
+    }
+
+    long now = System.currentTimeMillis();
+    CachedName cached;
+    synchronized (namesByUserId) {
+      cached = namesByUserId.get(userId);
+    }
+    if (cached != null && now - cached.loadedAt() < ttlMs) {
+      return cached.firstName();
+    }
+
+    try {
+      String firstName = userRepository.findById(userId)
+              .map(User::getFirstName)
+              .orElse(null);
+      if (firstName == null) {
+        return event.getEmail();
+      }
+      synchronized (namesByUserId) {
+        namesByUserId.put(userId, new CachedName(firstName, now));
+      }
+      return firstName;
+    } catch (Exception e) {
+      log.error("Failed to load first name of user {}: {}", userId, e.getMessage());
+      return event.getEmail();
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package com.erenkalkan.stockpulse.service.ingest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Consistent hash ring with virtual nodes, used to shard symbols across upstream connections.
+ * Growing the ring from N to N+1 nodes moves roughly 1/(N+1) of the keys.
+ */
+public final class ConsistentHashRing {
+
+  private final int nodes;
+  private final long[] points;
+
+  public ConsistentHashRing(int nodes, int virtualNodes) {
+    if (nodes < 1 || virtualNodes < 1) {
+      throw new IllegalArgumentException("Ring needs at least one node and one virtual node");
+    }
+    this.nodes = nodes;
+
+    // Each point packs the unsigned ring position in the high bits and the owning node in the low bits
+    points = new long[nodes * virtualNodes];
+    int index = 0;
+    for (int node = 0; node < nodes; node++) {
+      for (int replica = 0; replica < virtualNodes; replica++) {
+        long position = mix(node * 0x9E3779B9 + replica) & 0xFFFFFFFFL;
+        points[index++] = (position << 16) | node;
+      }
+    }
+    Arrays.sort(points);
+  }
+
+  public int getNodes() {
+    return nodes;
+  }
+
+  public int nodeFor(String key) {
+    return (int) (points[firstPointAtOrAfter(key)] & 0xFFFF);
+  }
+
+  /**
+   * Assigns keys to nodes, walking clockwise past nodes that already hold {@code capacity} keys
+   * (consistent hashing with bounded loads). Keys are placed in sorted order so the result is stable.
+   * Once every node is full, remaining keys go to their primary node regardless of capacity.
+   */
+  public List<Set<String>> assign(Collection<String> keys, int capacity) {
+    List<Set<String>> shards = new ArrayList<>(nodes);
+    for (int node = 0; node < nodes; node++) {
+      shards.add(new HashSet<>());
+    }
+
+    for (String key : keys.stream().sorted().toList()) {
+      int start = firstPointAtOrAfter(key);
+      int target = -1;
+      for (int step = 0; step < points.length && target < 0; step++) {
+        int node = (int) (points[(start + step) % points.length] & 0xFFFF);
+        if (shards.get(node).size() < capacity) {
+          target = node;
+        }
+      }
+      shards.get(target >= 0 ? target : (int) (points[start] & 0xFFFF)).add(key);
+    }
+    return shards;
+  }
+
+  private int firstPointAtOrAfter(String key) {
+    long position = (mix(key.hashCode()) & 0xFFFFFFFFL) << 16;
+    int index = Arrays.binarySearch(points, position);
+    if (index < 0) {
+      index = -index - 1;
+    }
+    return index == points.length ? 0 : index;
+  }
+
+  // Murmur3 finalizer; String.hashCode alone clusters similar tickers
+  private static int mix(int hash) {
+    hash ^= hash >>> 16;
+    hash *= 0x85EBCA6B;
+    hash ^= hash >>> 13;
+    hash *= 0xC2B2AE35;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+}
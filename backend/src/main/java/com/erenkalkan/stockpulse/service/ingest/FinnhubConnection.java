@@ -0,0 +1,235 @@
+package com.erenkalkan.stockpulse.service.ingest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.WebSocketClient;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One upstream Finnhub WebSocket connection serving a shard of the tracked symbols.
+ * Each connection decodes on its own session thread and runs its own reconnect loop with exponential
+ * backoff; on every (re)connect it replays the symbols currently assigned to it.
+ */
+@Slf4j
+public class FinnhubConnection {
+
+  private final int id;
+  private final String websocketUrl;
+  private final String finnhubApiKey;
+  private final TickRingBuffer tickRingBuffer;
+  private final ScheduledExecutorService scheduler;
+  private final long initialBackoffMs;
+  private final long maxBackoffMs;
+  private final WebSocketClient client = new StandardWebSocketClient();
+
+  // Symbols subscribed on the current session; guarded by upstreamLock together with every send
+  private final Object upstreamLock = new Object();
+  private final Set<String> upstreamSymbols = new HashSet<>();
+  private volatile Set<String> assignedSymbols = Set.of();
+  private volatile WebSocketSession currentSession;
+  private volatile boolean shouldReconnect = true;
+  private int reconnectAttempts;
+
+  public FinnhubConnection(int id, String websocketUrl, String finnhubApiKey, TickRingBuffer tickRingBuffer,
+                           ScheduledExecutorService scheduler, long initialBackoffMs, long maxBackoffMs) {
+    this.id = id;
+    this.websocketUrl = websocketUrl;
+    this.finnhubApiKey = finnhubApiKey;
+    this.tickRingBuffer = tickRingBuffer;
+    this.scheduler = scheduler;
+    this.initialBackoffMs = initialBackoffMs;
+    this.maxBackoffMs = maxBackoffMs;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public Set<String> getAssignedSymbols() {
+    return assignedSymbols;
+  }
+
+  public boolean isOpen() {
+    WebSocketSession session = currentSession;
+    return session != null && session.isOpen();
+  }
+
+  public void assign(Set<String> symbols) {
+    assignedSymbols = Set.copyOf(symbols);
+  }
+
+  public void connect() {
+    String uri = websocketUrl + "?token=" + finnhubApiKey;
+
+    try {
+      log.info("Connection {} connecting to Finnhub WebSocket: {}", id, websocketUrl);
+      client.execute(new FinnhubWebSocketHandler(), uri)
+              .whenComplete((session, ex) -> {
+                if (ex != null) {
+                  log.error("Connection {} failed to connect to Finnhub WebSocket", id, ex);
+                  scheduleReconnect();
+                }
+              });
+    } catch (Exception e) {
+      log.error("Connection {} failed to connect to Finnhub WebSocket", id, e);
+      scheduleReconnect();
+    }
+  }
+
+  public void close() {
+    shouldReconnect = false;
+    WebSocketSession session = currentSession;
+    if (session != null && session.isOpen()) {
+      try {
+        session.close();
+      } catch (Exception e) {
+        log.error("Connection {} error closing WebSocket session", id, e);
+      }
+    }
+  }
+
+  /** Subscribes assigned symbols that the session does not have yet. */
+  public void subscribeMissing() {
+    Set<String> assigned = assignedSymbols;
+    synchronized (upstreamLock) {
+      sendAll("subscribe", assigned.stream().filter(symbol -> !upstreamSymbols.contains(symbol)).toList());
+    }
+  }
+
+  /** Unsubscribes symbols that are no longer assigned to this connection. */
+  public void unsubscribeStale() {
+    Set<String> assigned = assignedSymbols;
+    synchronized (upstreamLock) {
+      sendAll("unsubscribe", upstreamSymbols.stream().filter(symbol -> !assigned.contains(symbol)).toList());
+    }
+  }
+
+  // Frames are written back-to-back under the lock, so a batch is pipelined without interleaved pongs
+  private void sendAll(String type, List<String> symbols) {
+    WebSocketSession session = currentSession;
+    if (symbols.isEmpty() || session == null || !session.isOpen()) {
+      return;
+    }
+
+    try {
+      for (String symbol : symbols) {
+        session.sendMessage(new TextMessage(String.format("{\"type\":\"%s\",\"symbol\":\"%s\"}", type, symbol)));
+        if ("subscribe".equals(type)) {
+          upstreamSymbols.add(symbol);
+        } else {
+          upstreamSymbols.remove(symbol);
+        }
+      }
+      log.info("Connection {} sent {} {} frames ({} active)", id, symbols.size(), type, upstreamSymbols.size());
+    } catch (Exception e) {
+      // The session is broken; afterConnectionClosed reconnects and replays the assigned set
+      log.error("Connection {} error sending {} frames", id, type, e);
+    }
+  }
+
+  private void send(WebSocketSession session, String message) throws IOException {
+    synchronized (upstreamLock) {
+      session.sendMessage(new TextMessage(message));
+    }
+  }
+
+  private synchronized void scheduleReconnect() {
+    if (shouldReconnect) {
+      long delayMs = Math.min(maxBackoffMs, initialBackoffMs << Math.min(reconnectAttempts, 20));
+      reconnectAttempts++;
+      log.info("Connection {} scheduling reconnection attempt {} in {} ms", id, reconnectAttempts, delayMs);
+      try {
+        scheduler.schedule(this::connect, delayMs, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        log.warn("Connection {} reconnection not scheduled, scheduler is shut down", id);
+      }
+    }
+  }
+
+  private synchronized void resetBackoff() {
+    reconnectAttempts = 0;
+  }
+
+  private class FinnhubWebSocketHandler extends TextWebSocketHandler {
+
+    // Frames of one connection are delivered sequentially, so the handler can own a single decoder
+    private final TradeFrameDecoder decoder = new TradeFrameDecoder();
+    private final TradeFrameDecoder.TradeTickHandler tickHandler = this::processTradeData;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+      log.info("Connection {} WebSocket connection established", id);
+      if (!shouldReconnect) {
+        session.close();
+        return;
+      }
+      synchronized (upstreamLock) {
+        currentSession = session;
+        upstreamSymbols.clear();
+      }
+      resetBackoff();
+      subscribeMissing();
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+      try {
+        TradeFrameDecoder.FrameType frameType = decoder.decode(message.getPayload(), tickHandler);
+
+        if (frameType == TradeFrameDecoder.FrameType.PING) {
+          // Respond to ping with pong
+          send(session, "{\"type\":\"pong\"}");
+          tickRingBuffer.drainOverflow();
+        }
+
+      } catch (Exception e) {
+        log.error("Error processing WebSocket message: {}", message.getPayload(), e);
+      }
+    }
+
+    private void processTradeData(TradeTick tick) {
+      try {
+        if (!tick.isValid()) {
+          log.warn("Invalid trade data received: {}", tick);
+          return;
+        }
+
+        tickRingBuffer.publish(tick);
+
+      } catch (Exception e) {
+        log.error("Error processing trade data: {}", tick, e);
+      }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
+      log.error("Connection {} WebSocket transport error", id, exception);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+      log.warn("Connection {} closed with status: {} - {}", id, status.getCode(), status.getReason());
+      synchronized (upstreamLock) {
+        if (currentSession == session) {
+          currentSession = null;
+          upstreamSymbols.clear();
+        }
+      }
+
+      if (shouldReconnect) {
+        scheduleReconnect();
+      }
+    }
+  }
+}
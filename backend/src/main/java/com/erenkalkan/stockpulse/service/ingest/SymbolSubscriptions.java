@@ -0,0 +1,97 @@
+package com.erenkalkan.stockpulse.service.ingest;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reference counts symbols across downstream sessions. A symbol is demanded upstream while at least
+ * one session holds it, so only 0-to-1 and 1-to-0 transitions need to reach Finnhub.
+ * Symbols with untriggered alerts are held as well, so they keep streaming when nobody is viewing them.
+ */
+@Component
+public class SymbolSubscriptions {
+
+  // Holder id used for the alert index; WebSocket session ids never take this form
+  static final String ALERT_HOLDER = "alert-index";
+
+  private final Map<String, Integer> referenceCounts = new HashMap<>();
+  private final Map<String, Set<String>> symbolsBySession = new HashMap<>();
+
+  /** Returns the symbols that went from no sessions to one. */
+  public synchronized List<String> acquire(String sessionId, Collection<String> symbols) {
+    Set<String> held = symbolsBySession.computeIfAbsent(sessionId, id -> new HashSet<>());
+    List<String> added = new ArrayList<>();
+    for (String symbol : symbols) {
+      if (held.add(symbol) && referenceCounts.merge(symbol, 1, Integer::sum) == 1) {
+        added.add(symbol);
+      }
+    }
+    return added;
+  }
+
+  /** Returns the symbols that are no longer held by any session. */
+  public synchronized List<String> release(String sessionId, Collection<String> symbols) {
+    Set<String> held = symbolsBySession.get(sessionId);
+    if (held == null) {
+      return List.of();
+    }
+    List<String> removed = new ArrayList<>();
+    for (String symbol : symbols) {
+      if (held.remove(symbol) && decrement(symbol)) {
+        removed.add(symbol);
+      }
+    }
+    if (held.isEmpty()) {
+      symbolsBySession.remove(sessionId);
+    }
+    return removed;
+  }
+
+  public synchronized List<String> releaseAll(String sessionId) {
+    Set<String> held = symbolsBySession.remove(sessionId);
+    if (held == null) {
+      return List.of();
+    }
+    List<String> removed = new ArrayList<>();
+    for (String symbol : held) {
+      if (decrement(symbol)) {
+        removed.add(symbol);
+      }
+    }
+    return removed;
+  }
+
+  /** Returns true if the symbol was not demanded before. */
+  public boolean holdForAlerts(String symbol) {
+    return !acquire(ALERT_HOLDER, List.of(symbol)).isEmpty();
+  }
+
+  /** Returns true if no session holds the symbol either, so it is no longer demanded. */
+  public boolean releaseForAlerts(String symbol) {
+    return !release(ALERT_HOLDER, List.of(symbol)).isEmpty();
+  }
+
+  public synchronized Set<String> getDemandedSymbols() {
+    return new HashSet<>(referenceCounts.keySet());
+  }
+
+  public synchronized Set<String> getSessionSymbols(String sessionId) {
+    Set<String> held = symbolsBySession.get(sessionId);
+    return held == null ? Set.of() : new HashSet<>(held);
+  }
+
+  public synchronized int getReferenceCount(String symbol) {
+    return referenceCounts.getOrDefault(symbol, 0);
+  }
+
+  private boolean decrement(String symbol) {
+    return referenceCounts.computeIfPresent(symbol, (key, count) -> count > 1 ? count - 1 : null) == null;
+  }
+}
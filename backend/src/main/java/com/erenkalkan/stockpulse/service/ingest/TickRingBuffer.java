@@ -0,0 +1,297 @@
+package com.erenkalkan.stockpulse.service.ingest;
+
+import com.erenkalkan.stockpulse.model.dto.StockPriceDTO;
+import com.erenkalkan.stockpulse.service.kafka.StockPriceProducer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Single-producer, multi-consumer ring buffer between Finnhub frame decoding and the Kafka producer.
+ * Slots are preallocated and filled in place. Every consumer sees every slot but only publishes the
+ * symbols of its hash partition, which spreads Kafka sends across threads and keeps per-symbol order.
+ * Each upstream connection publishes from its own thread; the producer side is serialized by a lock
+ * held only while slots are claimed and filled.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TickRingBuffer {
+
+  public enum WaitStrategyType {
+    BUSY_SPIN,
+    YIELDING,
+    SLEEPING,
+    BLOCKING
+  }
+
+  public enum OverflowPolicy {
+    /** Never stall ingestion; while full, keep only the newest pending tick per symbol. */
+    DROP_OLDEST,
+    /** Stall ingestion until a consumer frees a slot. */
+    BLOCK
+  }
+
+  private final StockPriceProducer stockPriceProducer;
+  private final MeterRegistry meterRegistry;
+
+  @Value("${app.ingest.ring.size:8192}")
+  private int requestedSize;
+
+  @Value("${app.ingest.ring.consumers:2}")
+  private int consumerCount;
+
+  @Value("${app.ingest.ring.wait-strategy:SLEEPING}")
+  private WaitStrategyType waitStrategyType;
+
+  @Value("${app.ingest.ring.overflow-policy:DROP_OLDEST}")
+  private OverflowPolicy overflowPolicy;
+
+  private final AtomicLong cursor = new AtomicLong(-1);
+  private Slot[] slots;
+  private int mask;
+  private AtomicLong[] consumerSequences;
+  private Thread[] consumers;
+  private WaitStrategy waitStrategy;
+  private Counter droppedTicks;
+  private volatile boolean running;
+
+  // Producer state, guarded by producerLock
+  private final ReentrantLock producerLock = new ReentrantLock();
+  private long nextSequence;
+  private long cachedGatingSequence = -1;
+  private final Map<String, Slot> overflow = new LinkedHashMap<>();
+  private volatile int overflowSize;
+
+  @PostConstruct
+  public void start() {
+    int size = 1 << (32 - Integer.numberOfLeadingZeros(Math.max(requestedSize, 2) - 1));
+    slots = new Slot[size];
+    for (int i = 0; i < size; i++) {
+      slots[i] = new Slot();
+    }
+    mask = size - 1;
+    waitStrategy = WaitStrategy.of(waitStrategyType);
+
+    int count = Math.max(consumerCount, 1);
+    consumerSequences = new AtomicLong[count];
+    consumers = new Thread[count];
+    for (int i = 0; i < count; i++) {
+      consumerSequences[i] = new AtomicLong(-1);
+    }
+
+    droppedTicks = Counter.builder("stockpulse.ingest.ring.dropped")
+            .description("Ticks dropped because the ingest ring buffer was full")
+            .register(meterRegistry);
+    Gauge.builder("stockpulse.ingest.ring.occupancy", this, TickRingBuffer::getOccupancy)
+            .description("Published ticks not yet released by every consumer")
+            .register(meterRegistry);
+    Gauge.builder("stockpulse.ingest.ring.overflow", this, TickRingBuffer::getOverflowSize)
+            .description("Symbols with a tick waiting for ring capacity")
+            .register(meterRegistry);
+
+    running = true;
+    for (int i = 0; i < count; i++) {
+      int index = i;
+      consumers[i] = new Thread(() -> consume(index), "tick-ring-consumer-" + i);
+      consumers[i].setDaemon(true);
+      consumers[i].start();
+    }
+    log.info("Tick ring buffer started with {} slots, {} consumers, {} wait strategy and {} overflow policy",
+            size, count, waitStrategyType, overflowPolicy);
+  }
+
+  @PreDestroy
+  public void stop() {
+    running = false;
+    waitStrategy.signalAllWhenBlocking();
+    for (Thread consumer : consumers) {
+      try {
+        consumer.join(TimeUnit.SECONDS.toMillis(5));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  public void publish(TradeTick tick) {
+    producerLock.lock();
+    try {
+      publishLocked(tick);
+    } finally {
+      producerLock.unlock();
+    }
+  }
+
+  /** Moves pending overflow ticks into the ring; returns true once none are left. */
+  public boolean drainOverflow() {
+    producerLock.lock();
+    try {
+      return drainOverflowLocked();
+    } finally {
+      producerLock.unlock();
+    }
+  }
+
+  private void publishLocked(TradeTick tick) {
+    String symbol = tick.getSymbol();
+    if (drainOverflowLocked() && tryPublish(symbol, tick.getPrice(), tick.getTimestamp(), tick.getVolume())) {
+      return;
+    }
+
+    if (overflowPolicy == OverflowPolicy.BLOCK) {
+      while (!tryPublish(symbol, tick.getPrice(), tick.getTimestamp(), tick.getVolume())) {
+        if (!running) {
+          droppedTicks.increment();
+          return;
+        }
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+      }
+      return;
+    }
+
+    Slot pending = overflow.get(symbol);
+    double volume = tick.getVolume();
+    if (pending != null) {
+      // The superseded tick's price is dropped but its volume is carried over
+      volume += pending.volume;
+      droppedTicks.increment();
+    } else if (overflow.size() >= slots.length) {
+      droppedTicks.increment();
+      return;
+    } else {
+      pending = new Slot();
+      overflow.put(symbol, pending);
+      overflowSize = overflow.size();
+    }
+    pending.set(symbol, tick.getPrice(), tick.getTimestamp(), volume, 0);
+  }
+
+  private boolean drainOverflowLocked() {
+    if (overflow.isEmpty()) {
+      return true;
+    }
+    Iterator<Slot> iterator = overflow.values().iterator();
+    while (iterator.hasNext()) {
+      Slot pending = iterator.next();
+      if (!tryPublish(pending.symbol, pending.price, pending.timestamp, pending.volume)) {
+        break;
+      }
+      iterator.remove();
+    }
+    overflowSize = overflow.size();
+    return overflow.isEmpty();
+  }
+
+  public long getOccupancy() {
+    return cursor.get() - minimumConsumerSequence();
+  }
+
+  public int getOverflowSize() {
+    return overflowSize;
+  }
+
+  public int getCapacity() {
+    return slots.length;
+  }
+
+  private boolean tryPublish(String symbol, double price, long timestamp, double volume) {
+    long sequence = nextSequence;
+    long wrapPoint = sequence - slots.length;
+    if (wrapPoint > cachedGatingSequence) {
+      cachedGatingSequence = minimumConsumerSequence();
+      if (wrapPoint > cachedGatingSequence) {
+        return false;
+      }
+    }
+
+    int owner = (symbol.hashCode() & Integer.MAX_VALUE) % consumerSequences.length;
+    slots[(int) sequence & mask].set(symbol, price, timestamp, volume, owner);
+    nextSequence = sequence + 1;
+    cursor.set(sequence);
+    waitStrategy.signalAllWhenBlocking();
+    return true;
+  }
+
+  private long minimumConsumerSequence() {
+    long minimum = Long.MAX_VALUE;
+    for (AtomicLong sequence : consumerSequences) {
+      minimum = Math.min(minimum, sequence.get());
+    }
+    return minimum;
+  }
+
+  // After stop() each consumer keeps going until it has caught up with the cursor
+  private void consume(int index) {
+    AtomicLong sequence = consumerSequences[index];
+    long next = sequence.get() + 1;
+    BooleanSupplier isRunning = () -> running;
+    try {
+      while (true) {
+        long available = waitStrategy.waitFor(next, cursor, isRunning);
+        if (available < next) {
+          // The cursor may have moved between the wait strategy's last read and the running check
+          if (!running && cursor.get() < next) {
+            return;
+          }
+          continue;
+        }
+        for (; next <= available; next++) {
+          Slot slot = slots[(int) next & mask];
+          if (slot.owner == index) {
+            send(slot);
+          }
+        }
+        sequence.set(available);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void send(Slot slot) {
+    try {
+      stockPriceProducer.publishStockPrice(StockPriceDTO.builder()
+              .symbol(slot.symbol)
+              .price(slot.price)
+              .timestamp(slot.timestamp)
+              .volume(slot.volume)
+              .build());
+    } catch (Exception e) {
+      log.error("Error publishing tick for symbol: {}", slot.symbol, e);
+    }
+  }
+
+  private static final class Slot {
+
+    private String symbol;
+    private double price;
+    private long timestamp;
+    private double volume;
+    private int owner;
+
+    private void set(String symbol, double price, long timestamp, double volume, int owner) {
+      this.symbol = symbol;
+      this.price = price;
+      this.timestamp = timestamp;
+      this.volume = volume;
+      this.owner = owner;
+    }
+  }
+}
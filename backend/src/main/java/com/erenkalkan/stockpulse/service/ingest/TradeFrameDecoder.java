@@ -0,0 +1,213 @@
+package com.erenkalkan.stockpulse.service.ingest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Decodes Finnhub WebSocket frames with Jackson's streaming parser instead of a JsonNode tree.
+ * Trades are written into pooled {@link TradeTick}s and symbols are canonicalized from the
+ * parser's char buffer, so steady-state decoding allocates no intermediate trees or Strings.
+ * Not thread-safe: use one decoder per upstream connection.
+ */
+public final class TradeFrameDecoder {
+
+  public enum FrameType {
+    TRADE,
+    PING,
+    OTHER
+  }
+
+  @FunctionalInterface
+  public interface TradeTickHandler {
+    void onTick(TradeTick tick);
+  }
+
+  private static final char[] TRADE = "trade".toCharArray();
+  private static final char[] PING = "ping".toCharArray();
+  private static final int MAX_SYMBOLS = 8192;
+
+  private final JsonFactory jsonFactory;
+  private TradeTick[] pool = new TradeTick[16];
+  private String[] symbols = new String[256];
+  private int symbolCount;
+
+  public TradeFrameDecoder() {
+    this(new JsonFactory());
+  }
+
+  public TradeFrameDecoder(JsonFactory jsonFactory) {
+    this.jsonFactory = jsonFactory;
+    for (int i = 0; i < pool.length; i++) {
+      pool[i] = new TradeTick();
+    }
+  }
+
+  // Ticks are handed to the handler only once the frame type is known, since "type" may follow "data"
+  public FrameType decode(String payload, TradeTickHandler handler) throws IOException {
+    FrameType frameType = FrameType.OTHER;
+    int tickCount = 0;
+
+    try (JsonParser parser = jsonFactory.createParser(payload)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return FrameType.OTHER;
+      }
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.currentName();
+        JsonToken value = parser.nextToken();
+
+        if ("type".equals(field) && value == JsonToken.VALUE_STRING) {
+          frameType = typeOf(parser);
+        } else if ("data".equals(field) && value == JsonToken.START_ARRAY) {
+          tickCount = decodeTrades(parser);
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
+
+    if (frameType == FrameType.TRADE) {
+      for (int i = 0; i < tickCount; i++) {
+        handler.onTick(pool[i]);
+      }
+    }
+    return frameType;
+  }
+
+  private int decodeTrades(JsonParser parser) throws IOException {
+    int count = 0;
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+      if (token != JsonToken.START_OBJECT) {
+        parser.skipChildren();
+        continue;
+      }
+
+      TradeTick tick = acquire(count++);
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.currentName();
+        JsonToken value = parser.nextToken();
+        if (value == JsonToken.VALUE_NULL) {
+          continue;
+        }
+
+        switch (field) {
+          case "s" -> tick.setSymbol(canonicalSymbol(parser));
+          case "p" -> tick.setPrice(parser.getValueAsDouble());
+          case "t" -> tick.setTimestamp(parser.getValueAsLong());
+          case "v" -> tick.setVolume(parser.getValueAsDouble());
+          default -> parser.skipChildren();
+        }
+      }
+    }
+    return count;
+  }
+
+  private TradeTick acquire(int index) {
+    if (index == pool.length) {
+      int oldLength = pool.length;
+      pool = Arrays.copyOf(pool, oldLength * 2);
+      for (int i = oldLength; i < pool.length; i++) {
+        pool[i] = new TradeTick();
+      }
+    }
+    TradeTick tick = pool[index];
+    tick.reset();
+    return tick;
+  }
+
+  private FrameType typeOf(JsonParser parser) throws IOException {
+    char[] text = parser.getTextCharacters();
+    int offset = parser.getTextOffset();
+    int length = parser.getTextLength();
+    if (matches(text, offset, length, TRADE)) {
+      return FrameType.TRADE;
+    }
+    if (matches(text, offset, length, PING)) {
+      return FrameType.PING;
+    }
+    return FrameType.OTHER;
+  }
+
+  // Open-addressing table of symbols seen so far; a String is only allocated the first time a symbol appears
+  private String canonicalSymbol(JsonParser parser) throws IOException {
+    if (!parser.currentToken().isScalarValue()) {
+      parser.skipChildren();
+      return null;
+    }
+    char[] text = parser.getTextCharacters();
+    int offset = parser.getTextOffset();
+    int length = parser.getTextLength();
+
+    int hash = 0;
+    for (int i = 0; i < length; i++) {
+      hash = 31 * hash + text[offset + i];
+    }
+
+    int mask = symbols.length - 1;
+    int slot = mix(hash) & mask;
+    String candidate;
+    while ((candidate = symbols[slot]) != null) {
+      if (candidate.hashCode() == hash && matches(text, offset, length, candidate)) {
+        return candidate;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    String symbol = new String(text, offset, length);
+    if (symbolCount < MAX_SYMBOLS) {
+      symbols[slot] = symbol;
+      if (++symbolCount * 2 > symbols.length) {
+        rehash();
+      }
+    }
+    return symbol;
+  }
+
+  private void rehash() {
+    String[] old = symbols;
+    symbols = new String[old.length * 2];
+    int mask = symbols.length - 1;
+    for (String symbol : old) {
+      if (symbol != null) {
+        int slot = mix(symbol.hashCode()) & mask;
+        while (symbols[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        symbols[slot] = symbol;
+      }
+    }
+  }
+
+  private static int mix(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private static boolean matches(char[] text, int offset, int length, char[] expected) {
+    if (length != expected.length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (text[offset + i] != expected[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean matches(char[] text, int offset, int length, String expected) {
+    if (length != expected.length()) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (text[offset + i] != expected.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,45 @@
+package com.erenkalkan.stockpulse.service.ingest;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Mutable, reusable trade tick filled in place by {@link TradeFrameDecoder}.
+ * Instances are owned by the decoder and are only valid inside the handler callback.
+ */
+@Getter
+@ToString
+public final class TradeTick {
+
+  private String symbol;
+  private double price;
+  private long timestamp;
+  private double volume;
+
+  void reset() {
+    symbol = null;
+    price = 0;
+    timestamp = 0;
+    volume = 0;
+  }
+
+  void setSymbol(String symbol) {
+    this.symbol = symbol;
+  }
+
+  void setPrice(double price) {
+    this.price = price;
+  }
+
+  void setTimestamp(long timestamp) {
+    this.timestamp = timestamp;
+  }
+
+  void setVolume(double volume) {
+    this.volume = volume;
+  }
+
+  public boolean isValid() {
+    return symbol != null && !symbol.isEmpty() && price > 0 && timestamp > 0;
+  }
+}
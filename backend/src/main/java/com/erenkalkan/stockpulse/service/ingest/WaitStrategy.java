@@ -0,0 +1,139 @@
+package com.erenkalkan.stockpulse.service.ingest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * How a {@link TickRingBuffer} consumer waits for the producer cursor to reach a sequence.
+ * Strategies trade CPU for latency, from busy spinning down to parking on a condition.
+ */
+interface WaitStrategy {
+
+  /** Returns the highest published sequence, which is below {@code sequence} only once {@code running} is false. */
+  long waitFor(long sequence, AtomicLong cursor, BooleanSupplier running) throws InterruptedException;
+
+  void signalAllWhenBlocking();
+
+  static WaitStrategy of(TickRingBuffer.WaitStrategyType type) {
+    return switch (type) {
+      case BUSY_SPIN -> new BusySpin();
+      case YIELDING -> new Yielding();
+      case SLEEPING -> new Sleeping();
+      case BLOCKING -> new Blocking();
+    };
+  }
+
+  final class BusySpin implements WaitStrategy {
+
+    @Override
+    public long waitFor(long sequence, AtomicLong cursor, BooleanSupplier running) {
+      long available;
+      while ((available = cursor.get()) < sequence && running.getAsBoolean()) {
+        Thread.onSpinWait();
+      }
+      return available;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+    }
+  }
+
+  final class Yielding implements WaitStrategy {
+
+    private static final int SPIN_TRIES = 100;
+
+    @Override
+    public long waitFor(long sequence, AtomicLong cursor, BooleanSupplier running) {
+      long available;
+      int counter = SPIN_TRIES;
+      while ((available = cursor.get()) < sequence && running.getAsBoolean()) {
+        if (counter > 0) {
+          counter--;
+          Thread.onSpinWait();
+        } else {
+          Thread.yield();
+        }
+      }
+      return available;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+    }
+  }
+
+  final class Sleeping implements WaitStrategy {
+
+    private static final int RETRIES = 200;
+    private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    @Override
+    public long waitFor(long sequence, AtomicLong cursor, BooleanSupplier running) {
+      long available;
+      int counter = RETRIES;
+      while ((available = cursor.get()) < sequence && running.getAsBoolean()) {
+        if (counter > 100) {
+          counter--;
+          Thread.onSpinWait();
+        } else if (counter > 0) {
+          counter--;
+          Thread.yield();
+        } else {
+          LockSupport.parkNanos(SLEEP_NANOS);
+        }
+      }
+      return available;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+    }
+  }
+
+  final class Blocking implements WaitStrategy {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    private final AtomicBoolean signalNeeded = new AtomicBoolean();
+
+    @Override
+    public long waitFor(long sequence, AtomicLong cursor, BooleanSupplier running) throws InterruptedException {
+      long available = cursor.get();
+      if (available >= sequence) {
+        return available;
+      }
+      lock.lock();
+      try {
+        // The timed wait bounds the cost of a signal racing with signalNeeded being set
+        while ((available = cursor.get()) < sequence && running.getAsBoolean()) {
+          signalNeeded.set(true);
+          if (cursor.get() >= sequence) {
+            continue;
+          }
+          published.await(1, TimeUnit.MILLISECONDS);
+        }
+      } finally {
+        lock.unlock();
+      }
+      return available;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+      if (signalNeeded.getAndSet(false)) {
+        lock.lock();
+        try {
+          published.signalAll();
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+  }
+}
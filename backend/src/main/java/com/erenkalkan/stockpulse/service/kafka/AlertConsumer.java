@@ -1,28 +1,47 @@
 package com.erenkalkan.stockpulse.service.kafka;
 
-import com.erenkalkan.stockpulse.model.entity.Alert;
-import com.erenkalkan.stockpulse.service.EmailService;
-import com.erenkalkan.stockpulse.service.NotificationService;
+import com.erenkalkan.stockpulse.model.dto.AlertTriggeredEvent;
+import com.erenkalkan.stockpulse.service.cluster.AlertRouter;
+import com.erenkalkan.stockpulse.service.email.AlertEmailDigest;
 import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
 class AlertConsumer {
 
-  private final NotificationService notificationService;
-  private final EmailService emailService;
+  private final AlertRouter alertRouter;
+  private final AlertEmailDigest alertEmailDigest;
+
+  @KafkaListener(topics = "alert-triggers", groupId = "notification-group",
+          containerFactory = "alertEventListenerContainerFactory")
+  public void consumeAlertTrigger(AlertTriggeredEvent event) {
 
-  @KafkaListener(topics = "alert-triggers", groupId = "notification-group")
-  public void consumeAlertTrigger(Alert alert) {
+    log.info("Consumed triggered alert for user {}: {}", event.getEmail(), event.getSymbol());
 
-    log.info("Consumed triggered alert for user {}: {}", alert.getWatchlist().getUser(), alert.getStock().getSymbol());
+    alertRouter.route(event);
+  }
 
-    notificationService.sendAlertNotification(alert);
-    emailService.sendAlertEmail(alert);
+  // A group of its own, so holding alerts back for the digest window never delays WebSocket notifications.
+  // Emails are queued rather than sent here, so a slow SMTP server can't hold up the alert-triggers partition
+  @KafkaListener(topics = "alert-triggers", groupId = "alert-email-group",
+          containerFactory = "alertEmailListenerContainerFactory")
+  public void consumeForEmail(List<ConsumerRecord<String, AlertTriggeredEvent>> records) {
+    List<AlertTriggeredEvent> events = new ArrayList<>(records.size());
+    for (ConsumerRecord<String, AlertTriggeredEvent> record : records) {
+      // Records that failed deserialization arrive without a value
+      if (record.value() != null) {
+        events.add(record.value());
+      }
+    }
+    alertEmailDigest.sendAll(events);
   }
 }
 
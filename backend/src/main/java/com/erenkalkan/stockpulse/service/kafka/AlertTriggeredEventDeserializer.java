@@ -0,0 +1,56 @@
+package com.erenkalkan.stockpulse.service.kafka;
+
+import com.erenkalkan.stockpulse.model.dto.AlertTriggeredEvent;
+import com.erenkalkan.stockpulse.model.enums.ConditionType;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class AlertTriggeredEventDeserializer implements Deserializer<AlertTriggeredEvent> {
+
+  private static final ConditionType[] CONDITIONS = ConditionType.values();
+
+  @Override
+  public AlertTriggeredEvent deserialize(String topic, byte[] data) {
+    if (data == null) {
+      return null;
+    }
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(data);
+      byte version = buffer.get();
+      if (version != AlertTriggeredEventSerializer.VERSION) {
+        throw new SerializationException("Unsupported alert event version " + version + " on " + topic);
+      }
+
+      long alertId = buffer.getLong();
+      long userId = buffer.getLong();
+      long triggeredAt = buffer.getLong();
+      double targetValue = buffer.getDouble();
+      double triggerPrice = buffer.getDouble();
+      byte condition = buffer.get();
+
+      return AlertTriggeredEvent.builder()
+              .alertId(alertId)
+              .userId(userId < 0 ? null : userId)
+              .triggeredAt(triggeredAt)
+              .targetValue(targetValue)
+              .triggerPrice(triggerPrice)
+              .condition(condition == AlertTriggeredEventSerializer.NO_CONDITION ? null : CONDITIONS[condition])
+              .symbol(readString(buffer))
+              .email(readString(buffer))
+              .build();
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+      throw new SerializationException("Malformed alert event on " + topic, e);
+    }
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = Short.toUnsignedInt(buffer.getShort());
+    String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+    buffer.position(buffer.position() + length);
+    return value;
+  }
+}
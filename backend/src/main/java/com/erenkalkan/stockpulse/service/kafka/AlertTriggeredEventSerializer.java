@@ -0,0 +1,48 @@
+package com.erenkalkan.stockpulse.service.kafka;
+
+import com.erenkalkan.stockpulse.model.dto.AlertTriggeredEvent;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed binary layout for {@link AlertTriggeredEvent}, read back by {@link AlertTriggeredEventDeserializer}:
+ * u8 version, i64 alert id, i64 user id (-1 if unknown), i64 triggered-at millis, f64 target, f64 trigger
+ * price, u8 condition (0 above, 1 below, 255 none), then symbol and email as u16 length + UTF-8 bytes.
+ */
+public class AlertTriggeredEventSerializer implements Serializer<AlertTriggeredEvent> {
+
+  static final byte VERSION = 1;
+  static final int FIXED_BYTES = 1 + 8 + 8 + 8 + 8 + 8 + 1;
+  static final byte NO_CONDITION = (byte) 0xFF;
+
+  @Override
+  public byte[] serialize(String topic, AlertTriggeredEvent event) {
+    if (event == null) {
+      return null;
+    }
+    byte[] symbol = utf8(event.getSymbol());
+    byte[] email = utf8(event.getEmail());
+
+    ByteBuffer buffer = ByteBuffer.allocate(FIXED_BYTES + 2 + symbol.length + 2 + email.length);
+    buffer.put(VERSION);
+    buffer.putLong(event.getAlertId());
+    buffer.putLong(event.getUserId() == null ? -1 : event.getUserId());
+    buffer.putLong(event.getTriggeredAt());
+    buffer.putDouble(event.getTargetValue());
+    buffer.putDouble(event.getTriggerPrice());
+    buffer.put(event.getCondition() == null ? NO_CONDITION : (byte) event.getCondition().ordinal());
+    buffer.putShort((short) symbol.length).put(symbol);
+    buffer.putShort((short) email.length).put(email);
+    return buffer.array();
+  }
+
+  private static byte[] utf8(String value) {
+    byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > 0xFFFF) {
+      throw new IllegalArgumentException("Field too long for alert event: " + bytes.length + " bytes");
+    }
+    return bytes;
+  }
+}
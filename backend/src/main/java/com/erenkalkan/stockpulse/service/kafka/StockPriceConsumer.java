@@ -1,30 +1,62 @@
 package com.erenkalkan.stockpulse.service.kafka;
 
-import com.erenkalkan.stockpulse.service.websocket.AlertTriggerWebSocketHandler;
 import com.erenkalkan.stockpulse.service.websocket.StockPriceWebSocketHandler;
 import com.erenkalkan.stockpulse.model.dto.StockPriceDTO;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.erenkalkan.stockpulse.service.LastTradeTable;
+import com.erenkalkan.stockpulse.service.cluster.InstanceIdentity;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Slf4j
 @RequiredArgsConstructor
 @Service
 public class StockPriceConsumer {
 
   private final StockPriceWebSocketHandler webSocketHandler;
-  private final ObjectMapper objectMapper = new ObjectMapper();
-
-  @KafkaListener(topics = "stock-prices", groupId = "websocket-server-group")
-  public void listen(StockPriceDTO stockPrice) {
-    try {
-      String jsonMessage = objectMapper.writeValueAsString(stockPrice);
-      webSocketHandler.broadcast(jsonMessage);
-    } catch (JsonProcessingException e) {
-      log.error("Error serializing StockPrice object to JSON: {}", e.getMessage());
+  private final TickConflationMetrics conflationMetrics;
+  private final LastTradeTable lastTradeTable;
+  private final InstanceIdentity instanceIdentity;
+
+  private static final String GROUP_ID = "websocket-server-group";
+
+  @Value("${app.kafka.stock-prices.fan-out:true}")
+  private boolean fanOut;
+
+  // Sessions are spread over all replicas, so in fan-out mode every instance consumes in a group of its own
+  // and receives every tick; a shared group would hand each tick to a single replica
+  public String getGroupId() {
+    return fanOut ? GROUP_ID + "-" + instanceIdentity.getId() : GROUP_ID;
+  }
+
+  @KafkaListener(topics = "stock-prices", groupId = "#{__listener.groupId}",
+          containerFactory = "stockPriceFanOutListenerContainerFactory")
+  public void listen(List<StockPriceDTO> stockPrices) {
+    // Every tick goes into the table so its day range and volume stay complete
+    lastTradeTable.recordAll(stockPrices);
+
+    // Browsers only need the latest price, so a burst of ticks for one symbol costs a single fan-out
+    Map<String, StockPriceDTO> latestBySymbol = conflateLatest(stockPrices);
+    conflationMetrics.record("websocket", stockPrices.size(), latestBySymbol.size());
+
+    webSocketHandler.broadcast(latestBySymbol.values());
+  }
+
+  static Map<String, StockPriceDTO> conflateLatest(List<StockPriceDTO> stockPrices) {
+    Map<String, StockPriceDTO> latestBySymbol = new LinkedHashMap<>();
+    for (StockPriceDTO stockPrice : stockPrices) {
+      if (stockPrice == null || stockPrice.getSymbol() == null) {
+        continue;
+      }
+      latestBySymbol.merge(stockPrice.getSymbol(), stockPrice,
+              (current, candidate) -> candidate.getTimestamp() >= current.getTimestamp() ? candidate : current);
     }
+    return latestBySymbol;
   }
 }
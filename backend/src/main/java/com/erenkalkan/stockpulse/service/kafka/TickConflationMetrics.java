@@ -0,0 +1,28 @@
+package com.erenkalkan.stockpulse.service.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts stock-prices ticks received versus ticks left after per-symbol conflation.
+ * The ratio of stockpulse.ticks.received to stockpulse.ticks.processed is the conflation factor.
+ */
+@Component
+@RequiredArgsConstructor
+public class TickConflationMetrics {
+
+  private final MeterRegistry meterRegistry;
+
+  public void record(String consumer, int received, int processed) {
+    Counter.builder("stockpulse.ticks.received")
+            .tag("consumer", consumer)
+            .register(meterRegistry)
+            .increment(received);
+    Counter.builder("stockpulse.ticks.processed")
+            .tag("consumer", consumer)
+            .register(meterRegistry)
+            .increment(processed);
+  }
+}
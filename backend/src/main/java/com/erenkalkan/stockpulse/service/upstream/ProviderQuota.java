@@ -0,0 +1,128 @@
+package com.erenkalkan.stockpulse.service.upstream;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket holding one provider's per-minute quota, with callers queued by priority and then arrival.
+ * Only the head of the queue may take a token, so a waiting interactive call is always served first.
+ * A waiter whose priority is raised while it waits moves up the queue, keeping its place among its new peers.
+ */
+final class ProviderQuota {
+
+  private record Waiter(RequestPriority priority, long sequence) {
+  }
+
+  private final double capacity;
+  private final double nanosPerToken;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+
+  // Guarded by lock
+  private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(
+          Comparator.comparing(Waiter::priority).thenComparingLong(Waiter::sequence));
+  private double tokens;
+  private long refilledAt;
+  private long sequence;
+
+  ProviderQuota(int requestsPerMinute) {
+    this.capacity = requestsPerMinute;
+    this.nanosPerToken = (double) TimeUnit.MINUTES.toNanos(1) / requestsPerMinute;
+    this.tokens = capacity;
+    this.refilledAt = System.nanoTime();
+  }
+
+  // Returns false if no token could be taken within the timeout
+  boolean acquire(RequestPriority priority, long timeoutNanos) throws InterruptedException {
+    return acquire(new RequestPriority.Handle(priority), timeoutNanos);
+  }
+
+  boolean acquire(RequestPriority.Handle handle, long timeoutNanos) throws InterruptedException {
+    long deadline = System.nanoTime() + timeoutNanos;
+
+    lock.lock();
+    try {
+      Waiter waiter = new Waiter(handle.priority(), sequence++);
+      waiters.add(waiter);
+      handle.onRaise(this::signal);
+      try {
+        while (true) {
+          if (handle.priority() != waiter.priority()) {
+            waiters.remove(waiter);
+            waiter = new Waiter(handle.priority(), waiter.sequence());
+            waiters.add(waiter);
+          }
+          double required = Math.min(capacity, 1 + capacity * waiter.priority().reservedShare());
+
+          long now = System.nanoTime();
+          refill(now);
+          if (waiters.peek() == waiter && tokens >= required) {
+            tokens -= 1;
+            return true;
+          }
+
+          long remaining = deadline - now;
+          if (remaining <= 0) {
+            return false;
+          }
+          long untilRefilled = tokens >= required ? remaining : (long) Math.ceil((required - tokens) * nanosPerToken);
+          changed.awaitNanos(Math.min(remaining, Math.max(1, untilRefilled)));
+        }
+      } finally {
+        handle.onRaise(null);
+        waiters.remove(waiter);
+        changed.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // The provider said the quota is used up, so nobody gets a token until the bucket refills
+  void drain() {
+    lock.lock();
+    try {
+      refill(System.nanoTime());
+      tokens = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  double utilization() {
+    lock.lock();
+    try {
+      refill(System.nanoTime());
+      return 1 - tokens / capacity;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int queued() {
+    lock.lock();
+    try {
+      return waiters.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void signal() {
+    lock.lock();
+    try {
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void refill(long now) {
+    tokens = Math.min(capacity, tokens + (now - refilledAt) / nanosPerToken);
+    refilledAt = now;
+  }
+}
@@ -0,0 +1,90 @@
+package com.erenkalkan.stockpulse.service.upstream;
+
+import java.util.function.Supplier;
+
+/**
+ * Priority of outbound upstream calls made by the current thread. Calls are interactive unless the work
+ * runs inside {@link #call} or {@link #run} of another priority.
+ * Lower priorities only take quota while their share of the provider's bucket stays free for those above.
+ *
+ * <p>Work done on behalf of other callers, such as a coalesced cache load, can be raised through its
+ * {@link Handle} so an interactive caller waiting on it isn't held to a background reserve.
+ */
+public enum RequestPriority {
+  INTERACTIVE(0),
+  REFRESH(0.2),
+  PREFETCH(0.5);
+
+  private static final ThreadLocal<Handle> CURRENT = ThreadLocal.withInitial(() -> new Handle(INTERACTIVE));
+
+  private final double reservedShare;
+
+  RequestPriority(double reservedShare) {
+    this.reservedShare = reservedShare;
+  }
+
+  double reservedShare() {
+    return reservedShare;
+  }
+
+  public static RequestPriority current() {
+    return CURRENT.get().priority();
+  }
+
+  public static Handle currentHandle() {
+    return CURRENT.get();
+  }
+
+  public <T> T call(Supplier<T> task) {
+    Handle previous = CURRENT.get();
+    CURRENT.set(new Handle(this));
+    try {
+      return task.get();
+    } finally {
+      CURRENT.set(previous);
+    }
+  }
+
+  public void run(Runnable task) {
+    call(() -> {
+      task.run();
+      return null;
+    });
+  }
+
+  /**
+   * The priority of one {@link #call}, which can only be raised while it runs.
+   */
+  public static final class Handle {
+
+    private volatile RequestPriority priority;
+    private volatile Runnable onRaise;
+
+    Handle(RequestPriority priority) {
+      this.priority = priority;
+    }
+
+    public RequestPriority priority() {
+      return priority;
+    }
+
+    public void raiseTo(RequestPriority other) {
+      Runnable listener;
+      synchronized (this) {
+        if (other.compareTo(priority) >= 0) {
+          return;
+        }
+        priority = other;
+        listener = onRaise;
+      }
+      if (listener != null) {
+        listener.run();
+      }
+    }
+
+    // Lets a quota wake its waiter when the priority is raised; the waiter rereads it afterwards
+    void onRaise(Runnable listener) {
+      this.onRaise = listener;
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package com.erenkalkan.stockpulse.service.upstream;
+
+/**
+ * Upstream market data APIs, each with its own per-minute request quota.
+ */
+public enum UpstreamProvider {
+  FINNHUB,
+  POLYGON
+}
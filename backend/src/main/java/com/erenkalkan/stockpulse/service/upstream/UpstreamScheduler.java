@@ -0,0 +1,100 @@
+package com.erenkalkan.stockpulse.service.upstream;
+
+import com.erenkalkan.stockpulse.exception.UpstreamQuotaExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs outbound Finnhub and Polygon REST calls within each provider's per-minute quota.
+ * Calls wait for a token in priority order (interactive, then cache refresh, then prefetch) for at most
+ * the queue timeout and fail with {@link UpstreamQuotaExceededException} instead of drawing a 429.
+ * A 429 that gets through anyway empties the provider's bucket so every caller backs off until it refills.
+ */
+@Slf4j
+@Component
+public class UpstreamScheduler {
+
+  private final MeterRegistry meterRegistry;
+  private final long queueTimeoutMs;
+  private final Map<UpstreamProvider, ProviderQuota> quotas = new EnumMap<>(UpstreamProvider.class);
+
+  public UpstreamScheduler(MeterRegistry meterRegistry,
+                           @Value("${app.api.finnhub.rate-limit.requests-per-minute:60}") int finnhubRequestsPerMinute,
+                           @Value("${app.api.polygon.rate-limit.requests-per-minute:5}") int polygonRequestsPerMinute,
+                           @Value("${app.api.rate-limit.queue-timeout-ms:2000}") long queueTimeoutMs) {
+    this.meterRegistry = meterRegistry;
+    this.queueTimeoutMs = queueTimeoutMs;
+    quotas.put(UpstreamProvider.FINNHUB, new ProviderQuota(finnhubRequestsPerMinute));
+    quotas.put(UpstreamProvider.POLYGON, new ProviderQuota(polygonRequestsPerMinute));
+
+    quotas.forEach((provider, quota) -> {
+      Gauge.builder("stockpulse.upstream.quota.utilization", quota, ProviderQuota::utilization)
+              .tag("provider", tagOf(provider))
+              .register(meterRegistry);
+      Gauge.builder("stockpulse.upstream.queue.size", quota, ProviderQuota::queued)
+              .tag("provider", tagOf(provider))
+              .register(meterRegistry);
+    });
+  }
+
+  public <T> T execute(UpstreamProvider provider, Supplier<T> call) {
+    ProviderQuota quota = quotas.get(provider);
+    RequestPriority.Handle handle = RequestPriority.currentHandle();
+
+    long start = System.nanoTime();
+    boolean granted;
+    try {
+      granted = quota.acquire(handle, TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UpstreamQuotaExceededException("Interrupted while waiting for " + provider + " quota");
+    }
+    RequestPriority priority = handle.priority();
+    Timer.builder("stockpulse.upstream.queue.wait")
+            .tag("provider", tagOf(provider))
+            .tag("priority", tagOf(priority))
+            .register(meterRegistry)
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+    if (!granted) {
+      record(provider, priority, "timeout");
+      throw new UpstreamQuotaExceededException(provider + " quota exhausted, no request slot within "
+              + queueTimeoutMs + " ms");
+    }
+
+    record(provider, priority, "granted");
+    try {
+      return call.get();
+    } catch (HttpClientErrorException.TooManyRequests e) {
+      log.warn("{} rejected a request with 429, pausing calls until its quota refills", provider);
+      quota.drain();
+      record(provider, priority, "throttled");
+      throw e;
+    }
+  }
+
+  private void record(UpstreamProvider provider, RequestPriority priority, String result) {
+    Counter.builder("stockpulse.upstream.requests")
+            .tag("provider", tagOf(provider))
+            .tag("priority", tagOf(priority))
+            .tag("result", result)
+            .register(meterRegistry)
+            .increment();
+  }
+
+  private static String tagOf(Enum<?> value) {
+    return value.name().toLowerCase(Locale.ROOT);
+  }
+}
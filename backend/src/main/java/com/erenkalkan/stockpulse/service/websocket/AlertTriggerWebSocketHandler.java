@@ -2,6 +2,7 @@ package com.erenkalkan.stockpulse.service.websocket;
 
 import com.erenkalkan.stockpulse.model.entity.User;
 import com.erenkalkan.stockpulse.service.JwtService;
+import com.erenkalkan.stockpulse.service.cluster.UserPresenceRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
@@ -9,38 +10,57 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.io.IOException;
-import java.util.*;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @RequiredArgsConstructor
 @Service
 public class AlertTriggerWebSocketHandler extends TextWebSocketHandler {
 
-  private final Set<WebSocketSession> sessions = Collections.synchronizedSet(new HashSet<>());
+  private static final int SEND_TIME_LIMIT_MS = 5000;
+  private static final int BUFFER_SIZE_LIMIT = 64 * 1024;
+
+  // email -> session id -> session, so an alert only touches the sessions of its user
+  private final Map<String, Map<String, WebSocketSession>> sessionsByEmail = new ConcurrentHashMap<>();
   private final JwtService jwtService;
+  private final UserPresenceRegistry userPresenceRegistry;
 
 
   @Override
   public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-    sessions.add(session);
-
     String email = getEmailFromJwtCookie(session);
-    if (email != null) {
-      session.getAttributes().put("email", email);
-      log.info("New WebSocket connection established for user {}: {}", email, session.getId());
-    } else {
+    if (email == null) {
       log.warn("WebSocket connection established without valid JWT: {}", session.getId());
       session.close(CloseStatus.NOT_ACCEPTABLE.withReason("Authentication required"));
       return;
     }
+
+    session.getAttributes().put("email", email);
+    // The decorator serializes concurrent sends to one session and bounds how long a slow client can hold them
+    WebSocketSession concurrentSession =
+            new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, BUFFER_SIZE_LIMIT);
+    // Adding inside compute keeps a concurrent removal from dropping the map this session is added to
+    sessionsByEmail.compute(email, (key, sessions) -> {
+      Map<String, WebSocketSession> updated = sessions != null ? sessions : new ConcurrentHashMap<>();
+      updated.put(session.getId(), concurrentSession);
+      return updated;
+    });
+    userPresenceRegistry.connected(email);
+    log.info("New WebSocket connection established for user {}: {}", email, session.getId());
   }
 
   @Override
   public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-    sessions.remove(session);
+    String email = (String) session.getAttributes().get("email");
+    if (email != null) {
+      removeSession(email, session.getId());
+    }
     log.info("WebSocket connection closed: {}", session.getId());
   }
 
@@ -50,39 +70,55 @@ public class AlertTriggerWebSocketHandler extends TextWebSocketHandler {
       return;
     }
 
-    String email = user.getUsername();
+    broadcast(user.getUsername(), message);
+  }
+
+  public void broadcast(String email, String message) {
     if (email == null) {
       log.warn("Cannot broadcast message: username is null");
       return;
     }
 
-    List<WebSocketSession> sessionsToRemove = new ArrayList<>();
-
-    synchronized (sessions) {
-      for (WebSocketSession session : sessions) {
-        try {
-          if (session.isOpen()) {
-            String sessionUsername = (String) session.getAttributes().get("email");
+    Map<String, WebSocketSession> userSessions = sessionsByEmail.get(email);
+    if (userSessions == null) {
+      return;
+    }
 
-            if (email.equals(sessionUsername)) {
-              session.sendMessage(new TextMessage(message));
-              log.debug("Alert message sent to user {} via session {}", email, session.getId());
-            }
-          } else {
-            sessionsToRemove.add(session);
-          }
-        } catch (IOException e) {
-          log.error("Failed to send message to session {}: {}", session.getId(), e.getMessage());
-          sessionsToRemove.add(session);
-        } catch (Exception e) {
-          log.error("Unexpected error while broadcasting to session {}: {}", session.getId(), e.getMessage());
+    TextMessage textMessage = new TextMessage(message);
+    int removed = 0;
+    for (WebSocketSession session : userSessions.values()) {
+      try {
+        if (session.isOpen()) {
+          session.sendMessage(textMessage);
+          log.debug("Alert message sent to user {} via session {}", email, session.getId());
+          continue;
         }
+      } catch (IOException e) {
+        log.error("Failed to send message to session {}: {}", session.getId(), e.getMessage());
+      } catch (Exception e) {
+        log.error("Unexpected error while broadcasting to session {}: {}", session.getId(), e.getMessage());
+        continue;
       }
-      sessions.removeAll(sessionsToRemove);
+      if (removeSession(email, session.getId())) {
+        removed++;
+      }
+    }
+    if (removed > 0) {
+      log.info("Removed {} closed/failed sessions during broadcast", removed);
     }
-    if (sessionsToRemove.size() > 0) {
-      log.info("Removed {} closed/failed sessions during broadcast", sessionsToRemove.size());
+  }
+
+  // Returns true if this call removed the session, so presence is released exactly once
+  private boolean removeSession(String email, String sessionId) {
+    boolean[] removed = new boolean[1];
+    sessionsByEmail.computeIfPresent(email, (key, sessions) -> {
+      removed[0] = sessions.remove(sessionId) != null;
+      return sessions.isEmpty() ? null : sessions;
+    });
+    if (removed[0]) {
+      userPresenceRegistry.disconnected(email);
     }
+    return removed[0];
   }
 
   private String getEmailFromJwtCookie(WebSocketSession session) {
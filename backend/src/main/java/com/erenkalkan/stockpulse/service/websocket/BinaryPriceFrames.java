@@ -0,0 +1,84 @@
+package com.erenkalkan.stockpulse.service.websocket;
+
+import com.erenkalkan.stockpulse.model.dto.StockPriceDTO;
+import org.springframework.web.socket.BinaryMessage;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encoding of the opt-in {@value #SUBPROTOCOL} live-prices subprotocol. All fields are big-endian:
+ * <pre>
+ * frame  = u8 type (1 = prices) | u16 record count | i64 base timestamp (epoch ms) | records
+ * record = u16 symbol id | i64 price * 1e6 | i32 timestamp - base (ms)
+ * </pre>
+ * Symbol ids are per session and announced in the JSON {@code subscribed} reply.
+ */
+final class BinaryPriceFrames {
+
+  static final String SUBPROTOCOL = "stockpulse.prices.v1";
+  static final byte PRICES = 1;
+  static final long PRICE_SCALE = 1_000_000L;
+  static final int HEADER_BYTES = 11;
+  static final int RECORD_BYTES = 14;
+
+  private static final int MAX_SYMBOL_ID = 0xFFFF;
+
+  private BinaryPriceFrames() {
+  }
+
+  /** Session-local symbol ids, assigned on first subscribe and never reused within the session. */
+  static final class SymbolIds {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    /** Returns the symbol's id, or -1 once the session has used up the u16 id space. */
+    synchronized int assign(String symbol) {
+      Integer id = ids.get(symbol);
+      if (id == null) {
+        if (ids.size() >= MAX_SYMBOL_ID) {
+          return -1;
+        }
+        id = ids.size() + 1;
+        ids.put(symbol, id);
+      }
+      return id;
+    }
+
+    synchronized int get(String symbol) {
+      return ids.getOrDefault(symbol, -1);
+    }
+  }
+
+  static BinaryMessage encode(List<StockPriceDTO> prices, SymbolIds symbolIds) {
+    int count = Math.min(prices.size(), 0xFFFF);
+    long base = Long.MAX_VALUE;
+    for (int i = 0; i < count; i++) {
+      base = Math.min(base, prices.get(i).getTimestamp());
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + count * RECORD_BYTES);
+    buffer.put(PRICES);
+    int countPosition = buffer.position();
+    buffer.putShort((short) 0);
+    buffer.putLong(count == 0 ? 0 : base);
+
+    int written = 0;
+    for (int i = 0; i < count; i++) {
+      StockPriceDTO price = prices.get(i);
+      int id = symbolIds.get(price.getSymbol());
+      if (id < 0) {
+        continue;
+      }
+      buffer.putShort((short) id);
+      buffer.putLong(Math.round(price.getPrice() * PRICE_SCALE));
+      buffer.putInt((int) Math.min(Integer.MAX_VALUE, price.getTimestamp() - base));
+      written++;
+    }
+    buffer.putShort(countPosition, (short) written);
+    buffer.flip();
+    return new BinaryMessage(buffer);
+  }
+}
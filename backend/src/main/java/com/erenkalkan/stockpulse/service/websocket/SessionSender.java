@@ -0,0 +1,235 @@
+package com.erenkalkan.stockpulse.service.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Bounded outbound queue and serial writer for one live-prices session. Callers only enqueue; frames are
+ * written on the pool's writer threads, one drain at a time per session. Price frames are subject to
+ * the overflow policy, control replies (subscribed, pong, errors) always queue. Closing the socket also
+ * happens on the writer, so it never blocks a caller or overlaps a write.
+ */
+@Slf4j
+public final class SessionSender {
+
+  private static final int MAX_FRAMES_PER_DRAIN = 64;
+
+  private final WebSocketSession session;
+  private final SessionSenderPool pool;
+  private final int capacity;
+  private final SessionSenderPool.OverflowPolicy overflowPolicy;
+
+  // Guarded by this
+  private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+  private final Map<String, Pending> latestBySymbol = new HashMap<>();
+
+  private final AtomicBoolean draining = new AtomicBoolean();
+  private final AtomicBoolean socketClosed = new AtomicBoolean();
+  private volatile boolean closed;
+  private volatile CloseStatus closeStatus;
+
+  SessionSender(WebSocketSession session, SessionSenderPool pool, int capacity,
+                SessionSenderPool.OverflowPolicy overflowPolicy) {
+    this.session = session;
+    this.pool = pool;
+    this.capacity = Math.max(capacity, 1);
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  public String getSessionId() {
+    return session.getId();
+  }
+
+  public boolean isOpen() {
+    return !closed && session.isOpen();
+  }
+
+  public void send(WebSocketMessage<?> message) {
+    enqueue(null, message);
+  }
+
+  public void send(String symbol, WebSocketMessage<?> frame) {
+    enqueue(symbol, frame);
+  }
+
+  // The frame is built under the queue lock, so it can't be older than a price frame queued before it
+  public void sendSnapshot(Supplier<WebSocketMessage<?>> snapshot) {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      WebSocketMessage<?> message = snapshot.get();
+      if (message == null) {
+        return;
+      }
+      queue.add(new Pending(null, message, System.nanoTime()));
+    }
+    scheduleDrain();
+  }
+
+  public synchronized int getQueueDepth() {
+    return queue.size();
+  }
+
+  public synchronized long getLagMillis() {
+    Pending oldest = queue.peek();
+    return oldest == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.enqueuedNanos);
+  }
+
+  public void close() {
+    synchronized (this) {
+      closed = true;
+      queue.clear();
+      latestBySymbol.clear();
+    }
+    pool.close(this);
+  }
+
+  private void enqueue(String symbol, WebSocketMessage<?> message) {
+    boolean overflowed = false;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      if (symbol != null && queue.size() >= capacity) {
+        if (overflowPolicy == SessionSenderPool.OverflowPolicy.DISCONNECT) {
+          overflowed = true;
+        } else if (!makeRoom(symbol, message)) {
+          return;
+        }
+      }
+      if (!overflowed) {
+        Pending pending = new Pending(symbol, message, System.nanoTime());
+        queue.add(pending);
+        if (symbol != null) {
+          latestBySymbol.put(symbol, pending);
+        }
+      }
+    }
+
+    if (overflowed) {
+      pool.recordDisconnected(this);
+      disconnect(CloseStatus.SESSION_NOT_RELIABLE);
+      return;
+    }
+    scheduleDrain();
+  }
+
+  // Returns true when the new frame should still be queued
+  private boolean makeRoom(String symbol, WebSocketMessage<?> message) {
+    if (overflowPolicy == SessionSenderPool.OverflowPolicy.DROP) {
+      pool.recordDropped();
+      return false;
+    }
+
+    Pending queued = latestBySymbol.get(symbol);
+    if (queued != null) {
+      queued.message = message;
+      pool.recordConflated();
+      return false;
+    }
+    pool.recordDropped();
+    return evictOldestPrice();
+  }
+
+  private boolean evictOldestPrice() {
+    Iterator<Pending> iterator = queue.iterator();
+    while (iterator.hasNext()) {
+      Pending pending = iterator.next();
+      if (pending.symbol != null) {
+        iterator.remove();
+        latestBySymbol.remove(pending.symbol, pending);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void scheduleDrain() {
+    if (draining.compareAndSet(false, true)) {
+      try {
+        pool.writer().execute(this::drain);
+      } catch (Exception e) {
+        draining.set(false);
+        log.error("Error scheduling writer for session {}", session.getId(), e);
+      }
+    }
+  }
+
+  // Writes a bounded batch, then yields the writer thread so one busy session cannot starve the others
+  private void drain() {
+    for (int written = 0; written < MAX_FRAMES_PER_DRAIN; written++) {
+      Pending next;
+      synchronized (this) {
+        next = closed ? null : queue.poll();
+        if (next == null) {
+          draining.set(false);
+        } else if (next.symbol != null) {
+          latestBySymbol.remove(next.symbol, next);
+        }
+      }
+      if (next == null) {
+        // Outside the lock, since a close can block for the send timeout
+        if (closed) {
+          closeSocket();
+        }
+        return;
+      }
+
+      try {
+        session.sendMessage(next.message);
+        pool.recordSent(next.enqueuedNanos);
+      } catch (Exception e) {
+        log.error("Error sending message to session {}: {}", session.getId(), e.getMessage());
+        draining.set(false);
+        disconnect(CloseStatus.SERVER_ERROR);
+        return;
+      }
+    }
+
+    draining.set(false);
+    scheduleDrain();
+  }
+
+  // Marks the sender closed right away; the socket itself is closed by the next drain on the writer pool
+  private void disconnect(CloseStatus status) {
+    closeStatus = status;
+    close();
+    scheduleDrain();
+  }
+
+  private void closeSocket() {
+    CloseStatus status = closeStatus;
+    if (status == null || !socketClosed.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      session.close(status);
+    } catch (Exception e) {
+      log.debug("Error closing session {}: {}", session.getId(), e.getMessage());
+    }
+  }
+
+  private static final class Pending {
+
+    private final String symbol;
+    private WebSocketMessage<?> message;
+    private final long enqueuedNanos;
+
+    private Pending(String symbol, WebSocketMessage<?> message, long enqueuedNanos) {
+      this.symbol = symbol;
+      this.message = message;
+      this.enqueuedNanos = enqueuedNanos;
+    }
+  }
+}
@@ -0,0 +1,176 @@
+package com.erenkalkan.stockpulse.service.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the per-session {@link SessionSender}s for live prices and owns the writer threads they drain on,
+ * so a slow browser only ever delays its own queue. Every session's lag and queue depth are sampled at a
+ * fixed interval into distribution summaries, so their spread across sessions is visible without a meter
+ * per session. Frame send lag goes into a shared timer and the worst current session into gauges.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SessionSenderPool {
+
+  public enum OverflowPolicy {
+    /** Replace the queued frame of the same symbol, evicting the oldest price frame if there is none. */
+    CONFLATE,
+    /** Drop the new frame. */
+    DROP,
+    /** Close the session so the client reconnects and starts fresh. */
+    DISCONNECT
+  }
+
+  private final MeterRegistry meterRegistry;
+
+  @Value("${app.websocket.prices.queue-capacity:256}")
+  private int queueCapacity;
+
+  @Value("${app.websocket.prices.overflow-policy:CONFLATE}")
+  private OverflowPolicy overflowPolicy;
+
+  @Value("${app.websocket.prices.writer-threads:4}")
+  private int writerThreads;
+
+  @Value("${app.websocket.prices.sample-interval-ms:1000}")
+  private long sampleIntervalMs;
+
+  private final Set<SessionSender> senders = ConcurrentHashMap.newKeySet();
+  private ExecutorService executorService;
+  private ScheduledExecutorService sampler;
+  private Executor writer;
+  private Timer sendLag;
+  private DistributionSummary sessionLag;
+  private DistributionSummary sessionDepth;
+  private Counter conflated;
+  private Counter dropped;
+  private Counter disconnected;
+
+  @PostConstruct
+  public void start() {
+    AtomicInteger threadCount = new AtomicInteger();
+    executorService = Executors.newFixedThreadPool(Math.max(writerThreads, 1), runnable -> {
+      Thread thread = new Thread(runnable, "price-session-writer-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    start(executorService);
+
+    sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "price-session-sampler");
+      thread.setDaemon(true);
+      return thread;
+    });
+    sampler.scheduleAtFixedRate(this::sampleSessions, sampleIntervalMs, sampleIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  void start(Executor writer) {
+    this.writer = writer;
+    sendLag = Timer.builder("stockpulse.websocket.prices.send.lag")
+            .description("Time a frame spent in a session's outbound queue")
+            .register(meterRegistry);
+    conflated = overflowCounter("conflated");
+    dropped = overflowCounter("dropped");
+    disconnected = overflowCounter("disconnected");
+    sessionLag = DistributionSummary.builder("stockpulse.websocket.prices.session.lag")
+            .description("Age in milliseconds of each session's oldest queued frame, sampled per session")
+            .baseUnit("milliseconds")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry);
+    sessionDepth = DistributionSummary.builder("stockpulse.websocket.prices.session.depth")
+            .description("Each session's outbound queue depth, sampled per session")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry);
+    Gauge.builder("stockpulse.websocket.prices.queue.max-lag", this, SessionSenderPool::getMaxLagMillis)
+            .description("Age in milliseconds of the oldest queued frame across sessions")
+            .register(meterRegistry);
+    Gauge.builder("stockpulse.websocket.prices.queue.max-depth", this, SessionSenderPool::getMaxQueueDepth)
+            .description("Deepest outbound queue across sessions")
+            .register(meterRegistry);
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (sampler != null) {
+      sampler.shutdownNow();
+    }
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
+  }
+
+  public SessionSender open(WebSocketSession session) {
+    SessionSender sender = new SessionSender(session, this, queueCapacity, overflowPolicy);
+    senders.add(sender);
+    return sender;
+  }
+
+  public void close(SessionSender sender) {
+    senders.remove(sender);
+  }
+
+  public long getMaxLagMillis() {
+    return senders.stream().mapToLong(SessionSender::getLagMillis).max().orElse(0);
+  }
+
+  public int getMaxQueueDepth() {
+    return senders.stream().mapToInt(SessionSender::getQueueDepth).max().orElse(0);
+  }
+
+  void sampleSessions() {
+    for (SessionSender sender : senders) {
+      sessionLag.record(sender.getLagMillis());
+      sessionDepth.record(sender.getQueueDepth());
+    }
+  }
+
+  Executor writer() {
+    return writer;
+  }
+
+  void recordSent(long enqueuedNanos) {
+    sendLag.record(System.nanoTime() - enqueuedNanos, TimeUnit.NANOSECONDS);
+  }
+
+  void recordConflated() {
+    conflated.increment();
+  }
+
+  void recordDropped() {
+    dropped.increment();
+  }
+
+  void recordDisconnected(SessionSender sender) {
+    disconnected.increment();
+    log.warn("Disconnecting slow session {} with {} queued frames and {} ms lag",
+            sender.getSessionId(), sender.getQueueDepth(), sender.getLagMillis());
+  }
+
+  private Counter overflowCounter(String outcome) {
+    return Counter.builder("stockpulse.websocket.prices.overflow")
+            .description("Frames affected by a full session queue")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+  }
+}
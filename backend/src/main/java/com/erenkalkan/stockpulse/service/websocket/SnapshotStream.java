@@ -0,0 +1,128 @@
+package com.erenkalkan.stockpulse.service.websocket;
+
+import com.erenkalkan.stockpulse.model.dto.StockPriceDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Conflated delivery for one session. Ticks only overwrite a latest-value slot per symbol and the changed
+ * symbols go out together as one frame: every interval for sessions that subscribed with {@code maxHz},
+ * or after each broadcast batch ({@code intervalMs == 0}) for binary sessions.
+ */
+@Slf4j
+final class SnapshotStream {
+
+  private static final ObjectWriter SNAPSHOT_WRITER = new ObjectMapper().writerFor(SnapshotMessage.class);
+
+  private record SnapshotMessage(String type, List<StockPriceDTO> data) {
+  }
+
+  @FunctionalInterface
+  interface FrameEncoder {
+    WebSocketMessage<?> encode(List<StockPriceDTO> changed) throws IOException;
+  }
+
+  static WebSocketMessage<?> jsonSnapshot(List<StockPriceDTO> changed) throws IOException {
+    return new TextMessage(SNAPSHOT_WRITER.writeValueAsBytes(new SnapshotMessage("price_snapshot", changed)));
+  }
+
+  private final SessionSender sender;
+  private final TimerWheel timerWheel;
+  private final long intervalMs;
+  private final FrameEncoder encoder;
+  private final Map<String, StockPriceDTO> latestBySymbol = new ConcurrentHashMap<>();
+  private final AtomicBoolean retryScheduled = new AtomicBoolean();
+  private volatile TimerWheel.Timeout timeout;
+  private volatile boolean closed;
+
+  SnapshotStream(SessionSender sender, TimerWheel timerWheel, long intervalMs, FrameEncoder encoder) {
+    this.sender = sender;
+    this.timerWheel = timerWheel;
+    this.intervalMs = intervalMs;
+    this.encoder = encoder;
+  }
+
+  long getIntervalMs() {
+    return intervalMs;
+  }
+
+  boolean isImmediate() {
+    return intervalMs == 0;
+  }
+
+  void start() {
+    if (!isImmediate()) {
+      timeout = timerWheel.schedule(this::onInterval, intervalMs);
+    }
+  }
+
+  void offer(StockPriceDTO stockPrice) {
+    latestBySymbol.put(stockPrice.getSymbol(), stockPrice);
+  }
+
+  void forget(Collection<String> symbols) {
+    symbols.forEach(latestBySymbol::remove);
+  }
+
+  void close() {
+    closed = true;
+    TimerWheel.Timeout current = timeout;
+    if (current != null) {
+      current.cancel();
+    }
+  }
+
+  /** Flushes now; if the writer is still busy, retries on the next wheel tick. */
+  void flushNow() {
+    if (!flush() && retryScheduled.compareAndSet(false, true)) {
+      timerWheel.schedule(() -> {
+        retryScheduled.set(false);
+        flushNow();
+      }, timerWheel.getTickMs());
+    }
+  }
+
+  private void onInterval() {
+    if (closed) {
+      return;
+    }
+    flush();
+    timeout = timerWheel.schedule(this::onInterval, intervalMs);
+  }
+
+  // While the previous frame is still queued the slots keep conflating, so a slow client gets fewer, fuller frames.
+  // Returns false when changes are left pending for that reason. Synchronized so frames are queued in order.
+  private synchronized boolean flush() {
+    if (closed || !sender.isOpen() || latestBySymbol.isEmpty()) {
+      return true;
+    }
+    if (sender.getQueueDepth() > 0) {
+      return false;
+    }
+
+    List<StockPriceDTO> changed = new ArrayList<>(latestBySymbol.size());
+    for (Map.Entry<String, StockPriceDTO> entry : latestBySymbol.entrySet()) {
+      changed.add(entry.getValue());
+      // A tick that lands meanwhile replaces the value, survives this remove and goes out next time
+      latestBySymbol.remove(entry.getKey(), entry.getValue());
+    }
+
+    try {
+      sender.send(encoder.encode(changed));
+    } catch (IOException e) {
+      log.error("Error encoding price snapshot for session {}: {}", sender.getSessionId(), e.getMessage());
+    }
+    return true;
+  }
+}
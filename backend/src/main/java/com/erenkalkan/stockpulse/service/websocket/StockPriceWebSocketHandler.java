@@ -1,56 +1,183 @@
 package com.erenkalkan.stockpulse.service.websocket;
 
+import com.erenkalkan.stockpulse.model.dto.StockPriceDTO;
+import com.erenkalkan.stockpulse.model.dto.StockQuoteDTO;
+import com.erenkalkan.stockpulse.service.LastTradeTable;
 import com.erenkalkan.stockpulse.service.StockWebSocketService;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Slf4j
 @RequiredArgsConstructor
 @Service
-public class StockPriceWebSocketHandler extends TextWebSocketHandler {
+public class StockPriceWebSocketHandler extends TextWebSocketHandler implements SubProtocolCapable {
 
-  private final Set<WebSocketSession> sessions = Collections.synchronizedSet(new HashSet<>());
+  // Inverted index so a tick only reaches the sessions that subscribed to its symbol
+  private final Map<String, Set<SessionSender>> sendersBySymbol = new ConcurrentHashMap<>();
+  private final Map<String, Set<String>> symbolsBySession = new ConcurrentHashMap<>();
+  private final Map<String, SessionSender> senders = new ConcurrentHashMap<>();
+  private final Map<String, SnapshotStream> snapshots = new ConcurrentHashMap<>();
+  private final Map<String, BinaryPriceFrames.SymbolIds> binarySymbolIds = new ConcurrentHashMap<>();
   private final StockWebSocketService stockWebSocketService;
+  private final SessionSenderPool sessionSenderPool;
+  private final TimerWheel timerWheel;
+  private final LastTradeTable lastTradeTable;
   private final ObjectMapper objectMapper = new ObjectMapper();
+  private final ObjectWriter priceUpdateWriter = objectMapper.writerFor(PriceUpdateMessage.class);
+  private final ObjectWriter quoteSnapshotWriter = objectMapper.writerFor(QuoteSnapshotMessage.class);
+
+  private static final String PRICE_UPDATE = "price_update";
+  // Distinct from the conflated price_snapshot frames, which carry plain prices rather than quotes
+  private static final String LAST_PRICES = "last_prices";
+
+  private record PriceUpdateMessage(String type, StockPriceDTO data) {
+  }
+
+  private record QuoteSnapshotMessage(String type, List<StockQuoteDTO> data) {
+  }
+
+  // Clients that don't offer the binary subprotocol keep the JSON price_update frames
+  @Override
+  public List<String> getSubProtocols() {
+    return List.of(BinaryPriceFrames.SUBPROTOCOL);
+  }
 
   @Override
   public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-    sessions.add(session);
+    SessionSender sender = sessionSenderPool.open(session);
+    senders.put(session.getId(), sender);
+    symbolsBySession.put(session.getId(), ConcurrentHashMap.newKeySet());
+    if (BinaryPriceFrames.SUBPROTOCOL.equals(session.getAcceptedProtocol())) {
+      binarySymbolIds.put(session.getId(), new BinaryPriceFrames.SymbolIds());
+      startSnapshotStream(session.getId(), sender, 0);
+    }
     log.info("New WebSocket connection established: {}", session.getId());
   }
 
   @Override
   public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-    sessions.remove(session);
+    removeSession(session.getId());
+    stockWebSocketService.releaseSession(session.getId());
     log.info("WebSocket connection closed: {}", session.getId());
   }
 
-  public void broadcast(String message) {
-    Set<WebSocketSession> currentSessions = new HashSet<>(sessions);
-    for (WebSocketSession session : currentSessions) {
-      if (session.isOpen()) {
+  public void broadcast(StockPriceDTO stockPrice) {
+    broadcast(List.of(stockPrice));
+  }
+
+  // Binary sessions get the whole batch packed into one frame, flushed once every tick has been offered
+  public void broadcast(Collection<StockPriceDTO> stockPrices) {
+    Set<SnapshotStream> immediate = new HashSet<>();
+    for (StockPriceDTO stockPrice : stockPrices) {
+      deliver(stockPrice, immediate);
+    }
+    immediate.forEach(SnapshotStream::flushNow);
+  }
+
+  // The frame is encoded once per tick and the same immutable message is queued for every recipient;
+  // writes happen on each session's own writer, so this never blocks on a slow client
+  private void deliver(StockPriceDTO stockPrice, Set<SnapshotStream> immediate) {
+    Set<SessionSender> subscribers = sendersBySymbol.get(stockPrice.getSymbol());
+    if (subscribers == null || subscribers.isEmpty()) {
+      return;
+    }
+
+    TextMessage frame = null;
+    for (SessionSender sender : subscribers) {
+      if (!sender.isOpen()) {
+        removeSession(sender.getSessionId());
+        continue;
+      }
+
+      SnapshotStream snapshot = snapshots.get(sender.getSessionId());
+      if (snapshot != null) {
+        snapshot.offer(stockPrice);
+        if (snapshot.isImmediate()) {
+          immediate.add(snapshot);
+        }
+        continue;
+      }
+
+      if (frame == null) {
         try {
-          String response = String.format("{\"type\":\"price_update\",\"data\":%s}", message);
-          session.sendMessage(new TextMessage(response));
-        } catch (IOException e) {
-          log.error("Error sending message to session {}: {}", session.getId(), e.getMessage());
-          sessions.remove(session);
+          frame = encodePriceUpdate(stockPrice);
+        } catch (JsonProcessingException e) {
+          log.error("Error serializing StockPrice object to JSON: {}", e.getMessage());
+          return;
         }
       }
-      else {
-        sessions.remove(session);
+      sender.send(stockPrice.getSymbol(), frame);
+    }
+  }
+
+  TextMessage encodePriceUpdate(StockPriceDTO stockPrice) throws JsonProcessingException {
+    return new TextMessage(priceUpdateWriter.writeValueAsBytes(new PriceUpdateMessage(PRICE_UPDATE, stockPrice)));
+  }
+
+  public int getSubscriberCount(String symbol) {
+    Set<SessionSender> subscribers = sendersBySymbol.get(symbol);
+    return subscribers == null ? 0 : subscribers.size();
+  }
+
+  private void addSubscriptions(WebSocketSession session, List<String> symbols) {
+    SessionSender sender = senders.get(session.getId());
+    Set<String> sessionSymbols = symbolsBySession.get(session.getId());
+    if (sender == null || sessionSymbols == null) {
+      return;
+    }
+    for (String symbol : symbols) {
+      sessionSymbols.add(symbol);
+      sendersBySymbol.compute(symbol, (key, subscribers) -> {
+        Set<SessionSender> updated = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+        updated.add(sender);
+        return updated;
+      });
+    }
+  }
+
+  private void removeSubscriptions(String sessionId, Collection<String> symbols) {
+    SessionSender sender = senders.get(sessionId);
+    Set<String> sessionSymbols = symbolsBySession.get(sessionId);
+    for (String symbol : symbols) {
+      if (sessionSymbols != null) {
+        sessionSymbols.remove(symbol);
       }
+      // Removing inside compute keeps an emptied set from being dropped while another session joins it
+      sendersBySymbol.computeIfPresent(symbol, (key, subscribers) -> {
+        subscribers.remove(sender);
+        return subscribers.isEmpty() ? null : subscribers;
+      });
+    }
+  }
+
+  private void removeSession(String sessionId) {
+    Set<String> sessionSymbols = symbolsBySession.remove(sessionId);
+    if (sessionSymbols != null) {
+      removeSubscriptions(sessionId, List.copyOf(sessionSymbols));
+    }
+    SnapshotStream snapshot = snapshots.remove(sessionId);
+    if (snapshot != null) {
+      snapshot.close();
+    }
+    binarySymbolIds.remove(sessionId);
+    SessionSender sender = senders.remove(sessionId);
+    if (sender != null) {
+      sender.close();
     }
   }
 
@@ -84,63 +211,199 @@ public class StockPriceWebSocketHandler extends TextWebSocketHandler {
 
   private void handleSubscriptionRequest(WebSocketSession session, JsonNode messageNode) {
     try {
-      List<String> symbols = new ArrayList<>();
-
-      if (messageNode.has("symbol")) {
-        symbols.add(messageNode.get("symbol").asText());
+      List<String> validSymbols = parseSymbols(session, messageNode);
+      if (validSymbols.isEmpty()) {
+        return;
       }
-      else if (messageNode.has("symbols")) {
-        JsonNode symbolsNode = messageNode.get("symbols");
-        if (symbolsNode.isArray()) {
-          for (JsonNode symbolNode : symbolsNode) {
-            symbols.add(symbolNode.asText());
-          }
-        }
+
+      if (messageNode.has("maxHz")) {
+        setDeliveryRate(session, messageNode.get("maxHz").asInt());
       }
 
-      if (symbols.isEmpty()) {
-        sendErrorToSession(session, "No symbols provided for subscription");
-        return;
+      Map<String, Object> response = new LinkedHashMap<>();
+      response.put("type", "subscribed");
+      response.put("symbols", validSymbols);
+      BinaryPriceFrames.SymbolIds symbolIds = binarySymbolIds.get(session.getId());
+      if (symbolIds != null) {
+        validSymbols = assignSymbolIds(session, symbolIds, validSymbols, response);
       }
+      response.put("message", "Successfully subscribed to symbols");
+
+      addSubscriptions(session, validSymbols);
+      stockWebSocketService.subscribe(session.getId(), validSymbols);
+      sendToSession(session, objectMapper.writeValueAsString(response));
+      sendLastPrices(session.getId(), validSymbols);
 
-      List<String> validSymbols = symbols.stream()
-              .filter(symbol -> symbol != null && !symbol.trim().isEmpty())
-              .map(String::trim)
-              .map(String::toUpperCase)
-              .distinct()
-              .collect(Collectors.toList());
+      log.info("Session {} subscribed to symbols: {}", session.getId(), validSymbols);
+
+    } catch (Exception e) {
+      log.error("Error handling subscription request", e);
+      sendErrorToSession(session, "Error processing subscription request");
+    }
+  }
 
+  private void handleUnsubscriptionRequest(WebSocketSession session, JsonNode messageNode) {
+    try {
+      List<String> validSymbols = parseSymbols(session, messageNode);
       if (validSymbols.isEmpty()) {
-        sendErrorToSession(session, "No valid symbols provided");
         return;
       }
 
-      stockWebSocketService.addSymbols(validSymbols);
+      removeSubscriptions(session.getId(), validSymbols);
+      SnapshotStream snapshot = snapshots.get(session.getId());
+      if (snapshot != null) {
+        snapshot.forget(validSymbols);
+      }
+      stockWebSocketService.unsubscribe(session.getId(), validSymbols);
 
       String response = String.format(
-              "{\"type\":\"subscribed\",\"symbols\":%s,\"message\":\"Successfully subscribed to symbols\"}",
+              "{\"type\":\"unsubscribed\",\"symbols\":%s,\"message\":\"Successfully unsubscribed from symbols\"}",
               objectMapper.writeValueAsString(validSymbols)
       );
       sendToSession(session, response);
 
-      log.info("Session {} subscribed to symbols: {}", session.getId(), validSymbols);
+      log.info("Session {} unsubscribed from symbols: {}", session.getId(), validSymbols);
 
     } catch (Exception e) {
-      log.error("Error handling subscription request", e);
-      sendErrorToSession(session, "Error processing subscription request");
+      log.error("Error handling unsubscription request", e);
+      sendErrorToSession(session, "Error processing unsubscription request");
     }
   }
 
-  private void handleUnsubscriptionRequest(WebSocketSession session, JsonNode messageNode) {
-    // TODO: Implement unsubscription logic if needed
-    sendToSession(session, "{\"type\":\"info\",\"message\":\"Unsubscription not yet implemented\"}");
+  // Quiet symbols would otherwise stay blank until their next trade
+  private void sendLastPrices(String sessionId, List<String> symbols) {
+    SessionSender sender = senders.get(sessionId);
+    if (sender == null) {
+      return;
+    }
+    BinaryPriceFrames.SymbolIds symbolIds = binarySymbolIds.get(sessionId);
+    sender.sendSnapshot(() -> {
+      List<StockQuoteDTO> quotes = lastTradeTable.getQuotes(symbols);
+      if (quotes.isEmpty()) {
+        return null;
+      }
+      if (symbolIds != null) {
+        return BinaryPriceFrames.encode(quotes.stream().map(StockPriceWebSocketHandler::toPrice).toList(), symbolIds);
+      }
+      try {
+        return new TextMessage(quoteSnapshotWriter.writeValueAsBytes(new QuoteSnapshotMessage(LAST_PRICES, quotes)));
+      } catch (JsonProcessingException e) {
+        log.error("Error serializing last prices for session {}: {}", sessionId, e.getMessage());
+        return null;
+      }
+    });
+  }
+
+  private static StockPriceDTO toPrice(StockQuoteDTO quote) {
+    return StockPriceDTO.builder()
+            .symbol(quote.getSymbol())
+            .price(quote.getPrice())
+            .timestamp(quote.getTimestamp())
+            .build();
+  }
+
+  // The ids are what binary records carry instead of the symbol; symbols beyond the u16 id space are rejected
+  private List<String> assignSymbolIds(WebSocketSession session, BinaryPriceFrames.SymbolIds symbolIds,
+                                       List<String> symbols, Map<String, Object> response) {
+    Map<String, Integer> ids = new LinkedHashMap<>();
+    for (String symbol : symbols) {
+      int id = symbolIds.assign(symbol);
+      if (id < 0) {
+        sendErrorToSession(session, "Too many symbols for binary session, not subscribed: " + symbol);
+        continue;
+      }
+      ids.put(symbol, id);
+    }
+    List<String> assigned = List.copyOf(ids.keySet());
+    response.put("symbols", assigned);
+    response.put("symbolIds", ids);
+    return assigned;
+  }
+
+  // maxHz > 0 switches the session to conflated snapshots at that rate, 0 switches it back to every tick
+  // (for binary sessions: one frame per broadcast batch)
+  private void setDeliveryRate(WebSocketSession session, int maxHz) {
+    SessionSender sender = senders.get(session.getId());
+    if (sender == null) {
+      return;
+    }
+
+    long intervalMs = maxHz > 0 ? Math.max(timerWheel.getTickMs(), 1000L / maxHz) : 0;
+    SnapshotStream current = snapshots.get(session.getId());
+    if (current != null && current.getIntervalMs() == intervalMs) {
+      return;
+    }
+
+    SnapshotStream replaced;
+    if (intervalMs > 0 || binarySymbolIds.containsKey(session.getId())) {
+      replaced = startSnapshotStream(session.getId(), sender, intervalMs);
+      log.info("Session {} switched to snapshot delivery every {} ms", session.getId(), intervalMs);
+    } else {
+      replaced = snapshots.remove(session.getId());
+    }
+
+    if (replaced != null) {
+      replaced.close();
+    }
+  }
+
+  private SnapshotStream startSnapshotStream(String sessionId, SessionSender sender, long intervalMs) {
+    BinaryPriceFrames.SymbolIds symbolIds = binarySymbolIds.get(sessionId);
+    SnapshotStream.FrameEncoder encoder = symbolIds != null
+            ? changed -> BinaryPriceFrames.encode(changed, symbolIds)
+            : SnapshotStream::jsonSnapshot;
+    SnapshotStream snapshot = new SnapshotStream(sender, timerWheel, intervalMs, encoder);
+    SnapshotStream replaced = snapshots.put(sessionId, snapshot);
+    snapshot.start();
+    return replaced;
+  }
+
+  // Sends the error to the session and returns an empty list when no usable symbols were given
+  private List<String> parseSymbols(WebSocketSession session, JsonNode messageNode) {
+    List<String> symbols = new ArrayList<>();
+
+    if (messageNode.has("symbol")) {
+      symbols.add(messageNode.get("symbol").asText());
+    }
+    else if (messageNode.has("symbols")) {
+      JsonNode symbolsNode = messageNode.get("symbols");
+      if (symbolsNode.isArray()) {
+        for (JsonNode symbolNode : symbolsNode) {
+          symbols.add(symbolNode.asText());
+        }
+      }
+    }
+
+    if (symbols.isEmpty()) {
+      sendErrorToSession(session, "No symbols provided");
+      return List.of();
+    }
+
+    List<String> validSymbols = symbols.stream()
+            .filter(symbol -> symbol != null && !symbol.trim().isEmpty())
+            .map(String::trim)
+            .map(String::toUpperCase)
+            .distinct()
+            .collect(Collectors.toList());
+
+    if (validSymbols.isEmpty()) {
+      sendErrorToSession(session, "No valid symbols provided");
+    }
+    return validSymbols;
   }
 
   private void handlePingRequest(WebSocketSession session) {
     sendToSession(session, "{\"type\":\"pong\",\"timestamp\":" + System.currentTimeMillis() + "}");
   }
 
+  // Replies share the session's writer with price frames, so the two never write concurrently
   private void sendToSession(WebSocketSession session, String message) {
+    SessionSender sender = senders.get(session.getId());
+    if (sender != null) {
+      sender.send(new TextMessage(message));
+      return;
+    }
+
     if (session.isOpen()) {
       try {
         session.sendMessage(new TextMessage(message));
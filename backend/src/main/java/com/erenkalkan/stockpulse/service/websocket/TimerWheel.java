@@ -0,0 +1,151 @@
+package com.erenkalkan.stockpulse.service.websocket;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timer wheel for the many short, periodic snapshot flushes of live-prices sessions.
+ * Scheduling and cancelling are O(1) and lock-free; one thread advances the wheel every tick and runs
+ * due tasks inline, so tasks must be short and must not block.
+ */
+@Slf4j
+@Component
+public class TimerWheel {
+
+  @Value("${app.websocket.prices.snapshot.tick-ms:10}")
+  private long tickMs = 10;
+
+  @Value("${app.websocket.prices.snapshot.wheel-size:512}")
+  private int wheelSize = 512;
+
+  private final Queue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+  private List<Timeout>[] buckets;
+  private int mask;
+  private long currentTick;
+  private Thread worker;
+  private volatile boolean running;
+
+  public static final class Timeout {
+
+    private final Runnable task;
+    private final long delayTicks;
+    private long deadline;
+    private volatile boolean cancelled;
+
+    private Timeout(Runnable task, long delayTicks) {
+      this.task = task;
+      this.delayTicks = delayTicks;
+    }
+
+    public void cancel() {
+      cancelled = true;
+    }
+  }
+
+  @PostConstruct
+  public void start() {
+    init();
+    running = true;
+    worker = new Thread(this::run, "price-snapshot-timer");
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  @PreDestroy
+  public void stop() {
+    running = false;
+    if (worker != null) {
+      LockSupport.unpark(worker);
+    }
+  }
+
+  public long getTickMs() {
+    return tickMs;
+  }
+
+  public Timeout schedule(Runnable task, long delayMs) {
+    Timeout timeout = new Timeout(task, Math.max(1, (delayMs + tickMs - 1) / tickMs));
+    incoming.add(timeout);
+    return timeout;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  synchronized void init() {
+    if (buckets != null) {
+      return;
+    }
+    int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+    buckets = new List[size];
+    for (int i = 0; i < size; i++) {
+      buckets[i] = new ArrayList<>();
+    }
+    mask = size - 1;
+  }
+
+  // Called only by the worker thread, or directly by tests that drive the wheel by hand
+  void tick() {
+    long tick = currentTick;
+
+    Timeout timeout;
+    while ((timeout = incoming.poll()) != null) {
+      if (!timeout.cancelled) {
+        timeout.deadline = tick + timeout.delayTicks;
+        buckets[(int) (timeout.deadline & mask)].add(timeout);
+      }
+    }
+
+    // Entries for later rounds share the bucket and stay until their deadline comes around
+    List<Timeout> bucket = buckets[(int) (tick & mask)];
+    List<Timeout> due = null;
+    int kept = 0;
+    for (int i = 0; i < bucket.size(); i++) {
+      Timeout candidate = bucket.get(i);
+      if (candidate.cancelled) {
+        continue;
+      }
+      if (candidate.deadline <= tick) {
+        if (due == null) {
+          due = new ArrayList<>();
+        }
+        due.add(candidate);
+      } else {
+        bucket.set(kept++, candidate);
+      }
+    }
+    bucket.subList(kept, bucket.size()).clear();
+
+    currentTick = tick + 1;
+    if (due != null) {
+      for (Timeout expired : due) {
+        try {
+          expired.task.run();
+        } catch (Exception e) {
+          log.error("Timer task failed", e);
+        }
+      }
+    }
+  }
+
+  private void run() {
+    long tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+    long startTime = System.nanoTime();
+    while (running) {
+      long sleepNanos = startTime + (currentTick + 1) * tickNanos - System.nanoTime();
+      if (sleepNanos > 0) {
+        LockSupport.parkNanos(sleepNanos);
+        continue;
+      }
+      tick();
+    }
+  }
+}
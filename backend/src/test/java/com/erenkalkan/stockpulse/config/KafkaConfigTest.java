@@ -0,0 +1,83 @@
+package com.erenkalkan.stockpulse.config;
+
+import com.erenkalkan.stockpulse.model.dto.AlertTriggeredEvent;
+import com.erenkalkan.stockpulse.service.email.AlertEmailDigest;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KafkaConfigTest {
+
+  @Mock
+  private AlertEmailDigest alertEmailDigest;
+
+  @Mock
+  private Consumer<String, AlertTriggeredEvent> consumer;
+
+  @Mock
+  private MessageListenerContainer container;
+
+  @Test
+  void alertEmailErrorHandler_WhenEnqueueFails_ShouldRedeliverBatchUntilItSucceeds() {
+    // Arrange
+    KafkaConfig kafkaConfig = new KafkaConfig();
+    ReflectionTestUtils.setField(kafkaConfig, "emailDigestInitialBackoffMs", 1L);
+    ReflectionTestUtils.setField(kafkaConfig, "emailDigestMaxBackoffMs", 1L);
+    DefaultErrorHandler errorHandler = kafkaConfig.alertEmailErrorHandler();
+
+    TopicPartition partition = new TopicPartition("alert-triggers", 0);
+    AlertTriggeredEvent event = AlertTriggeredEvent.builder().email("bruce@email.com").symbol("AAPL").build();
+    ConsumerRecords<String, AlertTriggeredEvent> records = new ConsumerRecords<>(
+            Map.of(partition, List.of(new ConsumerRecord<>("alert-triggers", 0, 0L, "1", event))));
+    when(consumer.assignment()).thenReturn(Set.of(partition));
+    when(container.isRunning()).thenReturn(true);
+
+    CompletionException brokerDown = new CompletionException(new KafkaException("Broker unavailable"));
+    doThrow(brokerDown).doThrow(brokerDown).doNothing().when(alertEmailDigest).sendAll(List.of(event));
+
+    // Act
+    errorHandler.handleBatch(brokerDown, records, consumer, container,
+            () -> alertEmailDigest.sendAll(List.of(event)));
+
+    // Assert
+    verify(alertEmailDigest, times(3)).sendAll(List.of(event));
+    verify(consumer).resume(Set.of(partition));
+  }
+
+  @Test
+  void stockPriceFactories_ShouldResetAlertProcessingToEarliestAndFanOutToLatest() {
+    // Arrange
+    KafkaConfig kafkaConfig = new KafkaConfig();
+    ReflectionTestUtils.setField(kafkaConfig, "bootstrapServers", "localhost:9092");
+    ReflectionTestUtils.setField(kafkaConfig, "stockPriceBatchSize", 500);
+
+    // Act
+    Map<String, Object> alertProcessing = kafkaConfig.stockPriceBatchListenerContainerFactory()
+            .getConsumerFactory().getConfigurationProperties();
+    Map<String, Object> fanOut = kafkaConfig.stockPriceFanOutListenerContainerFactory()
+            .getConsumerFactory().getConfigurationProperties();
+
+    // Assert
+    assertEquals("earliest", alertProcessing.get(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG));
+    assertEquals("latest", fanOut.get(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG));
+  }
+}
@@ -1,5 +1,6 @@
 package com.erenkalkan.stockpulse.service;
 
+import com.erenkalkan.stockpulse.model.dto.AlertTriggeredEvent;
 import com.erenkalkan.stockpulse.model.dto.StockPriceDTO;
 import com.erenkalkan.stockpulse.model.entity.Alert;
 import com.erenkalkan.stockpulse.model.entity.Stock;
@@ -8,18 +9,20 @@ import com.erenkalkan.stockpulse.model.entity.Watchlist;
 import com.erenkalkan.stockpulse.model.enums.ConditionType;
 import com.erenkalkan.stockpulse.model.enums.Role;
 import com.erenkalkan.stockpulse.model.enums.TriggerType;
+import com.erenkalkan.stockpulse.repository.AlertRepository;
+import com.erenkalkan.stockpulse.service.alert.AlertIndex;
+import com.erenkalkan.stockpulse.service.alert.AlertTriggerWriter;
+import com.erenkalkan.stockpulse.service.alert.ReferencePriceCache;
+import com.erenkalkan.stockpulse.service.kafka.TickConflationMetrics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.test.util.ReflectionTestUtils;
 
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -29,12 +32,24 @@ import static org.mockito.Mockito.*;
 class AlertProcessingServiceTest {
 
   @Mock
-  private AlertService alertService;
+  private AlertRepository alertRepository;
 
   @Mock
-  private KafkaTemplate<String, Alert> alertKafkaTemplate;
+  private ReferencePriceCache referencePriceCache;
 
-  @InjectMocks
+  @Mock
+  private StockWebSocketService stockWebSocketService;
+
+  @Mock
+  private AlertTriggerWriter alertTriggerWriter;
+
+  @Mock
+  private KafkaTemplate<String, AlertTriggeredEvent> alertKafkaTemplate;
+
+  @Mock
+  private TickConflationMetrics conflationMetrics;
+
+  private AlertIndex alertIndex;
   private AlertProcessingService alertProcessingService;
 
   private StockPriceDTO stockPriceDTO;
@@ -48,8 +63,16 @@ class AlertProcessingServiceTest {
   @BeforeEach
   void setUp() {
     // Arrange
+    alertIndex = new AlertIndex(alertRepository, referencePriceCache, stockWebSocketService);
+    alertProcessingService = new AlertProcessingService(alertIndex, alertTriggerWriter, alertKafkaTemplate, conflationMetrics);
     ReflectionTestUtils.setField(alertProcessingService, "alertTriggersTopic", "alert-triggers");
 
+    // Simulate an immediate flush so the publish callback runs synchronously
+    lenient().doAnswer(invocation -> {
+      invocation.<Runnable>getArgument(1).run();
+      return null;
+    }).when(alertTriggerWriter).submit(any(Alert.class), any(Runnable.class));
+
     testStock = Stock.builder()
             .companyName("Apple Inc.")
             .symbol("AAPL")
@@ -89,95 +112,88 @@ class AlertProcessingServiceTest {
             .build();
   }
 
+  private static AlertTriggeredEvent eventOf(Alert alert) {
+    return argThat(event -> event != null && event.getAlertId() == alert.getId());
+  }
+
   @Test
-  void processStockPrice_WhenAboveConditionMet_ShouldTriggerAlert() {
+  void processStockPrices_WhenAboveConditionMet_ShouldTriggerAlert() {
     // Arrange
-    List<Alert> alerts = Collections.singletonList(aboveAlert);
-    when(alertService.findAllBySymbol("AAPL")).thenReturn(alerts);
+    alertIndex.add(aboveAlert);
 
     // Act
-    alertProcessingService.processStockPrice(stockPriceDTO);
+    alertProcessingService.processStockPrices(List.of(stockPriceDTO));
 
     // Assert
     assertTrue(aboveAlert.isTriggered(), "Alert should be marked as triggered");
-    verify(alertKafkaTemplate, times(1)).send("alert-triggers", aboveAlert);
-    verify(alertService, times(1)).findAllBySymbol("AAPL");
+    verify(alertKafkaTemplate, times(1)).send(eq("alert-triggers"), eq("test@email.com"), eventOf(aboveAlert));
   }
 
   @Test
-  void processStockPrice_WhenBelowConditionMet_ShouldTriggerAlert() {
+  void processStockPrices_WhenBelowConditionMet_ShouldTriggerAlert() {
     // Arrange
-    List<Alert> alerts = Collections.singletonList(belowAlert);
-    when(alertService.findAllBySymbol("AAPL")).thenReturn(alerts);
+    alertIndex.add(belowAlert);
 
     // Act
-    alertProcessingService.processStockPrice(stockPriceDTO);
+    alertProcessingService.processStockPrices(List.of(stockPriceDTO));
 
     // Assert
     assertTrue(belowAlert.isTriggered(), "Alert should be marked as triggered");
-    verify(alertKafkaTemplate, times(1)).send("alert-triggers", belowAlert);
-    verify(alertService, times(1)).findAllBySymbol("AAPL");
+    verify(alertKafkaTemplate, times(1)).send(eq("alert-triggers"), eq("test@email.com"), eventOf(belowAlert));
   }
 
   @Test
-  void processStockPrice_WhenAboveConditionNotMet_ShouldNotTriggerAlert() {
+  void processStockPrices_WhenAboveConditionNotMet_ShouldNotTriggerAlert() {
     // Arrange
     Alert highTargetAlert = createAlert(4L, ConditionType.ABOVE, 200.00, false);
-    List<Alert> alerts = Collections.singletonList(highTargetAlert);
-    when(alertService.findAllBySymbol("AAPL")).thenReturn(alerts);
+    alertIndex.add(highTargetAlert);
 
     // Act
-    alertProcessingService.processStockPrice(stockPriceDTO);
+    alertProcessingService.processStockPrices(List.of(stockPriceDTO));
 
     // Assert
     assertFalse(highTargetAlert.isTriggered(), "Alert should not be marked as triggered");
-    verify(alertKafkaTemplate, never()).send(anyString(), any(Alert.class));
-    verify(alertService, times(1)).findAllBySymbol("AAPL");
+    verify(alertKafkaTemplate, never()).send(anyString(), anyString(), any(AlertTriggeredEvent.class));
   }
 
   @Test
-  void processStockPrice_WhenBelowConditionNotMet_ShouldNotTriggerAlert() {
+  void processStockPrices_WhenBelowConditionNotMet_ShouldNotTriggerAlert() {
     // Arrange
     Alert lowTargetAlert = createAlert(5L, ConditionType.BELOW, 100.00, false);
-    List<Alert> alerts = Collections.singletonList(lowTargetAlert);
-    when(alertService.findAllBySymbol("AAPL")).thenReturn(alerts);
+    alertIndex.add(lowTargetAlert);
 
     // Act
-    alertProcessingService.processStockPrice(stockPriceDTO);
+    alertProcessingService.processStockPrices(List.of(stockPriceDTO));
 
     // Assert
     assertFalse(lowTargetAlert.isTriggered(), "Alert should not be marked as triggered");
-    verify(alertKafkaTemplate, never()).send(anyString(), any(Alert.class));
-    verify(alertService, times(1)).findAllBySymbol("AAPL");
+    verify(alertKafkaTemplate, never()).send(anyString(), anyString(), any(AlertTriggeredEvent.class));
   }
 
   @Test
-  void processStockPrice_WhenAlertAlreadyTriggered_ShouldNotTriggerAgain() {
+  void processStockPrices_WhenAlertAlreadyTriggered_ShouldNotTriggerAgain() {
     // Arrange
-    List<Alert> alerts = Collections.singletonList(triggeredAlert);
-    when(alertService.findAllBySymbol("AAPL")).thenReturn(alerts);
+    alertIndex.add(triggeredAlert);
 
     // Act
-    alertProcessingService.processStockPrice(stockPriceDTO);
+    alertProcessingService.processStockPrices(List.of(stockPriceDTO));
 
     // Assert
     assertTrue(triggeredAlert.isTriggered(), "Alert should remain triggered");
-    verify(alertKafkaTemplate, never()).send(anyString(), any(Alert.class));
-    verify(alertService, times(1)).findAllBySymbol("AAPL");
+    verify(alertKafkaTemplate, never()).send(anyString(), anyString(), any(AlertTriggeredEvent.class));
   }
 
   @Test
-  void processStockPrice_WhenMultipleAlertsExist_ShouldProcessAllCorrectly() {
+  void processStockPrices_WhenMultipleAlertsExist_ShouldProcessAllCorrectly() {
     // Arrange
     Alert anotherAboveAlert = createAlert(6L, ConditionType.ABOVE, 145.00, false);
     Alert anotherBelowAlert = createAlert(7L, ConditionType.BELOW, 155.00, false);
     Alert nonTriggeringAlert = createAlert(8L, ConditionType.ABOVE, 200.00, false);
 
-    List<Alert> alerts = Arrays.asList(aboveAlert, anotherAboveAlert, anotherBelowAlert, nonTriggeringAlert, triggeredAlert);
-    when(alertService.findAllBySymbol("AAPL")).thenReturn(alerts);
+    List.of(aboveAlert, anotherAboveAlert, anotherBelowAlert, nonTriggeringAlert, triggeredAlert).forEach(alertIndex::add);
 
     // Act
-    alertProcessingService.processStockPrice(stockPriceDTO);
+    alertProcessingService.processStockPrices(List.of(stockPriceDTO));
 
     // Assert
     assertTrue(aboveAlert.isTriggered(), "First above alert should be triggered");
@@ -187,70 +203,160 @@ class AlertProcessingServiceTest {
     assertTrue(triggeredAlert.isTriggered(), "Already triggered alert should remain triggered");
 
     // Verify Kafka messages sent for newly triggered alerts only
-    verify(alertKafkaTemplate, times(3)).send(eq("alert-triggers"), any(Alert.class));
-    verify(alertService, times(1)).findAllBySymbol("AAPL");
+    verify(alertKafkaTemplate, times(3)).send(eq("alert-triggers"), anyString(), any(AlertTriggeredEvent.class));
   }
 
   @Test
-  void processStockPrice_WhenNoAlertsExist_ShouldHandleGracefully() {
+  void processStockPrices_WhenNoAlertsExist_ShouldHandleGracefully() {
     // Arrange
-    when(alertService.findAllBySymbol("AAPL")).thenReturn(Collections.emptyList());
+    // No alerts indexed
 
     // Act
-    alertProcessingService.processStockPrice(stockPriceDTO);
+    alertProcessingService.processStockPrices(List.of(stockPriceDTO));
 
     // Assert
-    verify(alertKafkaTemplate, never()).send(anyString(), any(Alert.class));
-    verify(alertService, times(1)).findAllBySymbol("AAPL");
+    verify(alertKafkaTemplate, never()).send(anyString(), anyString(), any(AlertTriggeredEvent.class));
   }
 
   @Test
-  void processStockPrice_WhenPriceEqualsTargetValue_ShouldNotTriggerAlert() {
+  void processStockPrices_WhenPriceEqualsTargetValue_ShouldNotTriggerAlert() {
     // Arrange
     Alert equalTargetAlert = createAlert(9L, ConditionType.ABOVE, 150.00, false);
-    List<Alert> alerts = Collections.singletonList(equalTargetAlert);
-    when(alertService.findAllBySymbol("AAPL")).thenReturn(alerts);
+    alertIndex.add(equalTargetAlert);
 
     // Act
-    alertProcessingService.processStockPrice(stockPriceDTO);
+    alertProcessingService.processStockPrices(List.of(stockPriceDTO));
 
     // Assert
     assertFalse(equalTargetAlert.isTriggered(), "Alert should not be triggered for equal values with ABOVE condition");
-    verify(alertKafkaTemplate, never()).send(anyString(), any(Alert.class));
-    verify(alertService, times(1)).findAllBySymbol("AAPL");
+    verify(alertKafkaTemplate, never()).send(anyString(), anyString(), any(AlertTriggeredEvent.class));
+  }
+
+  @Test
+  void processStockPrices_ShouldSendCorrectAlertToKafka() {
+    // Arrange
+    alertIndex.add(aboveAlert);
+    ArgumentCaptor<AlertTriggeredEvent> eventCaptor = ArgumentCaptor.forClass(AlertTriggeredEvent.class);
+
+    // Act
+    alertProcessingService.processStockPrices(List.of(stockPriceDTO));
+
+    // Assert
+    verify(alertKafkaTemplate).send(eq("alert-triggers"), eq("test@email.com"), eventCaptor.capture());
+    AlertTriggeredEvent event = eventCaptor.getValue();
+    assertEquals(aboveAlert.getId(), event.getAlertId(), "Correct alert should be sent to Kafka");
+    assertEquals(1L, event.getUserId());
+    assertEquals("AAPL", event.getSymbol());
+    assertEquals(ConditionType.ABOVE, event.getCondition());
+    assertEquals(140.00, event.getTargetValue());
+    assertEquals(150.00, event.getTriggerPrice());
+    assertTrue(aboveAlert.isTriggered(), "Alert should be marked as triggered before it is published");
   }
 
   @Test
-  void processStockPrice_ShouldSendCorrectAlertToKafka() {
+  void processStockPrices_WhenPercentageAlertFalls_ShouldPublishImpliedBelowCondition() {
     // Arrange
-    List<Alert> alerts = Collections.singletonList(aboveAlert);
-    when(alertService.findAllBySymbol("AAPL")).thenReturn(alerts);
-    ArgumentCaptor<Alert> alertCaptor = ArgumentCaptor.forClass(Alert.class);
+    Alert downFivePercent = Alert.builder()
+            .id(4L)
+            .stock(testStock)
+            .watchlist(testWatchlist)
+            .triggerType(TriggerType.PERCENTAGE_CHANGE_PRICE)
+            .percentageValue(-5.0)
+            .targetValue(155.00)
+            .build();
+    alertIndex.add(downFivePercent);
+    ArgumentCaptor<AlertTriggeredEvent> eventCaptor = ArgumentCaptor.forClass(AlertTriggeredEvent.class);
+
+    // Act
+    alertProcessingService.processStockPrices(List.of(stockPriceDTO));
+
+    // Assert
+    verify(alertKafkaTemplate).send(eq("alert-triggers"), eq("test@email.com"), eventCaptor.capture());
+    assertEquals(ConditionType.BELOW, eventCaptor.getValue().getCondition());
+    assertNull(downFivePercent.getCondition(), "The stored alert should be left as it was created");
+  }
+
+  @Test
+  void processStockPrices_WhenKafkaTemplateFails_ShouldNotFireAlertAgain() {
+    // Arrange
+    alertIndex.add(aboveAlert);
+    doThrow(new RuntimeException("Kafka error")).when(alertKafkaTemplate).send(anyString(), anyString(), any(AlertTriggeredEvent.class));
+
+    // Act
+    assertDoesNotThrow(() -> alertProcessingService.processStockPrices(List.of(stockPriceDTO)));
+
+    // Assert
+    assertTrue(aboveAlert.isTriggered(), "Persisted trigger state should be kept after Kafka failure");
+    assertEquals(0, alertIndex.size(), "Alert should not be returned to the index after Kafka failure");
+    verify(alertKafkaTemplate, times(1)).send(eq("alert-triggers"), eq("test@email.com"), eventOf(aboveAlert));
+  }
+
+  @Test
+  void processStockPrices_ShouldSubmitTriggerStateBeforePublishing() {
+    // Arrange
+    alertIndex.add(aboveAlert);
+    reset(alertTriggerWriter);
+
+    // Act
+    alertProcessingService.processStockPrices(List.of(stockPriceDTO));
+
+    // Assert
+    assertTrue(aboveAlert.isTriggered());
+    assertNotNull(aboveAlert.getTriggeredAt());
+    verify(alertTriggerWriter, times(1)).submit(eq(aboveAlert), any(Runnable.class));
+    verify(alertKafkaTemplate, never()).send(anyString(), anyString(), any(AlertTriggeredEvent.class));
+  }
+
+  @Test
+  void processStockPrices_WhenAlertAlreadyFired_ShouldNotTriggerOnNextTick() {
+    // Arrange
+    alertIndex.add(aboveAlert);
+
+    // Act
+    alertProcessingService.processStockPrices(List.of(stockPriceDTO));
+    alertProcessingService.processStockPrices(List.of(stockPriceDTO));
+
+    // Assert
+    verify(alertKafkaTemplate, times(1)).send(eq("alert-triggers"), eq("test@email.com"), eventOf(aboveAlert));
+    assertEquals(0, alertIndex.size());
+  }
+
+  @Test
+  void processStockPrices_ShouldEvaluateBatchLowAndHighPerSymbol() {
+    // Arrange
+    Alert above155 = createAlert(10L, ConditionType.ABOVE, 155.00, false);
+    Alert below145 = createAlert(11L, ConditionType.BELOW, 145.00, false);
+    Alert above170 = createAlert(12L, ConditionType.ABOVE, 170.00, false);
+    List.of(above155, below145, above170).forEach(alertIndex::add);
+
+    List<StockPriceDTO> batch = List.of(
+            StockPriceDTO.builder().symbol("AAPL").price(150.00).build(),
+            StockPriceDTO.builder().symbol("AAPL").price(156.00).build(),
+            StockPriceDTO.builder().symbol("AAPL").price(144.00).build(),
+            StockPriceDTO.builder().symbol("AAPL").price(151.00).build());
 
     // Act
-    alertProcessingService.processStockPrice(stockPriceDTO);
+    alertProcessingService.processStockPrices(batch);
 
     // Assert
-    verify(alertKafkaTemplate).send(eq("alert-triggers"), alertCaptor.capture());
-    Alert capturedAlert = alertCaptor.getValue();
-    assertEquals(aboveAlert.getId(), capturedAlert.getId(), "Correct alert should be sent to Kafka");
-    assertTrue(capturedAlert.isTriggered(), "Alert sent to Kafka should be marked as triggered");
+    assertTrue(above155.isTriggered(), "High of the batch should trigger the ABOVE alert");
+    assertTrue(below145.isTriggered(), "Low of the batch should trigger the BELOW alert");
+    assertFalse(above170.isTriggered(), "Alert outside the batch range should not trigger");
+    verify(alertKafkaTemplate, times(2)).send(eq("alert-triggers"), anyString(), any(AlertTriggeredEvent.class));
   }
 
   @Test
-  void processStockPrice_WhenKafkaTemplateFails_ShouldNotAffectAlertState() {
+  void processStockPrices_ShouldRecordConflationMetrics() {
     // Arrange
-    List<Alert> alerts = Collections.singletonList(aboveAlert);
-    when(alertService.findAllBySymbol("AAPL")).thenReturn(alerts);
-    doThrow(new RuntimeException("Kafka error")).when(alertKafkaTemplate).send(anyString(), any(Alert.class));
+    List<StockPriceDTO> batch = List.of(
+            StockPriceDTO.builder().symbol("AAPL").price(150.00).build(),
+            StockPriceDTO.builder().symbol("AAPL").price(151.00).build(),
+            StockPriceDTO.builder().symbol("MSFT").price(400.00).build());
 
     // Act
-    RuntimeException exception = assertThrows(RuntimeException.class,
-            () -> alertProcessingService.processStockPrice(stockPriceDTO));
+    alertProcessingService.processStockPrices(batch);
 
     // Assert
-    assertEquals("Kafka error", exception.getMessage());
-    assertFalse(aboveAlert.isTriggered(), "Alert should be marked as triggered before Kafka failure");
-    verify(alertKafkaTemplate, times(1)).send("alert-triggers", aboveAlert);
+    verify(conflationMetrics, times(1)).record("alerts", 3, 2);
   }
-}
\ No newline at end of file
+}
@@ -10,6 +10,7 @@ import com.erenkalkan.stockpulse.model.enums.ConditionType;
 import com.erenkalkan.stockpulse.model.enums.Role;
 import com.erenkalkan.stockpulse.model.enums.TriggerType;
 import com.erenkalkan.stockpulse.repository.AlertRepository;
+import com.erenkalkan.stockpulse.service.alert.AlertIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -42,6 +43,9 @@ class AlertServiceTest {
   @Mock
   private UserService userService;
 
+  @Mock
+  private AlertIndex alertIndex;
+
   @Mock
   private Authentication authentication;
 
@@ -239,6 +243,7 @@ class AlertServiceTest {
     verify(watchlistService, times(1)).getWatchlist(1L);
     verify(stocksService, times(1)).save(testStock);
     verify(alertRepository, times(1)).save(any(Alert.class));
+    verify(alertIndex, times(1)).add(testAlert);
   }
 
   @Test
@@ -326,6 +331,7 @@ class AlertServiceTest {
     verify(userService, times(1)).findByEmail("test@example.com");
     verify(alertRepository, times(1)).findById(alertId);
     verify(alertRepository, times(1)).delete(testAlert);
+    verify(alertIndex, times(1)).remove(testAlert);
   }
 
   @Test
@@ -409,5 +415,6 @@ class AlertServiceTest {
     verify(userService, times(1)).findByEmail("different@example.com");
     verify(alertRepository, times(1)).findById(alertId);
     verify(alertRepository, never()).delete(any());
+    verify(alertIndex, never()).remove(any());
   }
 }
\ No newline at end of file
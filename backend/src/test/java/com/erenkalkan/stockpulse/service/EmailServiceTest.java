@@ -1,5 +1,6 @@
 package com.erenkalkan.stockpulse.service;
 
+import com.erenkalkan.stockpulse.model.dto.AlertTriggeredEvent;
 import com.erenkalkan.stockpulse.model.entity.*;
 import com.erenkalkan.stockpulse.model.enums.ConditionType;
 import com.erenkalkan.stockpulse.model.enums.Role;
@@ -18,6 +19,7 @@ import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -199,29 +201,23 @@ class EmailServiceTest {
   }
 
   @Test
-  void sendAlertEmail_whenAlertConditionIsAbove_shouldSendEmailWithCorrectContent() {
-    // Arrange
-    ArgumentCaptor<SimpleMailMessage> messageCaptor = ArgumentCaptor.forClass(SimpleMailMessage.class);
-
+  void buildAlertEmail_whenAlertConditionIsAbove_shouldBuildEmailWithCorrectContent() {
     // Act
-    emailService.sendAlertEmail(testAlert);
+    SimpleMailMessage mail = emailService.buildAlertEmail(AlertTriggeredEvent.of(testAlert, 151.00), "Bruce");
 
     // Assert
-    verify(javaMailSender).send(messageCaptor.capture());
-    SimpleMailMessage sentMessage = messageCaptor.getValue();
-    System.out.println(sentMessage.getText());
-
-    assertNotNull(sentMessage);
-    assertEquals(TEST_FROM_EMAIL, sentMessage.getFrom());
-    assertEquals(TEST_EMAIL, sentMessage.getTo()[0]);
-    assertTrue(sentMessage.getSubject().contains("Your Alert for AAPL has been triggered!"));
-    assertTrue(sentMessage.getText().contains("Hey Bruce,"));
-    assertTrue(sentMessage.getText().contains("your Alert for the stock: " + TEST_STOCK_SYMBOL));
-    assertTrue(sentMessage.getText().contains("Price is now above your target of 150.00"));
+    assertNotNull(mail);
+    assertEquals(TEST_FROM_EMAIL, mail.getFrom());
+    assertEquals(TEST_EMAIL, mail.getTo()[0]);
+    assertTrue(mail.getSubject().contains("Your Alert for AAPL has been triggered!"));
+    assertTrue(mail.getText().contains("Hey Bruce,"));
+    assertTrue(mail.getText().contains("your Alert for the stock: " + TEST_STOCK_SYMBOL));
+    assertTrue(mail.getText().contains("Price is now above your target of 150.00"));
+    verify(javaMailSender, never()).send(any(SimpleMailMessage.class));
   }
 
   @Test
-  void sendAlertEmail_whenAlertConditionIsBelow_shouldSendEmailWithCorrectContent() {
+  void buildAlertEmail_whenAlertConditionIsBelow_shouldBuildEmailWithCorrectContent() {
     // Arrange
     testAlert = Alert.builder()
             .stock(testStock)
@@ -231,120 +227,56 @@ class EmailServiceTest {
             .targetValue(TEST_TARGET_VALUE)
             .build();
 
-    ArgumentCaptor<SimpleMailMessage> messageCaptor = ArgumentCaptor.forClass(SimpleMailMessage.class);
-
     // Act
-    emailService.sendAlertEmail(testAlert);
+    SimpleMailMessage mail = emailService.buildAlertEmail(AlertTriggeredEvent.of(testAlert, 149.00), "Bruce");
 
     // Assert
-    verify(javaMailSender).send(messageCaptor.capture());
-    SimpleMailMessage sentMessage = messageCaptor.getValue();
-
-    assertTrue(sentMessage.getText().contains("Price is now below your target of 150.00"));
+    assertTrue(mail.getText().contains("Price is now below your target of 150.00"));
   }
 
   @Test
-  void sendAlertEmail_shouldSetCorrectEmailFields() {
-    // Arrange
-    ArgumentCaptor<SimpleMailMessage> messageCaptor = ArgumentCaptor.forClass(SimpleMailMessage.class);
-
+  void buildAlertEmail_shouldSetCorrectEmailFields() {
     // Act
-    emailService.sendAlertEmail(testAlert);
+    SimpleMailMessage mail = emailService.buildAlertEmail(AlertTriggeredEvent.of(testAlert, 151.00), "Bruce");
 
     // Assert
-    verify(javaMailSender).send(messageCaptor.capture());
-    SimpleMailMessage sentMessage = messageCaptor.getValue();
-
-    assertEquals(TEST_FROM_EMAIL, sentMessage.getFrom());
-    assertEquals(1, sentMessage.getTo().length);
-    assertEquals(TEST_EMAIL, sentMessage.getTo()[0]);
-    assertNotNull(sentMessage.getText());
-    assertFalse(sentMessage.getText().isEmpty());
-    assertFalse(sentMessage.getSubject().isEmpty());
-  }
-
-  @Test
-  void sendAlertEmail_shouldIncludeUserFirstNameInMessage() {
-    // Arrange
-    ArgumentCaptor<SimpleMailMessage> messageCaptor = ArgumentCaptor.forClass(SimpleMailMessage.class);
-
-    // Act
-    emailService.sendAlertEmail(testAlert);
-
-    // Assert
-    verify(javaMailSender).send(messageCaptor.capture());
-    SimpleMailMessage sentMessage = messageCaptor.getValue();
-
-    assertTrue(sentMessage.getText().contains("Hey " + testUser.getFirstName() + ","));
+    assertEquals(TEST_FROM_EMAIL, mail.getFrom());
+    assertEquals(1, mail.getTo().length);
+    assertEquals(TEST_EMAIL, mail.getTo()[0]);
+    assertNotNull(mail.getText());
+    assertFalse(mail.getText().isEmpty());
+    assertFalse(mail.getSubject().isEmpty());
   }
 
   @Test
-  void sendAlertEmail_shouldIncludeStockSymbolInMessage() {
-    // Arrange
-    ArgumentCaptor<SimpleMailMessage> messageCaptor = ArgumentCaptor.forClass(SimpleMailMessage.class);
-
+  void buildAlertEmail_shouldIncludeStockSymbolInMessage() {
     // Act
-    emailService.sendAlertEmail(testAlert);
+    SimpleMailMessage mail = emailService.buildAlertEmail(AlertTriggeredEvent.of(testAlert, 151.00), "Bruce");
 
     // Assert
-    verify(javaMailSender).send(messageCaptor.capture());
-    SimpleMailMessage sentMessage = messageCaptor.getValue();
-
-    assertTrue(sentMessage.getText().contains("stock: " + TEST_STOCK_SYMBOL));
+    assertTrue(mail.getText().contains("stock: " + TEST_STOCK_SYMBOL));
   }
 
   @Test
-  void sendAlertEmail_shouldFormatTargetValueWithTwoDecimals() {
+  void buildAlertEmail_shouldFormatTargetValueWithTwoDecimals() {
     // Arrange
-    Double targetValue = 12345.00;
     testAlert = Alert.builder()
             .stock(testStock)
             .watchlist(testWatchlist)
             .triggerType(TriggerType.TO_PRICE)
             .condition(ConditionType.ABOVE)
-            .targetValue(targetValue)
+            .targetValue(12345.00)
             .build();
 
-    ArgumentCaptor<SimpleMailMessage> messageCaptor = ArgumentCaptor.forClass(SimpleMailMessage.class);
-
     // Act
-    emailService.sendAlertEmail(testAlert);
+    SimpleMailMessage mail = emailService.buildAlertEmail(AlertTriggeredEvent.of(testAlert, 12346.00), "Bruce");
 
     // Assert
-    verify(javaMailSender).send(messageCaptor.capture());
-    SimpleMailMessage sentMessage = messageCaptor.getValue();
-
-    assertTrue(sentMessage.getText().contains("12345.00"));
-  }
-
-  @Test
-  void sendAlertEmail_whenJavaMailSenderThrowsException_shouldThrowMailSendException() {
-    // Arrange
-    RuntimeException mailException = new RuntimeException("SMTP server unavailable");
-    doThrow(mailException).when(javaMailSender).send(any(SimpleMailMessage.class));
-
-    // Act & Assert
-    MailSendException exception = assertThrows(
-            MailSendException.class,
-            () -> emailService.sendAlertEmail(testAlert)
-    );
-
-    assertTrue(exception.getMessage().contains("Failed to send alert trigger email"));
-    assertEquals(mailException, exception.getCause());
-    verify(javaMailSender).send(any(SimpleMailMessage.class));
-  }
-
-  @Test
-  void sendAlertEmail_shouldCallJavaMailSenderExactlyOnce() {
-    // Act
-    emailService.sendAlertEmail(testAlert);
-
-    // Assert
-    verify(javaMailSender, times(1)).send(any(SimpleMailMessage.class));
+    assertTrue(mail.getText().contains("12345.00"));
   }
 
   @Test
-  void sendAlertEmail_withDifferentAlertConditions_shouldUseCorrectConditionText() {
+  void buildAlertEmail_withDifferentAlertConditions_shouldUseCorrectConditionText() {
 
     for (ConditionType condition : ConditionType.values()) {
       // Arrange
@@ -356,22 +288,51 @@ class EmailServiceTest {
               .targetValue(TEST_TARGET_VALUE)
               .build();
 
-      ArgumentCaptor<SimpleMailMessage> messageCaptor = ArgumentCaptor.forClass(SimpleMailMessage.class);
-
       // Act
-      emailService.sendAlertEmail(alert);
+      SimpleMailMessage mail = emailService.buildAlertEmail(AlertTriggeredEvent.of(alert, TEST_TARGET_VALUE), "Bruce");
 
       // Assert
-      verify(javaMailSender).send(messageCaptor.capture());
-      SimpleMailMessage sentMessage = messageCaptor.getValue();
-
       String expectedConditionText = condition.toString().toLowerCase();
-      assertTrue(sentMessage.getText().contains("Price is now " + expectedConditionText + " your target"));
-
-      // Reset mock for next iteration
-      reset(javaMailSender);
+      assertTrue(mail.getText().contains("Price is now " + expectedConditionText + " your target"));
     }
   }
 
+  @Test
+  void buildAlertDigestEmail_shouldListEveryAlertInOneEmail() {
+    // Arrange
+    AlertTriggeredEvent aaplEvent = AlertTriggeredEvent.of(testAlert, 151.00);
+    AlertTriggeredEvent msftEvent = AlertTriggeredEvent.builder()
+            .email(TEST_EMAIL)
+            .symbol("MSFT")
+            .condition(ConditionType.BELOW)
+            .targetValue(400.00)
+            .build();
+
+    // Act
+    SimpleMailMessage mail = emailService.buildAlertDigestEmail(List.of(aaplEvent, msftEvent), "Bruce");
+
+    // Assert
+    assertEquals(TEST_FROM_EMAIL, mail.getFrom());
+    assertEquals(TEST_EMAIL, mail.getTo()[0]);
+    assertEquals("2 of your Alerts have been triggered!", mail.getSubject());
+    assertTrue(mail.getText().contains("Hey Bruce,"));
+    assertTrue(mail.getText().contains("AAPL: Price is now above your target of 150.00"));
+    assertTrue(mail.getText().contains("MSFT: Price is now below your target of 400.00"));
+    verify(javaMailSender, never()).send(any(SimpleMailMessage.class));
+  }
+
+  @Test
+  void buildAlertEmail_shouldUseEventAndGivenFirstName() {
+    // Arrange
+    AlertTriggeredEvent event = AlertTriggeredEvent.of(testAlert, 151.00);
+
+    // Act
+    SimpleMailMessage mail = emailService.buildAlertEmail(event, "Bruce");
 
-}
\ No newline at end of file
+    // Assert
+    assertEquals(TEST_EMAIL, mail.getTo()[0]);
+    assertEquals("Your Alert for AAPL has been triggered!", mail.getSubject());
+    assertTrue(mail.getText().contains("Hey Bruce,"));
+    assertTrue(mail.getText().contains("Price is now above your target of 150.00"));
+  }
+}
@@ -0,0 +1,120 @@
+package com.erenkalkan.stockpulse.service;
+
+import com.erenkalkan.stockpulse.model.dto.StockPriceDTO;
+import com.erenkalkan.stockpulse.model.dto.StockQuoteDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LastTradeTableTest {
+
+  private final LastTradeTable lastTradeTable = new LastTradeTable();
+  private final long now = System.currentTimeMillis();
+
+  private StockPriceDTO trade(double price, long timestamp, double volume) {
+    return StockPriceDTO.builder()
+            .symbol("AAPL")
+            .price(price)
+            .timestamp(timestamp)
+            .volume(volume)
+            .build();
+  }
+
+  @Test
+  void record_ShouldTrackLastPriceDayRangeAndVolume() {
+    // Act
+    lastTradeTable.recordAll(List.of(
+            trade(150.00, now, 10),
+            trade(152.00, now + 1, 5),
+            trade(149.00, now + 2, 20),
+            trade(151.00, now + 3, 1)));
+
+    // Assert
+    StockQuoteDTO quote = lastTradeTable.getQuote("AAPL");
+    assertEquals(151.00, quote.getPrice());
+    assertEquals(now + 3, quote.getTimestamp());
+    assertEquals(152.00, quote.getDayHigh());
+    assertEquals(149.00, quote.getDayLow());
+    assertEquals(36, quote.getVolume());
+    assertNull(quote.getPreviousClose());
+  }
+
+  @Test
+  void recordAll_WithNullTrade_ShouldSkipItAndRecordTheRest() {
+    // Act
+    lastTradeTable.recordAll(Arrays.asList(trade(150.00, now, 10), null, trade(151.00, now + 1, 5)));
+
+    // Assert
+    StockQuoteDTO quote = lastTradeTable.getQuote("AAPL");
+    assertEquals(151.00, quote.getPrice());
+    assertEquals(15, quote.getVolume());
+  }
+
+  @Test
+  void record_OutOfOrderTrade_ShouldNotReplaceNewerPrice() {
+    // Act
+    lastTradeTable.record(trade(150.00, now, 10));
+    lastTradeTable.record(trade(160.00, now - 1, 10));
+
+    // Assert
+    StockQuoteDTO quote = lastTradeTable.getQuote("AAPL");
+    assertEquals(150.00, quote.getPrice());
+    assertEquals(160.00, quote.getDayHigh());
+    assertEquals(20, quote.getVolume());
+  }
+
+  @Test
+  void record_OnNewTradingDay_ShouldResetRangeAndVolume() {
+    // Arrange
+    lastTradeTable.record(trade(200.00, now - TimeUnit.DAYS.toMillis(1), 50));
+
+    // Act
+    lastTradeTable.record(trade(150.00, now, 10));
+
+    // Assert
+    StockQuoteDTO quote = lastTradeTable.getQuote("AAPL");
+    assertEquals(150.00, quote.getDayHigh());
+    assertEquals(150.00, quote.getDayLow());
+    assertEquals(10, quote.getVolume());
+  }
+
+  @Test
+  void seed_ShouldKeepStreamedPriceAndAddPreviousClose() {
+    // Arrange
+    lastTradeTable.record(trade(150.00, now, 10));
+
+    // Act
+    StockQuoteDTO quote = lastTradeTable.seed("AAPL", StockQuoteDTO.builder()
+            .price(148.00)
+            .timestamp(now - 1000)
+            .dayHigh(155.00)
+            .dayLow(147.00)
+            .previousClose(145.00)
+            .build());
+
+    // Assert
+    assertEquals(150.00, quote.getPrice());
+    assertEquals(155.00, quote.getDayHigh());
+    assertEquals(147.00, quote.getDayLow());
+    assertEquals(10, quote.getVolume());
+    assertEquals(145.00, lastTradeTable.getPreviousClose("AAPL"));
+  }
+
+  @Test
+  void getQuotes_ShouldSkipSymbolsWithoutPrice() {
+    // Arrange
+    lastTradeTable.record(trade(150.00, now, 10));
+    lastTradeTable.seed("MSFT", StockQuoteDTO.builder().previousClose(400.00).build());
+
+    // Act
+    List<StockQuoteDTO> quotes = lastTradeTable.getQuotes(List.of("MSFT", "AAPL", "TSLA"));
+
+    // Assert
+    assertEquals(1, quotes.size());
+    assertEquals("AAPL", quotes.get(0).getSymbol());
+  }
+}
@@ -2,11 +2,15 @@ package com.erenkalkan.stockpulse.service;
 
 import com.erenkalkan.stockpulse.model.dto.NewsResponseDTO;
 import com.erenkalkan.stockpulse.exception.InvalidInputException;
+import com.erenkalkan.stockpulse.service.cache.MarketDataCache;
+import com.erenkalkan.stockpulse.service.upstream.UpstreamScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.RestClient;
@@ -34,6 +38,12 @@ class NewsServiceTest {
   @Mock
   private RestClient.ResponseSpec responseSpec;
 
+  @Spy
+  private MarketDataCache marketDataCache = new MarketDataCache(new SimpleMeterRegistry(), 1000);
+
+  @Spy
+  private UpstreamScheduler upstreamScheduler = new UpstreamScheduler(new SimpleMeterRegistry(), 1000, 1000, 1000);
+
   @InjectMocks
   private NewsService newsService;
 
@@ -268,4 +278,41 @@ class NewsServiceTest {
     newsItem.put("url", url);
     return newsItem;
   }
-}
\ No newline at end of file
+
+  @Test
+  void getMarketNews_WhenCached_ShouldNotCallApiAgain() {
+    // Arrange
+    ReflectionTestUtils.setField(newsService, "marketNewsTtlMs", 60_000L);
+    when(restClient.get()).thenReturn(requestHeadersUriSpec);
+    when(requestHeadersUriSpec.uri(anyString())).thenReturn(requestHeadersSpec);
+    when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+    when(responseSpec.body(List.class)).thenReturn(createMockNewsResponse());
+
+    // Act
+    List<NewsResponseDTO> first = newsService.getMarketNews();
+    List<NewsResponseDTO> second = newsService.getMarketNews();
+
+    // Assert
+    assertEquals(first, second);
+    verify(restClient, times(1)).get();
+  }
+
+  @Test
+  void getMarketNews_WhenResponseEmpty_ShouldNotCacheIt() {
+    // Arrange
+    ReflectionTestUtils.setField(newsService, "marketNewsTtlMs", 60_000L);
+    when(restClient.get()).thenReturn(requestHeadersUriSpec);
+    when(requestHeadersUriSpec.uri(anyString())).thenReturn(requestHeadersSpec);
+    when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+    when(responseSpec.body(List.class)).thenReturn(List.of(), createMockNewsResponse());
+
+    // Act
+    List<NewsResponseDTO> first = newsService.getMarketNews();
+    List<NewsResponseDTO> second = newsService.getMarketNews();
+
+    // Assert
+    assertTrue(first.isEmpty());
+    assertFalse(second.isEmpty());
+    verify(restClient, times(2)).get();
+  }
+}
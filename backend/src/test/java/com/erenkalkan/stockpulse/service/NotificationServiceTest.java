@@ -1,14 +1,8 @@
 package com.erenkalkan.stockpulse.service;
 
-import com.erenkalkan.stockpulse.model.enums.Role;
-import com.erenkalkan.stockpulse.model.enums.TriggerType;
-import com.erenkalkan.stockpulse.service.websocket.AlertTriggerWebSocketHandler;
-import com.erenkalkan.stockpulse.model.entity.Alert;
-import com.erenkalkan.stockpulse.model.entity.Stock;
-import com.erenkalkan.stockpulse.model.entity.User;
-import com.erenkalkan.stockpulse.model.entity.Watchlist;
+import com.erenkalkan.stockpulse.model.dto.AlertTriggeredEvent;
 import com.erenkalkan.stockpulse.model.enums.ConditionType;
-import org.junit.jupiter.api.BeforeEach;
+import com.erenkalkan.stockpulse.service.websocket.AlertTriggerWebSocketHandler;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -22,42 +16,23 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class NotificationServiceTest {
 
+  private static final String EMAIL = "test@email.com";
+
   @Mock
   private AlertTriggerWebSocketHandler webSocketHandler;
 
   @InjectMocks
   private NotificationService notificationService;
 
-  private User user;
-  private Stock stock;
-  private Watchlist watchlist;
-  private Alert alert;
-
-  @BeforeEach
-  void setUp() {
-    // Arrange
-    user = User.builder()
-            .firstName("Bruce")
-            .email("test@email.com")
-            .role(Role.REGULAR_USER)
-            .build();
-
-    stock = Stock.builder()
-            .companyName("Apple Inc.")
-            .symbol("AAPL")
-            .build();
-
-    watchlist = Watchlist.builder()
-            .watchlistName("Test Watchlist")
-            .user(user)
-            .build();
-
-    alert = Alert.builder()
-            .stock(stock)
-            .watchlist(watchlist)
-            .triggerType(TriggerType.TO_PRICE)
-            .condition(ConditionType.ABOVE)
-            .targetValue(150.00)
+  private AlertTriggeredEvent createEvent(String symbol, ConditionType condition, double targetValue) {
+    return AlertTriggeredEvent.builder()
+            .alertId(1L)
+            .userId(1L)
+            .email(EMAIL)
+            .symbol(symbol)
+            .condition(condition)
+            .targetValue(targetValue)
+            .triggerPrice(targetValue)
             .build();
   }
 
@@ -70,42 +45,39 @@ class NotificationServiceTest {
   void sendAlertNotification_WithValidAlert_ShouldBroadcastMessage() throws Exception {
     // Arrange
     String expectedMessage = formatExpectedMessage("AAPL", "above", 150.0);
-    doNothing().when(webSocketHandler).broadcast(eq(user), eq(expectedMessage));
+    doNothing().when(webSocketHandler).broadcast(eq(EMAIL), eq(expectedMessage));
 
     // Act
-    notificationService.sendAlertNotification(alert);
+    notificationService.sendAlertNotification(createEvent("AAPL", ConditionType.ABOVE, 150.00));
 
     // Assert
-    verify(webSocketHandler, times(1)).broadcast(user, expectedMessage);
+    verify(webSocketHandler, times(1)).broadcast(EMAIL, expectedMessage);
   }
 
   @Test
   void sendAlertNotification_WithBelowCondition_ShouldFormatMessageCorrectly() throws Exception {
     // Arrange
-    alert.setCondition(ConditionType.BELOW);
-    alert.setTargetValue(100.0);
     String expectedMessage = formatExpectedMessage("AAPL", "below", 100.0);
-    doNothing().when(webSocketHandler).broadcast(eq(user), eq(expectedMessage));
+    doNothing().when(webSocketHandler).broadcast(eq(EMAIL), eq(expectedMessage));
 
     // Act
-    notificationService.sendAlertNotification(alert);
+    notificationService.sendAlertNotification(createEvent("AAPL", ConditionType.BELOW, 100.0));
 
     // Assert
-    verify(webSocketHandler, times(1)).broadcast(user, expectedMessage);
+    verify(webSocketHandler, times(1)).broadcast(EMAIL, expectedMessage);
   }
 
   @Test
   void sendAlertNotification_WithDifferentStock_ShouldIncludeCorrectSymbol() throws Exception {
     // Arrange
-    stock.setSymbol("GOOGL");
     String expectedMessage = formatExpectedMessage("GOOGL", "above", 150.0);
-    doNothing().when(webSocketHandler).broadcast(eq(user), eq(expectedMessage));
+    doNothing().when(webSocketHandler).broadcast(eq(EMAIL), eq(expectedMessage));
 
     // Act
-    notificationService.sendAlertNotification(alert);
+    notificationService.sendAlertNotification(createEvent("GOOGL", ConditionType.ABOVE, 150.00));
 
     // Assert
-    verify(webSocketHandler, times(1)).broadcast(user, expectedMessage);
+    verify(webSocketHandler, times(1)).broadcast(EMAIL, expectedMessage);
   }
 
   @Test
@@ -113,41 +85,39 @@ class NotificationServiceTest {
     // Arrange
     String expectedMessage = formatExpectedMessage("AAPL", "above", 150.0);
     RuntimeException exception = new RuntimeException("WebSocket connection failed");
-    doThrow(exception).when(webSocketHandler).broadcast(eq(user), eq(expectedMessage));
+    doThrow(exception).when(webSocketHandler).broadcast(eq(EMAIL), eq(expectedMessage));
 
     // Act
-    notificationService.sendAlertNotification(alert);
+    notificationService.sendAlertNotification(createEvent("AAPL", ConditionType.ABOVE, 150.00));
 
     // Assert
-    verify(webSocketHandler, times(1)).broadcast(user, expectedMessage);
+    verify(webSocketHandler, times(1)).broadcast(EMAIL, expectedMessage);
   }
 
   @Test
   void sendAlertNotification_WithLongTargetValue_ShouldFormatToTwoDecimalPlaces() throws Exception {
     // Arrange
-    alert.setTargetValue(150.75);
     String expectedMessage = formatExpectedMessage("AAPL", "above", 150.75);
-    doNothing().when(webSocketHandler).broadcast(eq(user), eq(expectedMessage));
+    doNothing().when(webSocketHandler).broadcast(eq(EMAIL), eq(expectedMessage));
 
     // Act
-    notificationService.sendAlertNotification(alert);
+    notificationService.sendAlertNotification(createEvent("AAPL", ConditionType.ABOVE, 150.75));
 
     // Assert
-    verify(webSocketHandler, times(1)).broadcast(user, expectedMessage);
+    verify(webSocketHandler, times(1)).broadcast(EMAIL, expectedMessage);
   }
 
   @Test
   void sendAlertNotification_WithWholeNumberTarget_ShouldStillShowTwoDecimalPlaces() throws Exception {
     // Arrange
-    alert.setTargetValue(200.0);
     String expectedMessage = formatExpectedMessage("AAPL", "above", 200.0);
-    doNothing().when(webSocketHandler).broadcast(eq(user), eq(expectedMessage));
+    doNothing().when(webSocketHandler).broadcast(eq(EMAIL), eq(expectedMessage));
 
     // Act
-    notificationService.sendAlertNotification(alert);
+    notificationService.sendAlertNotification(createEvent("AAPL", ConditionType.ABOVE, 200.0));
 
     // Assert
-    verify(webSocketHandler, times(1)).broadcast(user, expectedMessage);
+    verify(webSocketHandler, times(1)).broadcast(EMAIL, expectedMessage);
   }
 
   @Test
@@ -155,37 +125,29 @@ class NotificationServiceTest {
     // Arrange
     String expectedMessage = formatExpectedMessage("AAPL", "above", 150.0);
     IllegalStateException exception = new IllegalStateException("Unexpected error");
-    doThrow(exception).when(webSocketHandler).broadcast(eq(user), eq(expectedMessage));
+    doThrow(exception).when(webSocketHandler).broadcast(eq(EMAIL), eq(expectedMessage));
 
     // Act
-    notificationService.sendAlertNotification(alert);
+    notificationService.sendAlertNotification(createEvent("AAPL", ConditionType.ABOVE, 150.00));
 
     // Assert
-    verify(webSocketHandler, times(1)).broadcast(user, expectedMessage);
+    verify(webSocketHandler, times(1)).broadcast(EMAIL, expectedMessage);
   }
 
   @Test
   void sendAlertNotification_WithMultipleCalls_ShouldHandleEachIndependently() throws Exception {
     // Arrange
-    Alert secondAlert = new Alert();
-    Stock secondStock = new Stock();
-    secondStock.setSymbol("TSLA");
-    secondAlert.setStock(secondStock);
-    secondAlert.setWatchlist(watchlist);
-    secondAlert.setTargetValue(800.00);
-    secondAlert.setCondition(ConditionType.BELOW);
-
     String firstMessage = formatExpectedMessage("AAPL", "above", 150.00);
     String secondMessage = formatExpectedMessage("TSLA", "below", 800.00);
 
-    doNothing().when(webSocketHandler).broadcast(eq(user), any(String.class));
+    doNothing().when(webSocketHandler).broadcast(eq(EMAIL), any(String.class));
 
     // Act
-    notificationService.sendAlertNotification(alert);
-    notificationService.sendAlertNotification(secondAlert);
+    notificationService.sendAlertNotification(createEvent("AAPL", ConditionType.ABOVE, 150.00));
+    notificationService.sendAlertNotification(createEvent("TSLA", ConditionType.BELOW, 800.00));
 
     // Assert
-    verify(webSocketHandler, times(1)).broadcast(user, firstMessage);
-    verify(webSocketHandler, times(1)).broadcast(user, secondMessage);
+    verify(webSocketHandler, times(1)).broadcast(EMAIL, firstMessage);
+    verify(webSocketHandler, times(1)).broadcast(EMAIL, secondMessage);
   }
-}
\ No newline at end of file
+}
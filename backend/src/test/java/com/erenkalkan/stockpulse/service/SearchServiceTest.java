@@ -2,11 +2,15 @@ package com.erenkalkan.stockpulse.service;
 
 import com.erenkalkan.stockpulse.model.dto.SearchTickerResponseDTO;
 import com.erenkalkan.stockpulse.exception.InvalidInputException;
+import com.erenkalkan.stockpulse.service.cache.MarketDataCache;
+import com.erenkalkan.stockpulse.service.upstream.UpstreamScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.RestClient;
@@ -35,6 +39,12 @@ class SearchServiceTest {
   @Mock
   private RestClient.ResponseSpec responseSpec;
 
+  @Spy
+  private MarketDataCache marketDataCache = new MarketDataCache(new SimpleMeterRegistry(), 1000);
+
+  @Spy
+  private UpstreamScheduler upstreamScheduler = new UpstreamScheduler(new SimpleMeterRegistry(), 1000, 1000, 1000);
+
   @InjectMocks
   private SearchService searchService;
 
@@ -242,6 +252,23 @@ class SearchServiceTest {
     verify(requestHeadersUriSpec).uri(expectedUrl);
   }
 
+  @Test
+  void searchTicker_InputWithSpacesAndLowerCase_SendsNormalizedQuery() {
+    // Arrange
+    String expectedUrl = TEST_URL + "search?q=GOOGL&token=" + TEST_KEY;
+
+    when(restClient.get()).thenReturn(requestHeadersUriSpec);
+    when(requestHeadersUriSpec.uri(expectedUrl)).thenReturn(requestHeadersSpec);
+    when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+    when(responseSpec.body(Map.class)).thenReturn(createMockApiResponse());
+
+    // Act
+    searchService.searchTicker("  googl ");
+
+    // Assert
+    verify(requestHeadersUriSpec).uri(expectedUrl);
+  }
+
   @Test
   void searchTicker_ResultsWithNullValues_HandlesGracefully() {
     // Arrange
@@ -305,4 +332,22 @@ class SearchServiceTest {
     response.put("result", List.of(result1));
     return response;
   }
-}
\ No newline at end of file
+
+  @Test
+  void searchTicker_WhenCached_ShouldNotCallApiAgain() {
+    // Arrange
+    ReflectionTestUtils.setField(searchService, "searchTtlMs", 60_000L);
+    when(restClient.get()).thenReturn(requestHeadersUriSpec);
+    when(requestHeadersUriSpec.uri(anyString())).thenReturn(requestHeadersSpec);
+    when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+    when(responseSpec.body(Map.class)).thenReturn(createMockApiResponse());
+
+    // Act
+    List<SearchTickerResponseDTO> first = searchService.searchTicker("AAPL");
+    List<SearchTickerResponseDTO> second = searchService.searchTicker(" aapl ");
+
+    // Assert
+    assertEquals(first, second);
+    verify(restClient, times(1)).get();
+  }
+}
@@ -3,20 +3,27 @@ package com.erenkalkan.stockpulse.service;
 import com.erenkalkan.stockpulse.exception.InvalidInputException;
 import com.erenkalkan.stockpulse.model.dto.StockDTO;
 import com.erenkalkan.stockpulse.model.dto.StockDataDTO;
+import com.erenkalkan.stockpulse.model.dto.StockPriceDTO;
+import com.erenkalkan.stockpulse.model.dto.StockQuoteDTO;
 import com.erenkalkan.stockpulse.model.entity.Stock;
 import com.erenkalkan.stockpulse.repository.StockRepository;
+import com.erenkalkan.stockpulse.service.cache.MarketDataCache;
+import com.erenkalkan.stockpulse.service.upstream.UpstreamScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientException;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -37,6 +44,15 @@ class StocksServiceTest {
   @Mock
   private StockRepository stockRepository;
 
+  @Spy
+  private LastTradeTable lastTradeTable = new LastTradeTable();
+
+  @Spy
+  private MarketDataCache marketDataCache = new MarketDataCache(new SimpleMeterRegistry(), 1000);
+
+  @Spy
+  private UpstreamScheduler upstreamScheduler = new UpstreamScheduler(new SimpleMeterRegistry(), 1000, 1000, 1000);
+
   @InjectMocks
   private StocksService stocksService;
 
@@ -49,9 +65,10 @@ class StocksServiceTest {
     ReflectionTestUtils.setField(stocksService, "finnhubKey", "test-finnhub-key");
     ReflectionTestUtils.setField(stocksService, "polygonUrl", "https://api.polygon.io/");
     ReflectionTestUtils.setField(stocksService, "polygonKey", "test-polygon-key");
-
-    ConcurrentHashMap<String, Object> cache = new ConcurrentHashMap<>();
-    ReflectionTestUtils.setField(stocksService, "cache", cache);
+    ReflectionTestUtils.setField(stocksService, "detailsTimeoutMs", 5000L);
+    ReflectionTestUtils.setField(stocksService, "sectionTimeoutMs", 5000L);
+    ReflectionTestUtils.setField(stocksService, "stockProfileTtlMs", 86_400_000L);
+    ReflectionTestUtils.setField(stocksService, "companyNameTtlMs", 86_400_000L);
   }
 
   @Test
@@ -100,6 +117,104 @@ class StocksServiceTest {
     verify(restClient, times(3)).get(); // Called for polygon, financials, and recommendations
   }
 
+  @Test
+  void getStock_WhenRecommendationsTimeOut_ShouldReturnPartialResult() {
+    // Arrange
+    ReflectionTestUtils.setField(stocksService, "sectionTimeoutMs", 50L);
+    when(restClient.get()).thenReturn(requestHeadersUriSpec);
+    when(requestHeadersUriSpec.uri(anyString())).thenReturn(requestHeadersUriSpec);
+    when(requestHeadersUriSpec.retrieve()).thenReturn(responseSpec);
+    when(responseSpec.body(Map.class)).thenReturn(createPolygonStockDataResponse());
+    when(responseSpec.body(List.class)).thenAnswer(invocation -> {
+      Thread.sleep(1000);
+      return createRecommendationsResponse();
+    });
+
+    // Act
+    long start = System.nanoTime();
+    StockDTO result = stocksService.getStock(TEST_SYMBOL);
+    long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+    // Assert
+    assertEquals(TEST_COMPANY_NAME, result.getData().getName());
+    assertNotNull(result.getRecommendations());
+    assertEquals(0, result.getRecommendations().getBuy());
+    assertTrue(elapsedMs < 1000, "Should not wait for the timed out section");
+  }
+
+  @Test
+  void getStock_WhenDetailsTimeOut_ShouldThrowRestClientException() {
+    // Arrange
+    ReflectionTestUtils.setField(stocksService, "detailsTimeoutMs", 50L);
+    when(restClient.get()).thenReturn(requestHeadersUriSpec);
+    when(requestHeadersUriSpec.uri(anyString())).thenReturn(requestHeadersUriSpec);
+    when(requestHeadersUriSpec.retrieve()).thenReturn(responseSpec);
+    when(responseSpec.body(Map.class)).thenAnswer(invocation -> {
+      Thread.sleep(1000);
+      return createPolygonStockDataResponse();
+    });
+    lenient().when(responseSpec.body(List.class)).thenReturn(createRecommendationsResponse());
+
+    // Act & Assert
+    RestClientException exception = assertThrows(RestClientException.class,
+            () -> stocksService.getStock(TEST_SYMBOL));
+
+    assertEquals("Timed out fetching stock data from Polygon API", exception.getMessage());
+  }
+
+  @Test
+  void getStock_WithKnownCompanyName_ShouldNotWaitForDetailsToFetchFinancials() {
+    // Arrange
+    when(restClient.get()).thenReturn(requestHeadersUriSpec);
+    when(requestHeadersUriSpec.retrieve()).thenReturn(responseSpec);
+    when(responseSpec.body(Map.class)).thenReturn(createPolygonStockDataResponse());
+    when(responseSpec.body(List.class)).thenReturn(createRecommendationsResponse());
+    when(requestHeadersUriSpec.uri(anyString())).thenReturn(requestHeadersUriSpec);
+    stocksService.getStock(TEST_SYMBOL);
+
+    CountDownLatch financialsStarted = new CountDownLatch(1);
+    when(requestHeadersUriSpec.uri(anyString())).thenAnswer(invocation -> {
+      String uri = invocation.getArgument(0);
+      if (uri.contains("financials")) {
+        financialsStarted.countDown();
+      } else if (uri.contains("v3/reference/tickers") && !financialsStarted.await(1, TimeUnit.SECONDS)) {
+        throw new IllegalStateException("Financials waited for the ticker details");
+      }
+      return requestHeadersUriSpec;
+    });
+
+    // Act
+    StockDTO result = stocksService.getStock(TEST_SYMBOL);
+
+    // Assert
+    assertEquals(TEST_COMPANY_NAME, result.getData().getName());
+    assertEquals(0, financialsStarted.getCount());
+  }
+
+  @Test
+  void getStock_WhenSectionsCached_ShouldNotCallApisAgain() {
+    // Arrange
+    ReflectionTestUtils.setField(stocksService, "stockDetailsTtlMs", 60_000L);
+    ReflectionTestUtils.setField(stocksService, "stockFinancialsTtlMs", 60_000L);
+    ReflectionTestUtils.setField(stocksService, "stockRecommendationsTtlMs", 60_000L);
+    when(restClient.get()).thenReturn(requestHeadersUriSpec);
+    when(requestHeadersUriSpec.uri(anyString())).thenReturn(requestHeadersUriSpec);
+    when(requestHeadersUriSpec.retrieve()).thenReturn(responseSpec);
+    Map<String, Object> financialsResponse = Map.of("results", List.of(Map.of("financials", Map.of())));
+    when(responseSpec.body(Map.class)).thenReturn(createPolygonStockDataResponse(), financialsResponse);
+    when(responseSpec.body(List.class)).thenReturn(createRecommendationsResponse());
+
+    // Act
+    StockDTO first = stocksService.getStock(TEST_SYMBOL);
+    StockDTO second = stocksService.getStock(TEST_SYMBOL);
+
+    // Assert
+    assertEquals(first.getData(), second.getData());
+    assertEquals(first.getRecommendations(), second.getRecommendations());
+    assertNotNull(second.getFinancials());
+    verify(restClient, times(3)).get();
+  }
+
   @Test
   void getStockDataForHomePage_WithValidSymbol_ShouldReturnStockData() {
     // Arrange
@@ -248,6 +363,56 @@ class StocksServiceTest {
     verify(restClient, times(1)).get();
   }
 
+  @Test
+  void fetchStockClosePrice_ShouldOnlyCallFinnhubOncePerTradingDay() {
+    // Arrange
+    when(restClient.get()).thenReturn(requestHeadersUriSpec);
+    when(requestHeadersUriSpec.uri(anyString())).thenReturn(requestHeadersUriSpec);
+    when(requestHeadersUriSpec.retrieve()).thenReturn(responseSpec);
+
+    Map<String, Double> priceResponse = new HashMap<>();
+    priceResponse.put("pc", 150.25);
+    when(responseSpec.body(Map.class)).thenReturn(priceResponse);
+
+    // Act
+    Double first = stocksService.fetchStockClosePrice(TEST_SYMBOL);
+    Double second = stocksService.fetchStockClosePrice(TEST_SYMBOL);
+
+    // Assert
+    assertEquals(150.25, first, 0.01);
+    assertEquals(150.25, second, 0.01);
+    verify(restClient, times(1)).get();
+  }
+
+  @Test
+  void getQuote_WhenSymbolHasTraded_ShouldKeepStreamedPrice() {
+    // Arrange
+    lastTradeTable.record(StockPriceDTO.builder()
+            .symbol(TEST_SYMBOL)
+            .price(151.00)
+            .timestamp(System.currentTimeMillis())
+            .volume(10)
+            .build());
+    when(restClient.get()).thenReturn(requestHeadersUriSpec);
+    when(requestHeadersUriSpec.uri(anyString())).thenReturn(requestHeadersUriSpec);
+    when(requestHeadersUriSpec.retrieve()).thenReturn(responseSpec);
+
+    Map<String, Double> quoteResponse = new HashMap<>();
+    quoteResponse.put("c", 149.00);
+    quoteResponse.put("pc", 150.25);
+    when(responseSpec.body(Map.class)).thenReturn(quoteResponse);
+
+    // Act
+    StockQuoteDTO first = stocksService.getQuote(TEST_SYMBOL);
+    StockQuoteDTO second = stocksService.getQuote(TEST_SYMBOL);
+
+    // Assert
+    assertEquals(151.00, first.getPrice());
+    assertEquals(150.25, first.getPreviousClose());
+    assertEquals(first, second);
+    verify(restClient, times(1)).get();
+  }
+
   @Test
   void fetchStockClosePrice_WithEmptyResponse_ShouldReturnZero() {
     // Arrange
@@ -8,6 +8,7 @@ import com.erenkalkan.stockpulse.model.entity.Watchlist;
 import com.erenkalkan.stockpulse.model.enums.ConditionType;
 import com.erenkalkan.stockpulse.model.enums.TriggerType;
 import com.erenkalkan.stockpulse.repository.WatchlistRepository;
+import com.erenkalkan.stockpulse.service.alert.AlertIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -32,6 +33,9 @@ class WatchlistServiceTest {
   @Mock
   private UserService userService;
 
+  @Mock
+  private AlertIndex alertIndex;
+
   @Mock
   private Authentication authentication;
 
@@ -205,6 +209,7 @@ class WatchlistServiceTest {
     verify(userService, times(1)).findByEmail(TEST_EMAIL);
     verify(watchlistRepository, times(1)).findById(TEST_WATCHLIST_ID);
     verify(watchlistRepository, times(1)).delete(testWatchlist);
+    verify(alertIndex, times(1)).removeByWatchlist(TEST_WATCHLIST_ID);
   }
 
   @Test
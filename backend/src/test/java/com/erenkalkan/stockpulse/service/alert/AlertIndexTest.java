@@ -0,0 +1,361 @@
+package com.erenkalkan.stockpulse.service.alert;
+
+import com.erenkalkan.stockpulse.model.entity.Alert;
+import com.erenkalkan.stockpulse.model.entity.Stock;
+import com.erenkalkan.stockpulse.model.entity.User;
+import com.erenkalkan.stockpulse.model.entity.Watchlist;
+import com.erenkalkan.stockpulse.model.enums.ConditionType;
+import com.erenkalkan.stockpulse.model.enums.TriggerType;
+import com.erenkalkan.stockpulse.repository.AlertRepository;
+import com.erenkalkan.stockpulse.service.StockWebSocketService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AlertIndexTest {
+
+  @Mock
+  private AlertRepository alertRepository;
+
+  @Mock
+  private ReferencePriceCache referencePriceCache;
+
+  @Mock
+  private StockWebSocketService stockWebSocketService;
+
+  @InjectMocks
+  private AlertIndex alertIndex;
+
+  private Stock testStock;
+  private Watchlist testWatchlist;
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(alertIndex, "refreshCheckMinutes", 15L);
+
+    testStock = Stock.builder()
+            .companyName("Apple Inc.")
+            .symbol("AAPL")
+            .build();
+
+    User testUser = User.builder()
+            .id(1L)
+            .firstName("Bruce")
+            .email("test@email.com")
+            .build();
+
+    testWatchlist = Watchlist.builder()
+            .id(1L)
+            .watchlistName("Test Watchlist")
+            .user(testUser)
+            .build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    alertIndex.shutdown();
+  }
+
+  private Alert createAlert(Long id, ConditionType condition, Double targetValue) {
+    return Alert.builder()
+            .id(id)
+            .stock(testStock)
+            .watchlist(testWatchlist)
+            .triggerType(TriggerType.TO_PRICE)
+            .condition(condition)
+            .targetValue(targetValue)
+            .build();
+  }
+
+  private Alert createPercentageAlert(Long id, Double percentageValue, Double targetValue) {
+    return Alert.builder()
+            .id(id)
+            .stock(testStock)
+            .watchlist(testWatchlist)
+            .triggerType(TriggerType.PERCENTAGE_CHANGE_PRICE)
+            .percentageValue(percentageValue)
+            .targetValue(targetValue)
+            .build();
+  }
+
+  @Test
+  void load_ShouldIndexAllUntriggeredAlerts() {
+    // Arrange
+    when(alertRepository.findAllByIsTriggeredFalse()).thenReturn(List.of(
+            createAlert(1L, ConditionType.ABOVE, 140.00),
+            createAlert(2L, ConditionType.BELOW, 160.00)));
+
+    // Act
+    alertIndex.load();
+
+    // Assert
+    assertEquals(2, alertIndex.size());
+    verify(alertRepository, times(1)).findAllByIsTriggeredFalse();
+  }
+
+  @Test
+  void load_WhenRepositoryFails_ShouldStartWithEmptyIndex() {
+    // Arrange
+    when(alertRepository.findAllByIsTriggeredFalse()).thenThrow(new RuntimeException("Database error"));
+
+    // Act & Assert
+    assertDoesNotThrow(() -> alertIndex.load());
+    assertEquals(0, alertIndex.size());
+  }
+
+  @Test
+  void match_ShouldReturnOnlyCrossedAlerts() {
+    // Arrange
+    Alert above140 = createAlert(1L, ConditionType.ABOVE, 140.00);
+    Alert above145 = createAlert(2L, ConditionType.ABOVE, 145.00);
+    Alert above200 = createAlert(3L, ConditionType.ABOVE, 200.00);
+    Alert below155 = createAlert(4L, ConditionType.BELOW, 155.00);
+    Alert below100 = createAlert(5L, ConditionType.BELOW, 100.00);
+    List.of(above200, above140, below100, above145, below155).forEach(alertIndex::add);
+
+    // Act
+    List<Alert> matched = alertIndex.match("AAPL", 150.00);
+
+    // Assert
+    assertEquals(3, matched.size());
+    assertTrue(matched.containsAll(List.of(above140, above145, below155)));
+    assertEquals(2, alertIndex.size());
+  }
+
+  @Test
+  void match_WhenPriceEqualsTarget_ShouldNotMatch() {
+    // Arrange
+    alertIndex.add(createAlert(1L, ConditionType.ABOVE, 150.00));
+    alertIndex.add(createAlert(2L, ConditionType.BELOW, 150.00));
+
+    // Act
+    List<Alert> matched = alertIndex.match("AAPL", 150.00);
+
+    // Assert
+    assertTrue(matched.isEmpty());
+    assertEquals(2, alertIndex.size());
+  }
+
+  @Test
+  void match_ShouldRemoveMatchedAlertsFromIndex() {
+    // Arrange
+    alertIndex.add(createAlert(1L, ConditionType.ABOVE, 140.00));
+
+    // Act
+    List<Alert> first = alertIndex.match("AAPL", 150.00);
+    List<Alert> second = alertIndex.match("AAPL", 151.00);
+
+    // Assert
+    assertEquals(1, first.size());
+    assertTrue(second.isEmpty());
+  }
+
+  @Test
+  void match_WhenSymbolHasNoAlerts_ShouldReturnEmptyList() {
+    // Act
+    List<Alert> matched = alertIndex.match("MSFT", 150.00);
+
+    // Assert
+    assertTrue(matched.isEmpty());
+  }
+
+  @Test
+  void add_ShouldIgnoreTriggeredAndConditionlessAlerts() {
+    // Arrange
+    Alert triggered = createAlert(1L, ConditionType.ABOVE, 140.00);
+    triggered.setTriggered(true);
+    Alert withoutCondition = createAlert(2L, null, 140.00);
+
+    // Act
+    alertIndex.add(triggered);
+    alertIndex.add(withoutCondition);
+
+    // Assert
+    assertEquals(0, alertIndex.size());
+  }
+
+  @Test
+  void remove_ShouldRemoveAlertById() {
+    // Arrange
+    alertIndex.add(createAlert(1L, ConditionType.ABOVE, 140.00));
+    alertIndex.add(createAlert(2L, ConditionType.BELOW, 160.00));
+
+    // Act
+    alertIndex.remove(createAlert(1L, ConditionType.ABOVE, 140.00));
+
+    // Assert
+    assertEquals(1, alertIndex.size());
+    assertTrue(alertIndex.match("AAPL", 150.00).stream().allMatch(alert -> alert.getId() == 2L));
+  }
+
+  @Test
+  void removeByWatchlist_ShouldRemoveAllAlertsOfWatchlist() {
+    // Arrange
+    alertIndex.add(createAlert(1L, ConditionType.ABOVE, 140.00));
+    alertIndex.add(createAlert(2L, ConditionType.BELOW, 160.00));
+
+    // Act
+    alertIndex.removeByWatchlist(testWatchlist.getId());
+
+    // Assert
+    assertEquals(0, alertIndex.size());
+  }
+
+  @Test
+  void add_PercentageAlert_ShouldUseLevelFromReferencePrice() {
+    // Arrange
+    when(referencePriceCache.getCachedReferencePrice("AAPL")).thenReturn(100.00);
+    Alert upFivePercent = createPercentageAlert(1L, 5.0, 200.00);
+
+    // Act
+    alertIndex.add(upFivePercent);
+
+    // Assert
+    assertNull(upFivePercent.getCondition());
+    assertEquals(ConditionType.ABOVE, AlertIndex.directionOf(upFivePercent));
+    assertTrue(alertIndex.match("AAPL", 104.00).isEmpty());
+    assertEquals(List.of(upFivePercent), alertIndex.match("AAPL", 106.00));
+  }
+
+  @Test
+  void add_NegativePercentageAlert_ShouldBeBelowCondition() {
+    // Arrange
+    when(referencePriceCache.getCachedReferencePrice("AAPL")).thenReturn(100.00);
+    Alert downTenPercent = createPercentageAlert(1L, -10.0, 50.00);
+
+    // Act
+    alertIndex.add(downTenPercent);
+
+    // Assert
+    assertNull(downTenPercent.getCondition());
+    assertEquals(ConditionType.BELOW, AlertIndex.directionOf(downTenPercent));
+    assertTrue(alertIndex.match("AAPL", 91.00).isEmpty());
+    assertEquals(List.of(downTenPercent), alertIndex.match("AAPL", 89.00));
+  }
+
+  @Test
+  void add_PercentageAlertWithoutReferencePrice_ShouldFallBackToTargetValueWithoutFetching() {
+    // Arrange
+    Alert upFivePercent = createPercentageAlert(1L, 5.0, 210.00);
+
+    // Act
+    alertIndex.add(upFivePercent);
+
+    // Assert
+    verify(referencePriceCache, never()).getReferencePrice(anyString());
+    assertTrue(alertIndex.match("AAPL", 200.00).isEmpty());
+    assertEquals(List.of(upFivePercent), alertIndex.match("AAPL", 211.00));
+  }
+
+  @Test
+  void fillPendingReferencePrices_ShouldRelevelAlertsIndexedWithoutReferencePrice() {
+    // Arrange
+    when(referencePriceCache.getCachedReferencePrice("AAPL")).thenReturn(null, 100.00);
+    when(referencePriceCache.getReferencePrice("AAPL")).thenReturn(100.00);
+    Alert upFivePercent = createPercentageAlert(1L, 5.0, 210.00);
+    alertIndex.add(upFivePercent);
+
+    // Act
+    alertIndex.fillPendingReferencePrices();
+    alertIndex.fillPendingReferencePrices();
+
+    // Assert
+    verify(referencePriceCache, times(1)).getReferencePrice("AAPL");
+    assertEquals(List.of(upFivePercent), alertIndex.match("AAPL", 106.00));
+  }
+
+  @Test
+  void fillPendingReferencePrices_WhenFetchFails_ShouldRetryOnNextCheck() {
+    // Arrange
+    when(referencePriceCache.getReferencePrice("AAPL")).thenReturn(null);
+    alertIndex.add(createPercentageAlert(1L, 5.0, 210.00));
+
+    // Act
+    alertIndex.fillPendingReferencePrices();
+    alertIndex.fillPendingReferencePrices();
+
+    // Assert
+    verify(referencePriceCache, times(2)).getReferencePrice("AAPL");
+  }
+
+  @Test
+  void refreshReferencePrices_ShouldRelevelPercentageAlertsOnNewTradingDay() {
+    // Arrange
+    when(referencePriceCache.getCachedReferencePrice("AAPL")).thenReturn(100.00, 200.00);
+    when(referencePriceCache.getReferencePrice("AAPL")).thenReturn(200.00);
+    when(referencePriceCache.isCurrent("AAPL")).thenReturn(false);
+    Alert upFivePercent = createPercentageAlert(1L, 5.0, 105.00);
+    alertIndex.add(upFivePercent);
+
+    // Act
+    alertIndex.refreshReferencePrices();
+
+    // Assert
+    assertTrue(alertIndex.match("AAPL", 150.00).isEmpty());
+    assertEquals(List.of(upFivePercent), alertIndex.match("AAPL", 211.00));
+  }
+
+  @Test
+  void refreshReferencePrices_WhenReferenceIsCurrent_ShouldNotFetch() {
+    // Arrange
+    when(referencePriceCache.getCachedReferencePrice("AAPL")).thenReturn(100.00);
+    when(referencePriceCache.isCurrent("AAPL")).thenReturn(true);
+    alertIndex.add(createPercentageAlert(1L, 5.0, 105.00));
+
+    // Act
+    alertIndex.refreshReferencePrices();
+
+    // Assert
+    verify(referencePriceCache, never()).getReferencePrice("AAPL");
+  }
+
+  @Test
+  void add_ShouldHoldSymbolUpstreamOnceForItsAlerts() {
+    // Act
+    alertIndex.add(createAlert(1L, ConditionType.ABOVE, 140.00));
+    alertIndex.add(createAlert(2L, ConditionType.BELOW, 160.00));
+
+    // Assert
+    verify(stockWebSocketService, times(1)).holdForAlerts("AAPL");
+    verify(stockWebSocketService, never()).releaseForAlerts(anyString());
+  }
+
+  @Test
+  void match_WhenLastAlertTriggers_ShouldReleaseSymbolUpstream() {
+    // Arrange
+    alertIndex.add(createAlert(1L, ConditionType.ABOVE, 140.00));
+    alertIndex.add(createAlert(2L, ConditionType.ABOVE, 155.00));
+
+    // Act
+    alertIndex.match("AAPL", 150.00);
+    verify(stockWebSocketService, never()).releaseForAlerts("AAPL");
+    alertIndex.match("AAPL", 160.00);
+
+    // Assert
+    verify(stockWebSocketService, times(1)).releaseForAlerts("AAPL");
+  }
+
+  @Test
+  void remove_WhenLastAlertDeleted_ShouldReleaseSymbolUpstream() {
+    // Arrange
+    Alert alert = createAlert(1L, ConditionType.ABOVE, 140.00);
+    alertIndex.add(alert);
+
+    // Act
+    alertIndex.remove(alert);
+
+    // Assert
+    verify(stockWebSocketService, times(1)).releaseForAlerts("AAPL");
+  }
+}
@@ -0,0 +1,121 @@
+package com.erenkalkan.stockpulse.service.alert;
+
+import com.erenkalkan.stockpulse.model.entity.Alert;
+import com.erenkalkan.stockpulse.model.entity.Stock;
+import com.erenkalkan.stockpulse.model.enums.ConditionType;
+import com.erenkalkan.stockpulse.model.enums.TriggerType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AlertTriggerWriterTest {
+
+  @Mock
+  private JdbcTemplate jdbcTemplate;
+
+  @InjectMocks
+  private AlertTriggerWriter alertTriggerWriter;
+
+  private Stock testStock;
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(alertTriggerWriter, "batchSize", 2);
+    ReflectionTestUtils.setField(alertTriggerWriter, "flushIntervalMs", 200L);
+    // Stop the background scheduler so flushes only happen when the test calls flush()
+    alertTriggerWriter.stop();
+
+    testStock = Stock.builder()
+            .companyName("Apple Inc.")
+            .symbol("AAPL")
+            .build();
+  }
+
+  private Alert createAlert(Long id) {
+    return Alert.builder()
+            .id(id)
+            .stock(testStock)
+            .triggerType(TriggerType.TO_PRICE)
+            .condition(ConditionType.ABOVE)
+            .targetValue(140.00)
+            .isTriggered(true)
+            .build();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void flush_ShouldWriteTriggersInBatches() {
+    // Arrange
+    AtomicInteger published = new AtomicInteger();
+    alertTriggerWriter.submit(createAlert(1L), published::incrementAndGet);
+    alertTriggerWriter.submit(createAlert(2L), published::incrementAndGet);
+    alertTriggerWriter.submit(createAlert(3L), published::incrementAndGet);
+    ArgumentCaptor<List<Object[]>> argsCaptor = ArgumentCaptor.forClass(List.class);
+
+    // Act
+    alertTriggerWriter.flush();
+
+    // Assert
+    verify(jdbcTemplate, times(2)).batchUpdate(anyString(), argsCaptor.capture());
+    assertEquals(2, argsCaptor.getAllValues().get(0).size());
+    assertEquals(1, argsCaptor.getAllValues().get(1).size());
+    assertEquals(3, published.get());
+    assertEquals(0, alertTriggerWriter.getPendingCount());
+  }
+
+  @Test
+  void flush_WhenBatchUpdateFails_ShouldNotPublishAndKeepTriggers() {
+    // Arrange
+    AtomicInteger published = new AtomicInteger();
+    alertTriggerWriter.submit(createAlert(1L), published::incrementAndGet);
+    when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("Database error"));
+
+    // Act
+    assertDoesNotThrow(() -> alertTriggerWriter.flush());
+
+    // Assert
+    assertEquals(0, published.get());
+    assertEquals(1, alertTriggerWriter.getPendingCount());
+  }
+
+  @Test
+  void flush_AfterFailure_ShouldRetryPendingTriggers() {
+    // Arrange
+    AtomicInteger published = new AtomicInteger();
+    alertTriggerWriter.submit(createAlert(1L), published::incrementAndGet);
+    when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+            .thenThrow(new RuntimeException("Database error"))
+            .thenReturn(new int[]{1});
+
+    // Act
+    alertTriggerWriter.flush();
+    alertTriggerWriter.flush();
+
+    // Assert
+    assertEquals(1, published.get());
+    assertEquals(0, alertTriggerWriter.getPendingCount());
+  }
+
+  @Test
+  void flush_WhenNothingPending_ShouldNotTouchDatabase() {
+    // Act
+    alertTriggerWriter.flush();
+
+    // Assert
+    verifyNoInteractions(jdbcTemplate);
+  }
+}
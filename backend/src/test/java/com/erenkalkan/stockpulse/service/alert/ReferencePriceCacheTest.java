@@ -0,0 +1,67 @@
+package com.erenkalkan.stockpulse.service.alert;
+
+import com.erenkalkan.stockpulse.service.StocksService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.client.RestClientException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReferencePriceCacheTest {
+
+  @Mock
+  private StocksService stocksService;
+
+  @InjectMocks
+  private ReferencePriceCache referencePriceCache;
+
+  @Test
+  void getReferencePrice_ShouldFetchOncePerTradingDay() {
+    // Arrange
+    when(stocksService.fetchStockClosePrice("AAPL")).thenReturn(150.00);
+
+    // Act
+    Double first = referencePriceCache.getReferencePrice("AAPL");
+    Double second = referencePriceCache.getReferencePrice("AAPL");
+
+    // Assert
+    assertEquals(150.00, first);
+    assertEquals(150.00, second);
+    assertTrue(referencePriceCache.isCurrent("AAPL"));
+    verify(stocksService, times(1)).fetchStockClosePrice("AAPL");
+  }
+
+  @Test
+  void getReferencePrice_WhenFetchFails_ShouldReturnNullAndRetryLater() {
+    // Arrange
+    when(stocksService.fetchStockClosePrice("AAPL"))
+            .thenThrow(new RestClientException("Finnhub down"))
+            .thenReturn(150.00);
+
+    // Act
+    Double first = referencePriceCache.getReferencePrice("AAPL");
+    Double second = referencePriceCache.getReferencePrice("AAPL");
+
+    // Assert
+    assertNull(first);
+    assertEquals(150.00, second);
+  }
+
+  @Test
+  void getReferencePrice_WhenNoPreviousClose_ShouldReturnNull() {
+    // Arrange
+    when(stocksService.fetchStockClosePrice("AAPL")).thenReturn(0.0);
+
+    // Act
+    Double result = referencePriceCache.getReferencePrice("AAPL");
+
+    // Assert
+    assertNull(result);
+    assertFalse(referencePriceCache.isCurrent("AAPL"));
+  }
+}
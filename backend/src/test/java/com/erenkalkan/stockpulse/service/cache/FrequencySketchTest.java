@@ -0,0 +1,56 @@
+package com.erenkalkan.stockpulse.service.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrequencySketchTest {
+
+  @Test
+  void increment_ShouldRaiseEstimatedFrequency() {
+    // Arrange
+    FrequencySketch sketch = new FrequencySketch(64);
+
+    // Act
+    for (int i = 0; i < 5; i++) {
+      sketch.increment("AAPL");
+    }
+    sketch.increment("MSFT");
+
+    // Assert
+    assertEquals(5, sketch.frequency("AAPL"));
+    assertEquals(1, sketch.frequency("MSFT"));
+    assertEquals(0, sketch.frequency("TSLA"));
+  }
+
+  @Test
+  void increment_ShouldSaturateAtFifteen() {
+    // Arrange
+    FrequencySketch sketch = new FrequencySketch(64);
+
+    // Act
+    for (int i = 0; i < 100; i++) {
+      sketch.increment("AAPL");
+    }
+
+    // Assert
+    assertEquals(15, sketch.frequency("AAPL"));
+  }
+
+  @Test
+  void increment_WhenSampleSizeReached_ShouldHalveCounters() {
+    // Arrange
+    FrequencySketch sketch = new FrequencySketch(16);
+    for (int i = 0; i < 8; i++) {
+      sketch.increment("AAPL");
+    }
+
+    // Act: the 160th addition triggers the reset
+    for (int i = 0; i < 152; i++) {
+      sketch.increment("S" + i);
+    }
+
+    // Assert
+    assertTrue(sketch.frequency("AAPL") < 8);
+  }
+}
@@ -0,0 +1,370 @@
+package com.erenkalkan.stockpulse.service.cache;
+
+import com.erenkalkan.stockpulse.service.upstream.RequestPriority;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketDataCacheTest {
+
+  private MeterRegistry meterRegistry;
+  private MarketDataCache cache;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    cache = new MarketDataCache(meterRegistry, 100);
+  }
+
+  @AfterEach
+  void tearDown() {
+    cache.shutdown();
+  }
+
+  @Test
+  void get_ShouldLoadOnceAndServeHitsFromCache() {
+    // Arrange
+    AtomicInteger loads = new AtomicInteger();
+
+    // Act
+    String first = cache.get("quote", "AAPL", 60_000, () -> "v" + loads.incrementAndGet());
+    String second = cache.get("quote", "AAPL", 60_000, () -> "v" + loads.incrementAndGet());
+
+    // Assert
+    assertEquals("v1", first);
+    assertEquals("v1", second);
+    assertEquals(1, loads.get());
+    assertEquals(1.0, meterRegistry.get("stockpulse.cache.requests").tag("result", "hit").counter().count());
+    assertEquals(1.0, meterRegistry.get("stockpulse.cache.requests").tag("result", "miss").counter().count());
+  }
+
+  @Test
+  void get_ShouldKeepEndpointsApart() {
+    // Act
+    cache.get("search", "AAPL", 60_000, () -> "search");
+    String news = cache.get("company-news", "AAPL", 60_000, () -> "news");
+
+    // Assert
+    assertEquals("news", news);
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  void getIfPresent_ShouldReturnOnlyPutValues() {
+    // Act
+    String before = cache.getIfPresent("company-name", "AAPL");
+    cache.put("company-name", "AAPL", "Apple Inc.", 60_000);
+    cache.put("company-name", "MSFT", null, 60_000);
+
+    // Assert
+    assertNull(before);
+    assertEquals("Apple Inc.", cache.getIfPresent("company-name", "AAPL"));
+    assertNull(cache.getIfPresent("company-name", "MSFT"));
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  void get_WhenEntryExpired_ShouldReload() throws InterruptedException {
+    // Arrange
+    AtomicInteger loads = new AtomicInteger();
+    cache.get("quote", "AAPL", 1, loads::incrementAndGet);
+    Thread.sleep(5);
+
+    // Act
+    int result = cache.get("quote", "AAPL", 1, loads::incrementAndGet);
+
+    // Assert
+    assertEquals(2, result);
+    assertEquals(1.0, meterRegistry.get("stockpulse.cache.evictions").tag("cause", "expired").counter().count());
+  }
+
+  @Test
+  void get_WhenTtlIsZero_ShouldNotCache() {
+    // Arrange
+    AtomicInteger loads = new AtomicInteger();
+
+    // Act
+    cache.get("quote", "AAPL", 0, loads::incrementAndGet);
+    cache.get("quote", "AAPL", 0, loads::incrementAndGet);
+
+    // Assert
+    assertEquals(2, loads.get());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void get_ShouldNotCacheNullEmptyOrRejectedResults() {
+    // Act
+    cache.get("news", "null", 60_000, () -> null);
+    cache.get("news", "empty", 60_000, List::of);
+    cache.get("news", "rejected", 60_000, () -> "partial", value -> false);
+
+    // Assert
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void get_ShouldWeighCollectionsBySize() {
+    // Act
+    cache.get("news", "AAPL", 60_000, () -> List.of(1, 2, 3));
+    cache.get("news", "too-big", 60_000, () -> Collections.nCopies(200, 1));
+
+    // Assert
+    assertEquals(1, cache.size());
+    assertEquals(4, cache.weight());
+  }
+
+  @Test
+  void get_ShouldStayWithinMaxWeight() {
+    // Act
+    for (int i = 0; i < 1_000; i++) {
+      int symbol = i;
+      cache.get("quote", "S" + symbol, 60_000, () -> symbol);
+    }
+
+    // Assert
+    assertTrue(cache.weight() <= 100);
+    assertTrue(meterRegistry.get("stockpulse.cache.evictions").tag("cause", "size").counter().count() >= 900);
+  }
+
+  @Test
+  void get_ShouldKeepFrequentlyRequestedEntryDuringScan() {
+    // Arrange
+    AtomicInteger hotLoads = new AtomicInteger();
+    for (int i = 0; i < 10; i++) {
+      cache.get("quote", "HOT", 60_000, hotLoads::incrementAndGet);
+    }
+
+    // Act: a burst of one-off lookups larger than the whole cache
+    for (int i = 0; i < 300; i++) {
+      int symbol = i;
+      cache.get("quote", "S" + symbol, 60_000, () -> symbol);
+    }
+    cache.get("quote", "HOT", 60_000, hotLoads::incrementAndGet);
+
+    // Assert
+    assertEquals(1, hotLoads.get());
+  }
+
+  @Test
+  void get_ConcurrentMissesForSameKey_ShouldShareOneLoad() throws Exception {
+    // Arrange
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch loaderStarted = new CountDownLatch(1);
+    CountDownLatch releaseLoader = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    try {
+      // Act
+      Future<String> leader = executor.submit(() -> cache.get("stock-details", "AAPL", 0, () -> {
+        loads.incrementAndGet();
+        loaderStarted.countDown();
+        await(releaseLoader);
+        return "details";
+      }));
+      assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+
+      List<Future<String>> followers = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        followers.add(executor.submit(() -> cache.get("stock-details", "AAPL", 0, () -> "v" + loads.incrementAndGet())));
+      }
+      waitForCoalesced(3);
+      releaseLoader.countDown();
+
+      // Assert
+      assertEquals("details", leader.get(5, TimeUnit.SECONDS));
+      for (Future<String> follower : followers) {
+        assertEquals("details", follower.get(5, TimeUnit.SECONDS));
+      }
+      assertEquals(1, loads.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void get_WhenSharedLoadFails_ShouldPropagateToAllCallers() throws Exception {
+    // Arrange
+    CountDownLatch loaderStarted = new CountDownLatch(1);
+    CountDownLatch releaseLoader = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    try {
+      // Act
+      Future<String> leader = executor.submit(() -> cache.get("search", "apple", 60_000, () -> {
+        loaderStarted.countDown();
+        await(releaseLoader);
+        throw new IllegalStateException("Finnhub down");
+      }));
+      assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+      Future<String> follower = executor.submit(() -> cache.get("search", "apple", 60_000, () -> "results"));
+      waitForCoalesced(1);
+      releaseLoader.countDown();
+
+      // Assert
+      ExecutionException leaderFailure = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+      ExecutionException followerFailure = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+      assertInstanceOf(IllegalStateException.class, leaderFailure.getCause());
+      assertInstanceOf(IllegalStateException.class, followerFailure.getCause());
+      assertEquals("results", cache.get("search", "apple", 60_000, () -> "results"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void get_WhenInteractiveCallerJoinsBackgroundLoad_ShouldRaiseItsPriority() throws Exception {
+    // Arrange
+    CountDownLatch loaderStarted = new CountDownLatch(1);
+    CountDownLatch releaseLoader = new CountDownLatch(1);
+    AtomicReference<RequestPriority.Handle> leaderPriority = new AtomicReference<>();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    try {
+      Future<String> leader = executor.submit(() -> RequestPriority.PREFETCH.call(
+              () -> cache.get("search", "apple", 60_000, () -> {
+                leaderPriority.set(RequestPriority.currentHandle());
+                loaderStarted.countDown();
+                await(releaseLoader);
+                return "results";
+              })));
+      assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+      assertEquals(RequestPriority.PREFETCH, leaderPriority.get().priority());
+
+      // Act
+      Future<String> follower = executor.submit(() -> cache.get("search", "apple", 60_000, () -> "other"));
+      waitForCoalesced(1);
+      waitUntil(() -> leaderPriority.get().priority() == RequestPriority.INTERACTIVE);
+      releaseLoader.countDown();
+
+      // Assert
+      assertEquals(RequestPriority.INTERACTIVE, leaderPriority.get().priority());
+      assertEquals("results", leader.get(5, TimeUnit.SECONDS));
+      assertEquals("results", follower.get(5, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void get_WhenPastRefreshAfter_ShouldServeStaleAndRefreshInBackground() throws InterruptedException {
+    // Arrange
+    AtomicInteger loads = new AtomicInteger();
+    cache.get("stock-profile", "AAPL", 20, 60_000, () -> "v" + loads.incrementAndGet());
+    Thread.sleep(30);
+
+    // Act
+    String stale = cache.get("stock-profile", "AAPL", 20, 60_000, () -> "v" + loads.incrementAndGet());
+    waitUntil(() -> count("stockpulse.cache.refreshes", "success") == 1);
+    String refreshed = cache.get("stock-profile", "AAPL", 20, 60_000, () -> "v" + loads.incrementAndGet());
+
+    // Assert
+    assertEquals("v1", stale);
+    assertEquals("v2", refreshed);
+    assertEquals(2, loads.get());
+    assertEquals(1.0, count("stockpulse.cache.requests", "stale"));
+  }
+
+  @Test
+  void get_WhenPastTtl_ShouldLoadSynchronouslyDespiteRefreshAfter() throws InterruptedException {
+    // Arrange
+    AtomicInteger loads = new AtomicInteger();
+    cache.get("stock-profile", "AAPL", 1, 5, () -> "v" + loads.incrementAndGet());
+    Thread.sleep(10);
+
+    // Act
+    String result = cache.get("stock-profile", "AAPL", 1, 5, () -> "v" + loads.incrementAndGet());
+
+    // Assert
+    assertEquals("v2", result);
+    assertEquals(0.0, count("stockpulse.cache.requests", "stale"));
+  }
+
+  @Test
+  void get_WhenBackgroundRefreshFails_ShouldKeepServingStaleEntry() throws InterruptedException {
+    // Arrange
+    AtomicBoolean upstreamDown = new AtomicBoolean();
+    cache.get("company-news", "AAPL", 20, 60_000, () -> loadOrFail(upstreamDown));
+    upstreamDown.set(true);
+    Thread.sleep(30);
+
+    // Act
+    String stale = cache.get("company-news", "AAPL", 20, 60_000, () -> loadOrFail(upstreamDown));
+    waitUntil(() -> count("stockpulse.cache.refreshes", "failed") == 1);
+    String afterFailure = cache.get("company-news", "AAPL", 20, 60_000, () -> loadOrFail(upstreamDown));
+
+    // Assert
+    assertEquals("news", stale);
+    assertEquals("news", afterFailure);
+  }
+
+  @Test
+  void get_WhenRefreshBudgetIsSpent_ShouldSkipRefresh() throws InterruptedException {
+    // Arrange
+    cache = new MarketDataCache(meterRegistry, 100, 1, 8, 1);
+    AtomicInteger loads = new AtomicInteger();
+    cache.get("stock-profile", "AAPL", 20, 60_000, () -> "v" + loads.incrementAndGet());
+    cache.get("stock-profile", "MSFT", 20, 60_000, () -> "v" + loads.incrementAndGet());
+    Thread.sleep(30);
+
+    // Act
+    cache.get("stock-profile", "AAPL", 20, 60_000, () -> "v" + loads.incrementAndGet());
+    cache.get("stock-profile", "MSFT", 20, 60_000, () -> "v" + loads.incrementAndGet());
+    waitUntil(() -> count("stockpulse.cache.refreshes", "success") == 1);
+
+    // Assert
+    assertEquals(3, loads.get());
+    assertEquals(1.0, count("stockpulse.cache.refreshes", "skipped"));
+  }
+
+  private static String loadOrFail(AtomicBoolean upstreamDown) {
+    if (upstreamDown.get()) {
+      throw new IllegalStateException("Finnhub down");
+    }
+    return "news";
+  }
+
+  private void waitForCoalesced(int expected) throws InterruptedException {
+    waitUntil(() -> count("stockpulse.cache.requests", "coalesced") >= expected);
+    assertEquals(expected, count("stockpulse.cache.requests", "coalesced"));
+  }
+
+  private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+  }
+
+  private double count(String name, String result) {
+    return meterRegistry.find(name).tag("result", result).counters().stream()
+            .mapToDouble(counter -> counter.count())
+            .sum();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
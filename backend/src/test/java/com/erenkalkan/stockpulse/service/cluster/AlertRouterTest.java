@@ -0,0 +1,70 @@
+package com.erenkalkan.stockpulse.service.cluster;
+
+import com.erenkalkan.stockpulse.model.dto.AlertTriggeredEvent;
+import com.erenkalkan.stockpulse.service.NotificationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AlertRouterTest {
+
+  @Mock
+  private UserPresenceRegistry userPresenceRegistry;
+
+  @Mock
+  private NotificationService notificationService;
+
+  @Mock
+  private KafkaTemplate<String, AlertTriggeredEvent> alertKafkaTemplate;
+
+  private AlertRouter alertRouter;
+  private AlertTriggeredEvent event;
+
+  @BeforeEach
+  void setUp() {
+    alertRouter = new AlertRouter(new InstanceIdentity("node-a"), userPresenceRegistry, notificationService,
+            alertKafkaTemplate);
+
+    event = AlertTriggeredEvent.builder()
+            .alertId(1L)
+            .email("test@email.com")
+            .symbol("AAPL")
+            .build();
+  }
+
+  @Test
+  void route_ShouldNotifyLocallyAndForwardToOtherInstances() {
+    // Arrange
+    when(userPresenceRegistry.getInstances("test@email.com")).thenReturn(List.of("node-a", "node-b"));
+    when(userPresenceRegistry.isLocal("node-a")).thenReturn(true);
+    when(userPresenceRegistry.isLocal("node-b")).thenReturn(false);
+
+    // Act
+    alertRouter.route(event);
+
+    // Assert
+    verify(notificationService, times(1)).sendAlertNotification(event);
+    verify(alertKafkaTemplate, times(1)).send("alert-deliveries.node-b", "test@email.com", event);
+  }
+
+  @Test
+  void route_WhenUserIsNotConnected_ShouldSendNothing() {
+    // Arrange
+    when(userPresenceRegistry.getInstances("test@email.com")).thenReturn(List.of());
+
+    // Act
+    alertRouter.route(event);
+
+    // Assert
+    verifyNoInteractions(notificationService, alertKafkaTemplate);
+  }
+}
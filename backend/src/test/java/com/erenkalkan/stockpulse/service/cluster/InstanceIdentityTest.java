@@ -0,0 +1,38 @@
+package com.erenkalkan.stockpulse.service.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstanceIdentityTest {
+
+  @Test
+  void constructor_WhenIdConfigured_ShouldUseIt() {
+    // Act
+    InstanceIdentity instanceIdentity = new InstanceIdentity("node-a");
+
+    // Assert
+    assertEquals("node-a", instanceIdentity.getId());
+  }
+
+  @Test
+  void constructor_WhenIdBlank_ShouldUseHostName() throws Exception {
+    // Act
+    InstanceIdentity instanceIdentity = new InstanceIdentity("");
+
+    // Assert
+    assertEquals(InetAddress.getLocalHost().getHostName(), instanceIdentity.getId());
+  }
+
+  @Test
+  void constructor_WhenIdBlank_ShouldBeStableAcrossRestarts() {
+    // Act
+    InstanceIdentity first = new InstanceIdentity(" ");
+    InstanceIdentity restarted = new InstanceIdentity(" ");
+
+    // Assert
+    assertEquals(first.getId(), restarted.getId());
+  }
+}
@@ -0,0 +1,114 @@
+package com.erenkalkan.stockpulse.service.cluster;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserPresenceRegistryTest {
+
+  @Mock
+  private KafkaTemplate<String, String> presenceKafkaTemplate;
+
+  private UserPresenceRegistry userPresenceRegistry;
+
+  @BeforeEach
+  void setUp() {
+    userPresenceRegistry = new UserPresenceRegistry(new InstanceIdentity("node-a"), presenceKafkaTemplate);
+    ReflectionTestUtils.setField(userPresenceRegistry, "instanceTimeoutMs", 30000L);
+  }
+
+  private ConsumerRecord<String, String> record(String key, String value) {
+    return new ConsumerRecord<>(UserPresenceRegistry.TOPIC, 0, 0L, key, value);
+  }
+
+  private String heartbeat() {
+    return String.valueOf(System.currentTimeMillis());
+  }
+
+  @Test
+  void connected_ShouldPublishOnlyForFirstLocalSession() {
+    // Act
+    userPresenceRegistry.connected("test@email.com");
+    userPresenceRegistry.connected("test@email.com");
+
+    // Assert
+    verify(presenceKafkaTemplate, times(1)).send(UserPresenceRegistry.TOPIC, "node-a/test@email.com", "1");
+  }
+
+  @Test
+  void disconnected_ShouldTombstoneAfterLastLocalSession() {
+    // Arrange
+    userPresenceRegistry.connected("test@email.com");
+    userPresenceRegistry.connected("test@email.com");
+
+    // Act
+    userPresenceRegistry.disconnected("test@email.com");
+    verify(presenceKafkaTemplate, never()).send(anyString(), anyString(), isNull());
+    userPresenceRegistry.disconnected("test@email.com");
+
+    // Assert
+    verify(presenceKafkaTemplate, times(1)).send(UserPresenceRegistry.TOPIC, "node-a/test@email.com", null);
+  }
+
+  @Test
+  void getInstances_ShouldOnlyReturnInstancesWithRecentHeartbeat() {
+    // Arrange
+    userPresenceRegistry.onPresence(record("node-b/", heartbeat()));
+    userPresenceRegistry.onPresence(record("node-c/", String.valueOf(System.currentTimeMillis() - 60000)));
+    userPresenceRegistry.onPresence(record("node-b/test@email.com", "1"));
+    userPresenceRegistry.onPresence(record("node-c/test@email.com", "1"));
+
+    // Act
+    List<String> instances = userPresenceRegistry.getInstances("test@email.com");
+
+    // Assert
+    assertEquals(List.of("node-b"), instances);
+  }
+
+  @Test
+  void onPresence_Tombstone_ShouldRemoveInstance() {
+    // Arrange
+    userPresenceRegistry.onPresence(record("node-b/", heartbeat()));
+    userPresenceRegistry.onPresence(record("node-b/test@email.com", "1"));
+
+    // Act
+    userPresenceRegistry.onPresence(record("node-b/test@email.com", null));
+
+    // Assert
+    assertTrue(userPresenceRegistry.getInstances("test@email.com").isEmpty());
+  }
+
+  @Test
+  void onPresence_StaleLocalEntry_ShouldBeTombstoned() {
+    // Act
+    userPresenceRegistry.onPresence(record("node-a/test@email.com", "1"));
+
+    // Assert
+    verify(presenceKafkaTemplate, times(1)).send(UserPresenceRegistry.TOPIC, "node-a/test@email.com", null);
+  }
+
+  @Test
+  void onPresence_LocalEntryWithOpenSession_ShouldBeKept() {
+    // Arrange
+    userPresenceRegistry.connected("test@email.com");
+
+    // Act
+    userPresenceRegistry.onPresence(record("node-a/test@email.com", "1"));
+
+    // Assert
+    verify(presenceKafkaTemplate, never()).send(anyString(), anyString(), isNull());
+    assertEquals(List.of("node-a"), userPresenceRegistry.getInstances("test@email.com"));
+  }
+}
@@ -0,0 +1,122 @@
+package com.erenkalkan.stockpulse.service.email;
+
+import com.erenkalkan.stockpulse.model.dto.AlertTriggeredEvent;
+import com.erenkalkan.stockpulse.model.enums.ConditionType;
+import com.erenkalkan.stockpulse.service.EmailService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AlertEmailDigestTest {
+
+  @Mock
+  private EmailService emailService;
+
+  @Mock
+  private EmailDispatcher emailDispatcher;
+
+  @Mock
+  private RecipientNameCache recipientNameCache;
+
+  @InjectMocks
+  private AlertEmailDigest alertEmailDigest;
+
+  @BeforeEach
+  void setUp() {
+    lenient().when(recipientNameCache.getFirstName(any())).thenReturn("Bruce");
+    lenient().when(emailDispatcher.enqueue(any())).thenReturn(CompletableFuture.completedFuture(null));
+  }
+
+  private AlertTriggeredEvent createEvent(String email, String symbol) {
+    return AlertTriggeredEvent.builder()
+            .email(email)
+            .symbol(symbol)
+            .condition(ConditionType.ABOVE)
+            .targetValue(150.00)
+            .build();
+  }
+
+  @Test
+  void sendAll_ShouldCoalesceAlertsOfSameUserIntoOneDigest() {
+    // Arrange
+    AlertTriggeredEvent aapl = createEvent("bruce@email.com", "AAPL");
+    AlertTriggeredEvent msft = createEvent("bruce@email.com", "MSFT");
+    SimpleMailMessage digest = new SimpleMailMessage();
+    when(emailService.buildAlertDigestEmail(List.of(aapl, msft), "Bruce")).thenReturn(digest);
+
+    // Act
+    alertEmailDigest.sendAll(List.of(aapl, msft));
+
+    // Assert
+    verify(emailDispatcher, times(1)).enqueue(digest);
+    verify(emailService, never()).buildAlertEmail(any(), any());
+  }
+
+  @Test
+  void sendAll_WhenSingleAlertForUser_ShouldSendRegularAlertEmail() {
+    // Arrange
+    AlertTriggeredEvent aapl = createEvent("bruce@email.com", "AAPL");
+    SimpleMailMessage mail = new SimpleMailMessage();
+    when(emailService.buildAlertEmail(aapl, "Bruce")).thenReturn(mail);
+
+    // Act
+    alertEmailDigest.sendAll(List.of(aapl));
+
+    // Assert
+    verify(emailDispatcher, times(1)).enqueue(mail);
+    verify(emailService, never()).buildAlertDigestEmail(any(), any());
+  }
+
+  @Test
+  void sendAll_ShouldKeepSeparateDigestsPerUser() {
+    // Arrange
+    AlertTriggeredEvent bruce = createEvent("bruce@email.com", "AAPL");
+    AlertTriggeredEvent alice = createEvent("alice@email.com", "AAPL");
+    when(emailService.buildAlertEmail(any(), any())).thenReturn(new SimpleMailMessage());
+
+    // Act
+    alertEmailDigest.sendAll(List.of(bruce, alice));
+
+    // Assert
+    verify(emailService, times(1)).buildAlertEmail(bruce, "Bruce");
+    verify(emailService, times(1)).buildAlertEmail(alice, "Bruce");
+    verify(emailDispatcher, times(2)).enqueue(any());
+  }
+
+  @Test
+  void sendAll_WhenEmailCannotBeQueued_ShouldThrowSoBatchIsRedelivered() {
+    // Arrange
+    when(emailService.buildAlertEmail(any(), any())).thenReturn(new SimpleMailMessage());
+    when(emailDispatcher.enqueue(any())).thenReturn(CompletableFuture.failedFuture(new RuntimeException("Kafka down")));
+
+    // Act & Assert
+    assertThrows(CompletionException.class,
+            () -> alertEmailDigest.sendAll(List.of(createEvent("bruce@email.com", "AAPL"))));
+  }
+
+  @Test
+  void sendAll_WhenEmailCannotBeBuilt_ShouldSkipItAndSendTheRest() {
+    // Arrange
+    AlertTriggeredEvent bruce = createEvent("bruce@email.com", "AAPL");
+    AlertTriggeredEvent alice = createEvent("alice@email.com", "AAPL");
+    when(emailService.buildAlertEmail(bruce, "Bruce")).thenThrow(new RuntimeException("Template error"));
+    when(emailService.buildAlertEmail(alice, "Bruce")).thenReturn(new SimpleMailMessage());
+
+    // Act & Assert
+    assertDoesNotThrow(() -> alertEmailDigest.sendAll(List.of(bruce, alice)));
+    verify(emailDispatcher, times(1)).enqueue(any());
+  }
+}
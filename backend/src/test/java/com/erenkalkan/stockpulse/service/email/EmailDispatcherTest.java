@@ -0,0 +1,162 @@
+package com.erenkalkan.stockpulse.service.email;
+
+import com.erenkalkan.stockpulse.model.dto.EmailMessageDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.RetryListener;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmailDispatcherTest {
+
+  @Mock
+  private JavaMailSender javaMailSender;
+
+  @Mock
+  private KafkaTemplate<String, EmailMessageDTO> emailKafkaTemplate;
+
+  private SimpleMeterRegistry meterRegistry;
+  private EmailDispatcher emailDispatcher;
+
+  private final EmailMessageDTO bruceEmail = EmailMessageDTO.builder()
+          .from("noreply@stockpulse.com")
+          .to("bruce@email.com")
+          .subject("Your Alert for AAPL has been triggered!")
+          .text("Price is now above your target of 150.00")
+          .build();
+
+  private final EmailMessageDTO aliceEmail = EmailMessageDTO.builder()
+          .from("noreply@stockpulse.com")
+          .to("alice@email.com")
+          .subject("Your Alert for MSFT has been triggered!")
+          .text("Price is now below your target of 400.00")
+          .build();
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    emailDispatcher = new EmailDispatcher(javaMailSender, emailKafkaTemplate, meterRegistry);
+  }
+
+  private static List<ConsumerRecord<String, EmailMessageDTO>> records(EmailMessageDTO... messages) {
+    List<ConsumerRecord<String, EmailMessageDTO>> records = new ArrayList<>();
+    for (EmailMessageDTO message : messages) {
+      records.add(new ConsumerRecord<>(EmailDispatcher.TOPIC, 0, records.size(),
+              message == null ? null : message.getTo(), message));
+    }
+    return records;
+  }
+
+  @Test
+  void enqueue_ShouldPublishKeyedByRecipient() {
+    // Arrange
+    SimpleMailMessage mail = new SimpleMailMessage();
+    mail.setFrom("noreply@stockpulse.com");
+    mail.setTo("bruce@email.com");
+    mail.setSubject("Your Alert for AAPL has been triggered!");
+    mail.setText("Price is now above your target of 150.00");
+
+    // Act
+    emailDispatcher.enqueue(mail);
+
+    // Assert
+    verify(emailKafkaTemplate, times(1)).send(EmailDispatcher.TOPIC, "bruce@email.com", bruceEmail);
+  }
+
+  @Test
+  void dispatch_ShouldSendWholeBatchInOneCall() {
+    // Act
+    emailDispatcher.dispatch(records(bruceEmail, aliceEmail));
+
+    // Assert
+    ArgumentCaptor<SimpleMailMessage[]> batch = ArgumentCaptor.forClass(SimpleMailMessage[].class);
+    verify(javaMailSender, times(1)).send(batch.capture());
+    assertEquals(2, batch.getValue().length);
+    verifyNoInteractions(emailKafkaTemplate);
+  }
+
+  @Test
+  void dispatch_WhenOneMessageFails_ShouldFailBatchFromThatMessage() {
+    // Arrange
+    doAnswer(invocation -> {
+      SimpleMailMessage[] mails = invocation.getArgument(0);
+      throw new MailSendException(Map.of(mails[1], new RuntimeException("Mailbox unavailable")));
+    }).when(javaMailSender).send(any(SimpleMailMessage[].class));
+
+    // Act
+    BatchListenerFailedException failure = assertThrows(BatchListenerFailedException.class,
+            () -> emailDispatcher.dispatch(records(bruceEmail, aliceEmail)));
+
+    // Assert
+    assertEquals(1, failure.getIndex());
+    verify(javaMailSender, times(1)).send(any(SimpleMailMessage[].class));
+    assertEquals(1.0, meterRegistry.get("stockpulse.email.dispatch").tag("outcome", "sent").counter().count());
+  }
+
+  @Test
+  void dispatch_WhenSmtpServerUnavailable_ShouldFailBatchFromFirstMessage() {
+    // Arrange
+    doThrow(new MailSendException("SMTP server unavailable"))
+            .when(javaMailSender).send(any(SimpleMailMessage[].class));
+
+    // Act
+    BatchListenerFailedException failure = assertThrows(BatchListenerFailedException.class,
+            () -> emailDispatcher.dispatch(records(bruceEmail, aliceEmail)));
+
+    // Assert
+    assertEquals(0, failure.getIndex());
+    verifyNoInteractions(emailKafkaTemplate);
+  }
+
+  @Test
+  void dispatch_ShouldSkipUnreadableRecordsAndKeepFailureIndexOfOriginalBatch() {
+    // Arrange
+    doAnswer(invocation -> {
+      SimpleMailMessage[] mails = invocation.getArgument(0);
+      throw new MailSendException(Map.of(mails[1], new RuntimeException("Mailbox unavailable")));
+    }).when(javaMailSender).send(any(SimpleMailMessage[].class));
+
+    // Act
+    BatchListenerFailedException failure = assertThrows(BatchListenerFailedException.class,
+            () -> emailDispatcher.dispatch(records(bruceEmail, null, aliceEmail)));
+
+    // Assert
+    assertEquals(2, failure.getIndex());
+  }
+
+  @Test
+  void retryListener_ShouldCountRetriesAndDeadLetters() {
+    // Arrange
+    RetryListener retryListener = emailDispatcher.retryListener(3);
+    ConsumerRecord<String, EmailMessageDTO> record = records(bruceEmail).get(0);
+    Exception failure = new MailSendException("SMTP server unavailable");
+
+    // Act
+    retryListener.failedDelivery(record, failure, 1);
+    retryListener.failedDelivery(record, failure, 2);
+    retryListener.failedDelivery(record, failure, 3);
+    retryListener.recovered(record, failure);
+
+    // Assert
+    assertEquals(2.0, meterRegistry.get("stockpulse.email.dispatch").tag("outcome", "retried").counter().count());
+    assertEquals(1.0, meterRegistry.get("stockpulse.email.dispatch").tag("outcome", "dead-lettered").counter().count());
+  }
+}
@@ -0,0 +1,125 @@
+package com.erenkalkan.stockpulse.service.email;
+
+import com.erenkalkan.stockpulse.model.dto.AlertTriggeredEvent;
+import com.erenkalkan.stockpulse.model.entity.User;
+import com.erenkalkan.stockpulse.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecipientNameCacheTest {
+
+  @Mock
+  private UserRepository userRepository;
+
+  @InjectMocks
+  private RecipientNameCache recipientNameCache;
+
+  private final AlertTriggeredEvent event = AlertTriggeredEvent.builder()
+          .userId(1L)
+          .email("bruce@email.com")
+          .build();
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(recipientNameCache, "maxSize", 100);
+    ReflectionTestUtils.setField(recipientNameCache, "ttlMs", 60_000L);
+  }
+
+  @Test
+  void getFirstName_ShouldLoadUserOnlyOnce() {
+    // Arrange
+    when(userRepository.findById(1L)).thenReturn(Optional.of(User.builder().firstName("Bruce").build()));
+
+    // Act
+    String first = recipientNameCache.getFirstName(event);
+    String second = recipientNameCache.getFirstName(event);
+
+    // Assert
+    assertEquals("Bruce", first);
+    assertEquals("Bruce", second);
+    verify(userRepository, times(1)).findById(1L);
+  }
+
+  @Test
+  void getFirstName_WhenEntryExpired_ShouldReload() {
+    // Arrange
+    ReflectionTestUtils.setField(recipientNameCache, "ttlMs", 0L);
+    when(userRepository.findById(1L)).thenReturn(Optional.of(User.builder().firstName("Bruce").build()));
+
+    // Act
+    recipientNameCache.getFirstName(event);
+    recipientNameCache.getFirstName(event);
+
+    // Assert
+    verify(userRepository, times(2)).findById(1L);
+  }
+
+  @Test
+  void getFirstName_WhenFull_ShouldEvictOnlyLeastRecentlyUsedUser() {
+    // Arrange
+    ReflectionTestUtils.setField(recipientNameCache, "maxSize", 2);
+    when(userRepository.findById(anyLong())).thenReturn(Optional.of(User.builder().firstName("Bruce").build()));
+    AlertTriggeredEvent second = AlertTriggeredEvent.builder().userId(2L).email("alfred@email.com").build();
+    AlertTriggeredEvent third = AlertTriggeredEvent.builder().userId(3L).email("dick@email.com").build();
+    recipientNameCache.getFirstName(event);
+    recipientNameCache.getFirstName(second);
+
+    // Act: user 1 is read again, so user 2 is the eldest entry when user 3 is added
+    recipientNameCache.getFirstName(event);
+    recipientNameCache.getFirstName(third);
+    recipientNameCache.getFirstName(event);
+    recipientNameCache.getFirstName(third);
+    recipientNameCache.getFirstName(second);
+
+    // Assert
+    verify(userRepository, times(1)).findById(1L);
+    verify(userRepository, times(2)).findById(2L);
+    verify(userRepository, times(1)).findById(3L);
+  }
+
+  @Test
+  void getFirstName_WhenUserNotFound_ShouldFallBackToEmail() {
+    // Arrange
+    when(userRepository.findById(1L)).thenReturn(Optional.empty());
+
+    // Act
+    String result = recipientNameCache.getFirstName(event);
+
+    // Assert
+    assertEquals("bruce@email.com", result);
+  }
+
+  @Test
+  void getFirstName_WhenRepositoryFails_ShouldFallBackToEmail() {
+    // Arrange
+    when(userRepository.findById(1L)).thenThrow(new RuntimeException("Database error"));
+
+    // Act
+    String result = recipientNameCache.getFirstName(event);
+
+    // Assert
+    assertEquals("bruce@email.com", result);
+  }
+
+  @Test
+  void getFirstName_WithoutUserId_ShouldNotQueryRepository() {
+    // Act
+    String result = recipientNameCache.getFirstName(AlertTriggeredEvent.builder().email("bruce@email.com").build());
+
+    // Assert
+    assertEquals("bruce@email.com", result);
+    verifyNoInteractions(userRepository);
+  }
+}
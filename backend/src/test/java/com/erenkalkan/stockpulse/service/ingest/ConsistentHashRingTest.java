@@ -0,0 +1,80 @@
+package com.erenkalkan.stockpulse.service.ingest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+
+  private List<String> symbols;
+
+  @BeforeEach
+  void setUp() {
+    symbols = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      symbols.add("SYM" + i);
+    }
+  }
+
+  @Test
+  void assign_ShouldRespectCapacityWhenRoomExists() {
+    // Arrange
+    ConsistentHashRing ring = new ConsistentHashRing(6, 64);
+
+    // Act
+    List<Set<String>> shards = ring.assign(symbols, 50);
+
+    // Assert
+    assertEquals(6, shards.size());
+    shards.forEach(shard -> assertEquals(50, shard.size()));
+  }
+
+  @Test
+  void assign_WhenNodeAdded_ShouldMoveOnlyAFractionOfSymbols() {
+    // Arrange
+    List<Set<String>> before = new ConsistentHashRing(4, 64).assign(symbols, Integer.MAX_VALUE);
+
+    // Act
+    List<Set<String>> after = new ConsistentHashRing(5, 64).assign(symbols, Integer.MAX_VALUE);
+
+    // Assert
+    int moved = 0;
+    for (int node = 0; node < 4; node++) {
+      for (String symbol : before.get(node)) {
+        if (!after.get(node).contains(symbol)) {
+          moved++;
+        }
+      }
+    }
+    assertTrue(moved < symbols.size() / 3, "moved " + moved);
+  }
+
+  @Test
+  void assign_WhenAllNodesFull_ShouldStillPlaceEverySymbol() {
+    // Arrange
+    ConsistentHashRing ring = new ConsistentHashRing(2, 64);
+
+    // Act
+    List<Set<String>> shards = ring.assign(symbols, 50);
+
+    // Assert
+    assertEquals(300, shards.get(0).size() + shards.get(1).size());
+  }
+
+  @Test
+  void nodeFor_ShouldBeDeterministic() {
+    // Arrange
+    ConsistentHashRing first = new ConsistentHashRing(4, 64);
+    ConsistentHashRing second = new ConsistentHashRing(4, 64);
+
+    // Act & Assert
+    for (String symbol : symbols) {
+      assertEquals(first.nodeFor(symbol), second.nodeFor(symbol));
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package com.erenkalkan.stockpulse.service.ingest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolSubscriptionsTest {
+
+  private SymbolSubscriptions symbolSubscriptions;
+
+  @BeforeEach
+  void setUp() {
+    symbolSubscriptions = new SymbolSubscriptions();
+  }
+
+  @Test
+  void acquire_ShouldReportOnlyFirstDemandForSymbol() {
+    // Act
+    List<String> first = symbolSubscriptions.acquire("session-1", List.of("AAPL", "MSFT"));
+    List<String> second = symbolSubscriptions.acquire("session-2", List.of("AAPL", "GOOGL"));
+
+    // Assert
+    assertEquals(List.of("AAPL", "MSFT"), first);
+    assertEquals(List.of("GOOGL"), second);
+    assertEquals(2, symbolSubscriptions.getReferenceCount("AAPL"));
+    assertEquals(Set.of("AAPL", "MSFT", "GOOGL"), symbolSubscriptions.getDemandedSymbols());
+  }
+
+  @Test
+  void acquire_WhenSessionRepeatsSymbol_ShouldNotCountTwice() {
+    // Arrange
+    symbolSubscriptions.acquire("session-1", List.of("AAPL"));
+
+    // Act
+    List<String> added = symbolSubscriptions.acquire("session-1", List.of("AAPL"));
+    List<String> removed = symbolSubscriptions.release("session-1", List.of("AAPL"));
+
+    // Assert
+    assertTrue(added.isEmpty());
+    assertEquals(List.of("AAPL"), removed);
+    assertEquals(0, symbolSubscriptions.getReferenceCount("AAPL"));
+  }
+
+  @Test
+  void release_ShouldReportSymbolOnlyWhenLastSessionLeaves() {
+    // Arrange
+    symbolSubscriptions.acquire("session-1", List.of("AAPL"));
+    symbolSubscriptions.acquire("session-2", List.of("AAPL"));
+
+    // Act
+    List<String> first = symbolSubscriptions.release("session-1", List.of("AAPL"));
+    List<String> second = symbolSubscriptions.release("session-2", List.of("AAPL"));
+
+    // Assert
+    assertTrue(first.isEmpty());
+    assertEquals(List.of("AAPL"), second);
+    assertTrue(symbolSubscriptions.getDemandedSymbols().isEmpty());
+  }
+
+  @Test
+  void release_WhenSessionDoesNotHoldSymbol_ShouldNotDecrement() {
+    // Arrange
+    symbolSubscriptions.acquire("session-1", List.of("AAPL"));
+
+    // Act
+    List<String> removed = symbolSubscriptions.release("session-2", List.of("AAPL"));
+
+    // Assert
+    assertTrue(removed.isEmpty());
+    assertEquals(1, symbolSubscriptions.getReferenceCount("AAPL"));
+  }
+
+  @Test
+  void releaseAll_ShouldDropEverySymbolOfSession() {
+    // Arrange
+    symbolSubscriptions.acquire("session-1", List.of("AAPL", "MSFT"));
+    symbolSubscriptions.acquire("session-2", List.of("MSFT"));
+
+    // Act
+    List<String> removed = symbolSubscriptions.releaseAll("session-1");
+
+    // Assert
+    assertEquals(List.of("AAPL"), removed);
+    assertEquals(Set.of("MSFT"), symbolSubscriptions.getDemandedSymbols());
+    assertTrue(symbolSubscriptions.getSessionSymbols("session-1").isEmpty());
+  }
+
+  @Test
+  void releaseAll_WhenSymbolHasActiveAlert_ShouldKeepItDemanded() {
+    // Arrange
+    symbolSubscriptions.acquire("session-1", List.of("AAPL", "MSFT"));
+    boolean newlyDemanded = symbolSubscriptions.holdForAlerts("AAPL");
+
+    // Act
+    List<String> removed = symbolSubscriptions.releaseAll("session-1");
+
+    // Assert
+    assertFalse(newlyDemanded);
+    assertEquals(List.of("MSFT"), removed);
+    assertEquals(Set.of("AAPL"), symbolSubscriptions.getDemandedSymbols());
+  }
+
+  @Test
+  void releaseForAlerts_WhenNoSessionHoldsSymbol_ShouldStopDemandingIt() {
+    // Arrange
+    symbolSubscriptions.holdForAlerts("AAPL");
+
+    // Act
+    boolean released = symbolSubscriptions.releaseForAlerts("AAPL");
+
+    // Assert
+    assertTrue(released);
+    assertTrue(symbolSubscriptions.getDemandedSymbols().isEmpty());
+  }
+}
@@ -0,0 +1,126 @@
+package com.erenkalkan.stockpulse.service.ingest;
+
+import com.erenkalkan.stockpulse.model.dto.StockPriceDTO;
+import com.erenkalkan.stockpulse.service.kafka.StockPriceProducer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TickRingBufferTest {
+
+  @Mock
+  private StockPriceProducer stockPriceProducer;
+
+  private SimpleMeterRegistry meterRegistry;
+  private TickRingBuffer tickRingBuffer;
+  private TradeTick tick;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    tickRingBuffer = new TickRingBuffer(stockPriceProducer, meterRegistry);
+    ReflectionTestUtils.setField(tickRingBuffer, "requestedSize", 4);
+    ReflectionTestUtils.setField(tickRingBuffer, "consumerCount", 1);
+    ReflectionTestUtils.setField(tickRingBuffer, "waitStrategyType", TickRingBuffer.WaitStrategyType.BLOCKING);
+    tick = new TradeTick();
+  }
+
+  @AfterEach
+  void tearDown() {
+    tickRingBuffer.stop();
+  }
+
+  private void publish(String symbol, long timestamp) {
+    tick.setSymbol(symbol);
+    tick.setPrice(150.00);
+    tick.setTimestamp(timestamp);
+    tickRingBuffer.publish(tick);
+  }
+
+  private List<String> published() {
+    ArgumentCaptor<StockPriceDTO> captor = ArgumentCaptor.forClass(StockPriceDTO.class);
+    verify(stockPriceProducer, atLeastOnce()).publishStockPrice(captor.capture());
+    return captor.getAllValues().stream()
+            .map(dto -> dto.getSymbol() + dto.getTimestamp())
+            .toList();
+  }
+
+  @Test
+  void publish_ShouldHandTicksToProducerInOrder() {
+    // Arrange
+    ReflectionTestUtils.setField(tickRingBuffer, "overflowPolicy", TickRingBuffer.OverflowPolicy.BLOCK);
+    ReflectionTestUtils.setField(tickRingBuffer, "consumerCount", 2);
+    tickRingBuffer.start();
+
+    // Act
+    for (long i = 1; i <= 20; i++) {
+      publish(i % 2 == 0 ? "AAPL" : "MSFT", i);
+    }
+    tickRingBuffer.stop();
+
+    // Assert
+    List<String> published = published();
+    assertEquals(20, published.size());
+    assertEquals(List.of("AAPL2", "AAPL4", "AAPL6"), published.stream().filter(s -> s.startsWith("AAPL")).limit(3).toList());
+  }
+
+  @Test
+  void publish_WhenFullWithDropOldest_ShouldKeepNewestTickPerSymbol() throws Exception {
+    // Arrange
+    ReflectionTestUtils.setField(tickRingBuffer, "overflowPolicy", TickRingBuffer.OverflowPolicy.DROP_OLDEST);
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      release.await();
+      return null;
+    }).when(stockPriceProducer).publishStockPrice(any());
+    tickRingBuffer.start();
+
+    // Act
+    publish("AAPL", 1);
+    publish("MSFT", 2);
+    publish("GOOGL", 3);
+    publish("AMZN", 4);
+    publish("AAPL", 5);
+    publish("AAPL", 6);
+
+    // Assert
+    assertEquals(4, tickRingBuffer.getOccupancy());
+    assertEquals(1, tickRingBuffer.getOverflowSize());
+    assertEquals(1.0, meterRegistry.get("stockpulse.ingest.ring.dropped").counter().count());
+
+    release.countDown();
+    while (tickRingBuffer.getOccupancy() > 0) {
+      Thread.sleep(1);
+    }
+    assertTrue(tickRingBuffer.drainOverflow());
+    tickRingBuffer.stop();
+    assertEquals(List.of("AAPL1", "MSFT2", "GOOGL3", "AMZN4", "AAPL6"), published());
+  }
+
+  @Test
+  void start_ShouldRoundCapacityUpToPowerOfTwo() {
+    // Arrange
+    ReflectionTestUtils.setField(tickRingBuffer, "requestedSize", 1000);
+    ReflectionTestUtils.setField(tickRingBuffer, "overflowPolicy", TickRingBuffer.OverflowPolicy.BLOCK);
+
+    // Act
+    tickRingBuffer.start();
+
+    // Assert
+    assertEquals(1024, tickRingBuffer.getCapacity());
+    assertEquals(0, tickRingBuffer.getOccupancy());
+  }
+}
@@ -0,0 +1,93 @@
+package com.erenkalkan.stockpulse.service.ingest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link TradeFrameDecoder} against the JsonNode tree walk it replaced.
+ * Run with {@code main} from the test classpath; add {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TradeFrameDecoderBenchmark {
+
+  private static final String[] SYMBOLS = {"AAPL", "MSFT", "GOOGL", "AMZN", "NVDA", "TSLA", "META", "BINANCE:BTCUSDT"};
+
+  @Param({"1", "10", "50"})
+  private int tradesPerFrame;
+
+  private String payload;
+  private ObjectMapper objectMapper;
+  private TradeFrameDecoder decoder;
+  private TradeFrameDecoder.TradeTickHandler handler;
+  private Blackhole blackhole;
+
+  @Setup
+  public void setUp(Blackhole blackhole) {
+    StringBuilder frame = new StringBuilder("{\"data\":[");
+    for (int i = 0; i < tradesPerFrame; i++) {
+      if (i > 0) {
+        frame.append(',');
+      }
+      frame.append("{\"c\":[\"1\",\"12\"],\"p\":").append(150.25 + i)
+              .append(",\"s\":\"").append(SYMBOLS[i % SYMBOLS.length])
+              .append("\",\"t\":").append(1700000000000L + i)
+              .append(",\"v\":").append(i + 1).append('}');
+    }
+    payload = frame.append("],\"type\":\"trade\"}").toString();
+    objectMapper = new ObjectMapper();
+    decoder = new TradeFrameDecoder();
+    this.blackhole = blackhole;
+    handler = tick -> {
+      this.blackhole.consume(tick.getSymbol());
+      this.blackhole.consume(tick.getPrice());
+      this.blackhole.consume(tick.getTimestamp());
+      this.blackhole.consume(tick.getVolume());
+    };
+  }
+
+  @Benchmark
+  public void treeModel(Blackhole blackhole) throws Exception {
+    JsonNode rootNode = objectMapper.readTree(payload);
+    if ("trade".equals(rootNode.path("type").asText())) {
+      for (JsonNode tradeData : rootNode.path("data")) {
+        blackhole.consume(tradeData.path("s").asText());
+        blackhole.consume(tradeData.path("p").asDouble());
+        blackhole.consume(tradeData.path("t").asLong());
+        blackhole.consume(tradeData.path("v").asDouble());
+      }
+    }
+  }
+
+  @Benchmark
+  public void streamingDecoder() throws Exception {
+    decoder.decode(payload, handler);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+            .include(TradeFrameDecoderBenchmark.class.getSimpleName())
+            .build()).run();
+  }
+}
@@ -0,0 +1,122 @@
+package com.erenkalkan.stockpulse.service.ingest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TradeFrameDecoderTest {
+
+  private TradeFrameDecoder decoder;
+  private List<String> received;
+
+  @BeforeEach
+  void setUp() {
+    decoder = new TradeFrameDecoder();
+    received = new ArrayList<>();
+  }
+
+  private void record(TradeTick tick) {
+    received.add(tick.getSymbol() + "@" + tick.getPrice() + "@" + tick.getTimestamp() + "@" + tick.getVolume());
+  }
+
+  @Test
+  void decode_TradeFrame_ShouldEmitEveryTrade() throws Exception {
+    // Arrange
+    String payload = "{\"data\":[{\"p\":150.25,\"s\":\"AAPL\",\"t\":1700000000000,\"v\":10,\"c\":[\"1\",\"12\"]},"
+            + "{\"p\":310.5,\"s\":\"MSFT\",\"t\":1700000000001,\"v\":0.5}],\"type\":\"trade\"}";
+
+    // Act
+    TradeFrameDecoder.FrameType frameType = decoder.decode(payload, this::record);
+
+    // Assert
+    assertEquals(TradeFrameDecoder.FrameType.TRADE, frameType);
+    assertEquals(List.of("AAPL@150.25@1700000000000@10.0", "MSFT@310.5@1700000000001@0.5"), received);
+  }
+
+  @Test
+  void decode_WhenTypePrecedesData_ShouldEmitTrades() throws Exception {
+    // Arrange
+    String payload = "{\"type\":\"trade\",\"data\":[{\"s\":\"AAPL\",\"p\":150.25,\"t\":1700000000000}]}";
+
+    // Act
+    decoder.decode(payload, this::record);
+
+    // Assert
+    assertEquals(List.of("AAPL@150.25@1700000000000@0.0"), received);
+  }
+
+  @Test
+  void decode_PingFrame_ShouldReturnPingWithoutTicks() throws Exception {
+    // Act
+    TradeFrameDecoder.FrameType frameType = decoder.decode("{\"type\":\"ping\"}", this::record);
+
+    // Assert
+    assertEquals(TradeFrameDecoder.FrameType.PING, frameType);
+    assertTrue(received.isEmpty());
+  }
+
+  @Test
+  void decode_NonTradeFrameWithData_ShouldNotEmitTicks() throws Exception {
+    // Arrange
+    String payload = "{\"data\":[{\"s\":\"AAPL\",\"p\":150.25,\"t\":1700000000000}],\"type\":\"news\"}";
+
+    // Act
+    TradeFrameDecoder.FrameType frameType = decoder.decode(payload, this::record);
+
+    // Assert
+    assertEquals(TradeFrameDecoder.FrameType.OTHER, frameType);
+    assertTrue(received.isEmpty());
+  }
+
+  @Test
+  void decode_MissingFields_ShouldYieldInvalidTick() throws Exception {
+    // Arrange
+    String payload = "{\"type\":\"trade\",\"data\":[{\"s\":\"AAPL\",\"p\":null}]}";
+    List<Boolean> validity = new ArrayList<>();
+
+    // Act
+    decoder.decode(payload, tick -> validity.add(tick.isValid()));
+
+    // Assert
+    assertEquals(List.of(false), validity);
+  }
+
+  @Test
+  void decode_RepeatedSymbol_ShouldReuseCanonicalString() throws Exception {
+    // Arrange
+    String payload = "{\"type\":\"trade\",\"data\":[{\"s\":\"AAPL\",\"p\":1,\"t\":1}]}";
+    List<String> symbols = new ArrayList<>();
+
+    // Act
+    decoder.decode(payload, tick -> symbols.add(tick.getSymbol()));
+    decoder.decode(payload, tick -> symbols.add(tick.getSymbol()));
+
+    // Assert
+    assertEquals(2, symbols.size());
+    assertSame(symbols.get(0), symbols.get(1));
+  }
+
+  @Test
+  void decode_LargeFrame_ShouldGrowTickPool() throws Exception {
+    // Arrange
+    StringBuilder payload = new StringBuilder("{\"type\":\"trade\",\"data\":[");
+    for (int i = 0; i < 100; i++) {
+      if (i > 0) {
+        payload.append(',');
+      }
+      payload.append("{\"s\":\"SYM").append(i).append("\",\"p\":").append(i + 1).append(",\"t\":").append(i + 1).append('}');
+    }
+    payload.append("]}");
+
+    // Act
+    decoder.decode(payload.toString(), this::record);
+
+    // Assert
+    assertEquals(100, received.size());
+    assertEquals("SYM99@100.0@100@0.0", received.get(99));
+  }
+}
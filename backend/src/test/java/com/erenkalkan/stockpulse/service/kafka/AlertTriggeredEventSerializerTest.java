@@ -0,0 +1,98 @@
+package com.erenkalkan.stockpulse.service.kafka;
+
+import com.erenkalkan.stockpulse.model.dto.AlertTriggeredEvent;
+import com.erenkalkan.stockpulse.model.enums.ConditionType;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlertTriggeredEventSerializerTest {
+
+  private final AlertTriggeredEventSerializer serializer = new AlertTriggeredEventSerializer();
+  private final AlertTriggeredEventDeserializer deserializer = new AlertTriggeredEventDeserializer();
+
+  private final AlertTriggeredEvent event = AlertTriggeredEvent.builder()
+          .alertId(42L)
+          .userId(7L)
+          .email("bruce@email.com")
+          .symbol("AAPL")
+          .condition(ConditionType.ABOVE)
+          .targetValue(150.00)
+          .triggerPrice(151.25)
+          .triggeredAt(1_700_000_000_000L)
+          .build();
+
+  @Test
+  void serialize_ShouldRoundTripEvent() {
+    // Act
+    byte[] data = serializer.serialize("alert-triggers", event);
+    AlertTriggeredEvent result = deserializer.deserialize("alert-triggers", data);
+
+    // Assert
+    assertEquals(event, result);
+    assertEquals(AlertTriggeredEventSerializer.FIXED_BYTES + 2 + 4 + 2 + 15, data.length);
+  }
+
+  @Test
+  void serialize_WithoutUserIdOrCondition_ShouldRoundTripNulls() {
+    // Arrange
+    AlertTriggeredEvent partial = AlertTriggeredEvent.builder()
+            .alertId(1L)
+            .email("bruce@email.com")
+            .symbol("AAPL")
+            .build();
+
+    // Act
+    AlertTriggeredEvent result = deserializer.deserialize("alert-triggers", serializer.serialize("alert-triggers", partial));
+
+    // Assert
+    assertNull(result.getUserId());
+    assertNull(result.getCondition());
+    assertEquals(partial, result);
+  }
+
+  @Test
+  void serialize_WithNonAsciiEmail_ShouldRoundTripUtf8() {
+    // Arrange
+    AlertTriggeredEvent unicode = AlertTriggeredEvent.builder()
+            .email("j\u00fcrgen@email.com")
+            .symbol("AAPL")
+            .build();
+
+    // Act
+    AlertTriggeredEvent result = deserializer.deserialize("alert-triggers", serializer.serialize("alert-triggers", unicode));
+
+    // Assert
+    assertEquals("j\u00fcrgen@email.com", result.getEmail());
+  }
+
+  @Test
+  void deserialize_WhenNull_ShouldReturnNull() {
+    // Act & Assert
+    assertNull(serializer.serialize("alert-triggers", null));
+    assertNull(deserializer.deserialize("alert-triggers", null));
+  }
+
+  @Test
+  void deserialize_WhenJsonAlert_ShouldRejectVersion() {
+    // Arrange
+    byte[] json = "{\"id\":1,\"targetValue\":150.0}".getBytes(StandardCharsets.UTF_8);
+
+    // Act & Assert
+    assertThrows(SerializationException.class, () -> deserializer.deserialize("alert-triggers", json));
+  }
+
+  @Test
+  void deserialize_WhenTruncated_ShouldThrowSerializationException() {
+    // Arrange
+    byte[] data = serializer.serialize("alert-triggers", event);
+    byte[] truncated = Arrays.copyOf(data, data.length - 3);
+
+    // Act & Assert
+    assertThrows(SerializationException.class, () -> deserializer.deserialize("alert-triggers", truncated));
+  }
+}
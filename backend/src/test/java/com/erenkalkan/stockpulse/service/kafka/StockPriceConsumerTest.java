@@ -0,0 +1,96 @@
+package com.erenkalkan.stockpulse.service.kafka;
+
+import com.erenkalkan.stockpulse.model.dto.StockPriceDTO;
+import com.erenkalkan.stockpulse.service.LastTradeTable;
+import com.erenkalkan.stockpulse.service.cluster.InstanceIdentity;
+import com.erenkalkan.stockpulse.service.websocket.StockPriceWebSocketHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockPriceConsumerTest {
+
+  @Mock
+  private StockPriceWebSocketHandler webSocketHandler;
+
+  @Mock
+  private TickConflationMetrics conflationMetrics;
+
+  @Mock
+  private LastTradeTable lastTradeTable;
+
+  private StockPriceConsumer stockPriceConsumer;
+
+  @BeforeEach
+  void setUp() {
+    stockPriceConsumer = new StockPriceConsumer(webSocketHandler, conflationMetrics, lastTradeTable,
+            new InstanceIdentity("node-a"));
+  }
+
+  @Test
+  void getGroupId_WhenFanningOut_ShouldBePerInstance() {
+    // Arrange
+    ReflectionTestUtils.setField(stockPriceConsumer, "fanOut", true);
+
+    // Act & Assert
+    assertEquals("websocket-server-group-node-a", stockPriceConsumer.getGroupId());
+    assertNotEquals(stockPriceConsumer.getGroupId(), new StockPriceConsumer(webSocketHandler, conflationMetrics,
+            lastTradeTable, new InstanceIdentity("node-b")).getGroupId());
+  }
+
+  @Test
+  void getGroupId_WhenNotFanningOut_ShouldBeShared() {
+    // Arrange
+    ReflectionTestUtils.setField(stockPriceConsumer, "fanOut", false);
+
+    // Act & Assert
+    assertEquals("websocket-server-group", stockPriceConsumer.getGroupId());
+  }
+
+  @Test
+  void listen_ShouldRecordEveryTickAndBroadcastLatestPerSymbol() {
+    // Arrange
+    StockPriceDTO first = StockPriceDTO.builder().symbol("AAPL").price(150.00).timestamp(1L).build();
+    StockPriceDTO second = StockPriceDTO.builder().symbol("AAPL").price(151.00).timestamp(2L).build();
+    StockPriceDTO other = StockPriceDTO.builder().symbol("MSFT").price(300.00).timestamp(1L).build();
+    List<StockPriceDTO> batch = List.of(first, other, second);
+
+    // Act
+    stockPriceConsumer.listen(batch);
+
+    // Assert
+    verify(lastTradeTable, times(1)).recordAll(batch);
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Collection<StockPriceDTO>> broadcast = ArgumentCaptor.forClass(Collection.class);
+    verify(webSocketHandler, times(1)).broadcast(broadcast.capture());
+    assertEquals(List.of(second, other), List.copyOf(broadcast.getValue()));
+    verify(conflationMetrics, times(1)).record("websocket", 3, 2);
+  }
+
+  @Test
+  void conflateLatest_ShouldKeepLastTickPerSymbol() {
+    // Arrange
+    StockPriceDTO first = StockPriceDTO.builder().symbol("AAPL").price(150.00).build();
+    StockPriceDTO second = StockPriceDTO.builder().symbol("AAPL").price(151.00).build();
+    StockPriceDTO other = StockPriceDTO.builder().symbol("MSFT").price(300.00).build();
+
+    // Act
+    Map<String, StockPriceDTO> latest = StockPriceConsumer.conflateLatest(List.of(first, other, second));
+
+    // Assert
+    assertEquals(List.of("AAPL", "MSFT"), List.copyOf(latest.keySet()));
+    assertSame(second, latest.get("AAPL"));
+  }
+}
@@ -0,0 +1,150 @@
+package com.erenkalkan.stockpulse.service.upstream;
+
+import com.erenkalkan.stockpulse.exception.UpstreamQuotaExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamSchedulerTest {
+
+  private MeterRegistry meterRegistry;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+  }
+
+  @Test
+  void execute_ShouldRunCallAndCountGrantedRequest() {
+    // Arrange
+    UpstreamScheduler scheduler = new UpstreamScheduler(meterRegistry, 60, 5, 50);
+
+    // Act
+    String result = scheduler.execute(UpstreamProvider.FINNHUB, () -> "quote");
+
+    // Assert
+    assertEquals("quote", result);
+    assertEquals(1.0, meterRegistry.get("stockpulse.upstream.requests")
+            .tag("provider", "finnhub").tag("priority", "interactive").tag("result", "granted")
+            .counter().count());
+  }
+
+  @Test
+  void execute_WhenQuotaIsUsedUp_ShouldFailAfterQueueTimeout() {
+    // Arrange
+    UpstreamScheduler scheduler = new UpstreamScheduler(meterRegistry, 60, 1, 50);
+    scheduler.execute(UpstreamProvider.POLYGON, () -> "details");
+
+    // Act & Assert
+    assertThrows(UpstreamQuotaExceededException.class,
+            () -> scheduler.execute(UpstreamProvider.POLYGON, () -> "financials"));
+    assertEquals("finnhub", scheduler.execute(UpstreamProvider.FINNHUB, () -> "finnhub"));
+    assertEquals(1.0, meterRegistry.get("stockpulse.upstream.requests")
+            .tag("provider", "polygon").tag("result", "timeout").counter().count());
+  }
+
+  @Test
+  void execute_BackgroundPriorities_ShouldLeaveQuotaForInteractiveRequests() {
+    // Arrange
+    UpstreamScheduler scheduler = new UpstreamScheduler(meterRegistry, 10, 5, 50);
+
+    // Act
+    int prefetched = drain(scheduler, RequestPriority.PREFETCH);
+    int refreshed = drain(scheduler, RequestPriority.REFRESH);
+    int interactive = drain(scheduler, RequestPriority.INTERACTIVE);
+
+    // Assert
+    assertEquals(5, prefetched);
+    assertEquals(3, refreshed);
+    assertEquals(2, interactive);
+  }
+
+  @Test
+  void execute_ShouldServeWaitingInteractiveRequestBeforeBackgroundWork() throws Exception {
+    // Arrange
+    UpstreamScheduler scheduler = new UpstreamScheduler(meterRegistry, 60, 5, 1_500);
+    for (int i = 0; i < 60; i++) {
+      scheduler.execute(UpstreamProvider.FINNHUB, () -> "warm-up");
+    }
+
+    // Act
+    CompletableFuture<String> prefetch = CompletableFuture.supplyAsync(() -> RequestPriority.PREFETCH.call(
+            () -> scheduler.execute(UpstreamProvider.FINNHUB, () -> "prefetch")));
+    Thread.sleep(50);
+    String interactive = scheduler.execute(UpstreamProvider.FINNHUB, () -> "interactive");
+
+    // Assert
+    assertEquals("interactive", interactive);
+    ExecutionException failure = assertThrows(ExecutionException.class, () -> prefetch.get(5, TimeUnit.SECONDS));
+    assertInstanceOf(UpstreamQuotaExceededException.class, failure.getCause());
+  }
+
+  @Test
+  void execute_WhenWaitingCallIsRaised_ShouldTakeQuotaLeftForInteractiveRequests() throws Exception {
+    // Arrange
+    UpstreamScheduler scheduler = new UpstreamScheduler(meterRegistry, 60, 5, 2_000);
+    scheduler.execute(UpstreamProvider.POLYGON, () -> "details");
+    scheduler.execute(UpstreamProvider.POLYGON, () -> "financials");
+    AtomicReference<RequestPriority.Handle> handle = new AtomicReference<>();
+    CompletableFuture<String> prefetch = CompletableFuture.supplyAsync(() -> RequestPriority.PREFETCH.call(() -> {
+      handle.set(RequestPriority.currentHandle());
+      return scheduler.execute(UpstreamProvider.POLYGON, () -> "prefetch");
+    }));
+    long deadline = System.currentTimeMillis() + 1_000;
+    while (meterRegistry.get("stockpulse.upstream.queue.size").tag("provider", "polygon").gauge().value() < 1
+            && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+
+    // Act: the three tokens left are below the prefetch reserve but enough for an interactive call
+    handle.get().raiseTo(RequestPriority.INTERACTIVE);
+
+    // Assert
+    assertEquals("prefetch", prefetch.get(1, TimeUnit.SECONDS));
+    assertEquals(3.0, meterRegistry.get("stockpulse.upstream.requests")
+            .tag("provider", "polygon").tag("priority", "interactive").tag("result", "granted")
+            .counter().count());
+  }
+
+  @Test
+  void execute_WhenProviderRespondsWith429_ShouldPauseThatProvider() {
+    // Arrange
+    UpstreamScheduler scheduler = new UpstreamScheduler(meterRegistry, 60, 5, 50);
+
+    // Act
+    assertThrows(HttpClientErrorException.TooManyRequests.class, () -> scheduler.execute(UpstreamProvider.FINNHUB,
+            () -> {
+              throw HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests",
+                      null, null, null);
+            }));
+
+    // Assert
+    assertThrows(UpstreamQuotaExceededException.class, () -> scheduler.execute(UpstreamProvider.FINNHUB, () -> "quote"));
+    assertEquals("details", scheduler.execute(UpstreamProvider.POLYGON, () -> "details"));
+    assertEquals(1.0, meterRegistry.get("stockpulse.upstream.requests")
+            .tag("provider", "finnhub").tag("result", "throttled").counter().count());
+  }
+
+  private static int drain(UpstreamScheduler scheduler, RequestPriority priority) {
+    int granted = 0;
+    try {
+      while (granted < 1_000) {
+        priority.run(() -> scheduler.execute(UpstreamProvider.FINNHUB, () -> "ok"));
+        granted++;
+      }
+    } catch (UpstreamQuotaExceededException e) {
+      return granted;
+    }
+    return granted;
+  }
+}
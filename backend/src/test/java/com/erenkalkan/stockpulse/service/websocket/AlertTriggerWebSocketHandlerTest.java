@@ -0,0 +1,105 @@
+package com.erenkalkan.stockpulse.service.websocket;
+
+import com.erenkalkan.stockpulse.model.entity.User;
+import com.erenkalkan.stockpulse.service.JwtService;
+import com.erenkalkan.stockpulse.service.cluster.UserPresenceRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AlertTriggerWebSocketHandlerTest {
+
+  @Mock
+  private JwtService jwtService;
+
+  @Mock
+  private UserPresenceRegistry userPresenceRegistry;
+
+  @Mock
+  private WebSocketSession bruceSession;
+
+  @Mock
+  private WebSocketSession aliceSession;
+
+  @InjectMocks
+  private AlertTriggerWebSocketHandler alertTriggerWebSocketHandler;
+
+  private final User bruce = User.builder()
+          .email("bruce@email.com")
+          .build();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    connect(bruceSession, "session-1", "bruce-token", "bruce@email.com");
+    connect(aliceSession, "session-2", "alice-token", "alice@email.com");
+  }
+
+  private void connect(WebSocketSession session, String sessionId, String token, String email) throws Exception {
+    HttpHeaders headers = new HttpHeaders();
+    headers.add("Cookie", "auth-token=" + token);
+    lenient().when(session.getId()).thenReturn(sessionId);
+    lenient().when(session.isOpen()).thenReturn(true);
+    when(session.getHandshakeHeaders()).thenReturn(headers);
+    when(session.getAttributes()).thenReturn(new HashMap<>());
+    when(jwtService.isTokenValid(token)).thenReturn(true);
+    when(jwtService.extractUsername(token)).thenReturn(email);
+    alertTriggerWebSocketHandler.afterConnectionEstablished(session);
+  }
+
+  @Test
+  void afterConnectionEstablished_ShouldRegisterPresence() {
+    // Assert
+    verify(userPresenceRegistry, times(1)).connected("bruce@email.com");
+    verify(userPresenceRegistry, times(1)).connected("alice@email.com");
+  }
+
+  @Test
+  void broadcast_ShouldOnlyReachSessionsOfUser() throws Exception {
+    // Act
+    alertTriggerWebSocketHandler.broadcast(bruce, "Alert for AAPL");
+
+    // Assert
+    verify(bruceSession, times(1)).sendMessage(new TextMessage("Alert for AAPL"));
+    verify(aliceSession, never()).sendMessage(any());
+  }
+
+  @Test
+  void broadcast_AfterConnectionClosed_ShouldSkipSessionAndReleasePresence() throws Exception {
+    // Arrange
+    alertTriggerWebSocketHandler.afterConnectionClosed(bruceSession, CloseStatus.NORMAL);
+
+    // Act
+    alertTriggerWebSocketHandler.broadcast(bruce, "Alert for AAPL");
+
+    // Assert
+    verify(bruceSession, never()).sendMessage(any());
+    verify(userPresenceRegistry, times(1)).disconnected("bruce@email.com");
+  }
+
+  @Test
+  void broadcast_WhenSendFails_ShouldDropSessionOnce() throws Exception {
+    // Arrange
+    doThrow(new IOException("Broken pipe")).when(bruceSession).sendMessage(any());
+
+    // Act
+    alertTriggerWebSocketHandler.broadcast(bruce, "Alert for AAPL");
+    alertTriggerWebSocketHandler.afterConnectionClosed(bruceSession, CloseStatus.SERVER_ERROR);
+
+    // Assert
+    verify(userPresenceRegistry, times(1)).disconnected("bruce@email.com");
+  }
+}
@@ -0,0 +1,79 @@
+package com.erenkalkan.stockpulse.service.websocket;
+
+import com.erenkalkan.stockpulse.model.dto.StockPriceDTO;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryPriceFramesTest {
+
+  private StockPriceDTO tick(String symbol, double price, long timestamp) {
+    return StockPriceDTO.builder()
+            .symbol(symbol)
+            .price(price)
+            .timestamp(timestamp)
+            .build();
+  }
+
+  @Test
+  void assign_ShouldKeepIdsStablePerSymbol() {
+    // Arrange
+    BinaryPriceFrames.SymbolIds symbolIds = new BinaryPriceFrames.SymbolIds();
+
+    // Act
+    int apple = symbolIds.assign("AAPL");
+    int microsoft = symbolIds.assign("MSFT");
+    int appleAgain = symbolIds.assign("AAPL");
+
+    // Assert
+    assertEquals(1, apple);
+    assertEquals(2, microsoft);
+    assertEquals(apple, appleAgain);
+    assertEquals(-1, symbolIds.get("TSLA"));
+  }
+
+  @Test
+  void encode_ShouldUseEarliestTimestampAsBase() {
+    // Arrange
+    BinaryPriceFrames.SymbolIds symbolIds = new BinaryPriceFrames.SymbolIds();
+    symbolIds.assign("AAPL");
+    symbolIds.assign("MSFT");
+
+    // Act
+    ByteBuffer buffer = BinaryPriceFrames.encode(List.of(
+            tick("MSFT", 410.123456, 1700000000100L),
+            tick("AAPL", 150.25, 1700000000000L)), symbolIds).getPayload();
+
+    // Assert
+    assertEquals(BinaryPriceFrames.PRICES, buffer.get());
+    assertEquals(2, buffer.getShort());
+    assertEquals(1700000000000L, buffer.getLong());
+    assertEquals(2, buffer.getShort());
+    assertEquals(410_123_456L, buffer.getLong());
+    assertEquals(100, buffer.getInt());
+    assertEquals(1, buffer.getShort());
+    assertEquals(150_250_000L, buffer.getLong());
+    assertEquals(0, buffer.getInt());
+    assertFalse(buffer.hasRemaining());
+  }
+
+  @Test
+  void encode_ShouldSkipSymbolsWithoutId() {
+    // Arrange
+    BinaryPriceFrames.SymbolIds symbolIds = new BinaryPriceFrames.SymbolIds();
+    symbolIds.assign("AAPL");
+
+    // Act
+    ByteBuffer buffer = BinaryPriceFrames.encode(List.of(
+            tick("AAPL", 150.25, 1700000000000L),
+            tick("TSLA", 250.00, 1700000000000L)), symbolIds).getPayload();
+
+    // Assert
+    buffer.get();
+    assertEquals(1, buffer.getShort());
+    assertEquals(BinaryPriceFrames.HEADER_BYTES + BinaryPriceFrames.RECORD_BYTES, buffer.limit());
+  }
+}
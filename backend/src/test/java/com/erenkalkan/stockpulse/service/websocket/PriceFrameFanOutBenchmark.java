@@ -0,0 +1,78 @@
+package com.erenkalkan.stockpulse.service.websocket;
+
+import com.erenkalkan.stockpulse.model.dto.StockPriceDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation cost of fanning one tick out to N recipients: the previous per-recipient String.format
+ * and TextMessage versus one shared pre-encoded frame. Run {@code main}; the gc profiler reports
+ * gc.alloc.rate.norm (bytes per tick), which stays flat in recipients for the shared frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceFrameFanOutBenchmark {
+
+  @Param({"1", "10", "100", "1000"})
+  private int recipients;
+
+  private StockPriceDTO stockPrice;
+  private ObjectMapper objectMapper;
+  private StockPriceWebSocketHandler handler;
+
+  @Setup
+  public void setUp() {
+    stockPrice = StockPriceDTO.builder()
+            .symbol("AAPL")
+            .price(150.25)
+            .timestamp(1700000000000L)
+            .build();
+    objectMapper = new ObjectMapper();
+    handler = new StockPriceWebSocketHandler(null, null, null, null);
+  }
+
+  @Benchmark
+  public void perRecipientFrame(Blackhole blackhole) throws Exception {
+    String json = objectMapper.writeValueAsString(stockPrice);
+    for (int i = 0; i < recipients; i++) {
+      String response = String.format("{\"type\":\"price_update\",\"data\":%s}", json);
+      blackhole.consume(new TextMessage(response));
+    }
+  }
+
+  @Benchmark
+  public void sharedFrame(Blackhole blackhole) throws Exception {
+    TextMessage frame = handler.encodePriceUpdate(stockPrice);
+    for (int i = 0; i < recipients; i++) {
+      blackhole.consume(frame);
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+            .include(PriceFrameFanOutBenchmark.class.getSimpleName())
+            .addProfiler("gc")
+            .build()).run();
+  }
+}
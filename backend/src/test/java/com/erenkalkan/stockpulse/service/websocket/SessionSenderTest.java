@@ -0,0 +1,188 @@
+package com.erenkalkan.stockpulse.service.websocket;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionSenderTest {
+
+  @Mock
+  private WebSocketSession session;
+
+  private SimpleMeterRegistry meterRegistry;
+  private SessionSenderPool sessionSenderPool;
+  private final List<Runnable> pendingDrains = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    lenient().when(session.getId()).thenReturn("session-1");
+    lenient().when(session.isOpen()).thenReturn(true);
+
+    meterRegistry = new SimpleMeterRegistry();
+    sessionSenderPool = new SessionSenderPool(meterRegistry);
+    ReflectionTestUtils.setField(sessionSenderPool, "queueCapacity", 2);
+    // Drains are held back until the test runs them, which models a client that is not reading
+    Executor heldWriter = pendingDrains::add;
+    sessionSenderPool.start(heldWriter);
+  }
+
+  private SessionSender open(SessionSenderPool.OverflowPolicy policy) {
+    ReflectionTestUtils.setField(sessionSenderPool, "overflowPolicy", policy);
+    return sessionSenderPool.open(session);
+  }
+
+  private void runDrains() {
+    while (!pendingDrains.isEmpty()) {
+      pendingDrains.remove(0).run();
+    }
+  }
+
+  private List<String> sentPayloads() throws IOException {
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<WebSocketMessage<?>> captor = ArgumentCaptor.forClass(WebSocketMessage.class);
+    verify(session, atLeastOnce()).sendMessage(captor.capture());
+    return captor.getAllValues().stream().map(message -> (String) message.getPayload()).toList();
+  }
+
+  private double overflow(String outcome) {
+    return meterRegistry.get("stockpulse.websocket.prices.overflow").tag("outcome", outcome).counter().count();
+  }
+
+  @Test
+  void send_ShouldWriteFramesInOrderOnWriter() throws Exception {
+    // Arrange
+    SessionSender sender = open(SessionSenderPool.OverflowPolicy.CONFLATE);
+
+    // Act
+    sender.send("AAPL", new TextMessage("AAPL-1"));
+    sender.send("MSFT", new TextMessage("MSFT-1"));
+    verify(session, never()).sendMessage(any());
+    runDrains();
+
+    // Assert
+    assertEquals(List.of("AAPL-1", "MSFT-1"), sentPayloads());
+    assertEquals(0, sender.getQueueDepth());
+  }
+
+  @Test
+  void send_WhenFullWithConflate_ShouldReplaceQueuedFrameOfSymbol() throws Exception {
+    // Arrange
+    SessionSender sender = open(SessionSenderPool.OverflowPolicy.CONFLATE);
+    sender.send("AAPL", new TextMessage("AAPL-1"));
+    sender.send("MSFT", new TextMessage("MSFT-1"));
+
+    // Act: AAPL-2 replaces AAPL-1 in place, GOOGL-1 has nothing to replace and evicts the oldest frame
+    sender.send("AAPL", new TextMessage("AAPL-2"));
+    sender.send("GOOGL", new TextMessage("GOOGL-1"));
+    runDrains();
+
+    // Assert
+    assertEquals(List.of("MSFT-1", "GOOGL-1"), sentPayloads());
+    assertEquals(1.0, overflow("conflated"));
+    assertEquals(1.0, overflow("dropped"));
+  }
+
+  @Test
+  void send_WhenFullWithDrop_ShouldDiscardNewFrame() throws Exception {
+    // Arrange
+    SessionSender sender = open(SessionSenderPool.OverflowPolicy.DROP);
+    sender.send("AAPL", new TextMessage("AAPL-1"));
+    sender.send("MSFT", new TextMessage("MSFT-1"));
+
+    // Act
+    sender.send("AAPL", new TextMessage("AAPL-2"));
+    runDrains();
+
+    // Assert
+    assertEquals(List.of("AAPL-1", "MSFT-1"), sentPayloads());
+    assertEquals(1.0, overflow("dropped"));
+  }
+
+  @Test
+  void send_WhenFullWithDisconnect_ShouldCloseSessionOnWriter() throws Exception {
+    // Arrange
+    SessionSender sender = open(SessionSenderPool.OverflowPolicy.DISCONNECT);
+    sender.send("AAPL", new TextMessage("AAPL-1"));
+    sender.send("MSFT", new TextMessage("MSFT-1"));
+
+    // Act
+    sender.send("AAPL", new TextMessage("AAPL-2"));
+    verify(session, never()).close(any());
+    assertFalse(sender.isOpen());
+    runDrains();
+
+    // Assert
+    verify(session, times(1)).close(CloseStatus.SESSION_NOT_RELIABLE);
+    verify(session, never()).sendMessage(any());
+    assertEquals(0, sender.getQueueDepth());
+    assertEquals(1.0, overflow("disconnected"));
+  }
+
+  @Test
+  void send_ControlMessage_ShouldQueueEvenWhenFull() throws Exception {
+    // Arrange
+    SessionSender sender = open(SessionSenderPool.OverflowPolicy.DROP);
+    sender.send("AAPL", new TextMessage("AAPL-1"));
+    sender.send("MSFT", new TextMessage("MSFT-1"));
+
+    // Act
+    sender.send(new TextMessage("pong"));
+    runDrains();
+
+    // Assert
+    assertEquals(List.of("AAPL-1", "MSFT-1", "pong"), sentPayloads());
+  }
+
+  @Test
+  void drain_WhenSendFails_ShouldCloseSender() throws Exception {
+    // Arrange
+    SessionSender sender = open(SessionSenderPool.OverflowPolicy.CONFLATE);
+    doThrow(new IOException("Broken pipe")).when(session).sendMessage(any());
+    sender.send("AAPL", new TextMessage("AAPL-1"));
+
+    // Act
+    runDrains();
+
+    // Assert
+    assertFalse(sender.isOpen());
+    verify(session, times(1)).close(CloseStatus.SERVER_ERROR);
+  }
+
+  @Test
+  void sampleSessions_ShouldRecordLagAndDepthOfEachSession() {
+    // Arrange
+    SessionSender busy = open(SessionSenderPool.OverflowPolicy.CONFLATE);
+    open(SessionSenderPool.OverflowPolicy.CONFLATE);
+    busy.send("AAPL", new TextMessage("AAPL-1"));
+    busy.send("MSFT", new TextMessage("MSFT-1"));
+
+    // Act
+    sessionSenderPool.sampleSessions();
+
+    // Assert
+    DistributionSummary depth = meterRegistry.get("stockpulse.websocket.prices.session.depth").summary();
+    assertEquals(2, depth.count());
+    assertEquals(2.0, depth.max());
+    assertEquals(2, meterRegistry.get("stockpulse.websocket.prices.session.lag").summary().count());
+  }
+}
@@ -0,0 +1,300 @@
+package com.erenkalkan.stockpulse.service.websocket;
+
+import com.erenkalkan.stockpulse.model.dto.StockPriceDTO;
+import com.erenkalkan.stockpulse.service.LastTradeTable;
+import com.erenkalkan.stockpulse.service.StockWebSocketService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockPriceWebSocketHandlerTest {
+
+  @Mock
+  private StockWebSocketService stockWebSocketService;
+
+  @Mock
+  private WebSocketSession appleSession;
+
+  @Mock
+  private WebSocketSession microsoftSession;
+
+  @Mock
+  private WebSocketSession binarySession;
+
+  private StockPriceWebSocketHandler stockPriceWebSocketHandler;
+  private TimerWheel timerWheel;
+  private LastTradeTable lastTradeTable;
+
+  private final StockPriceDTO appleTick = StockPriceDTO.builder()
+          .symbol("AAPL")
+          .price(150.25)
+          .timestamp(1700000000000L)
+          .build();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    SessionSenderPool sessionSenderPool = new SessionSenderPool(new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(sessionSenderPool, "queueCapacity", 16);
+    ReflectionTestUtils.setField(sessionSenderPool, "overflowPolicy", SessionSenderPool.OverflowPolicy.CONFLATE);
+    sessionSenderPool.start(Runnable::run);
+    timerWheel = new TimerWheel();
+    timerWheel.init();
+    lastTradeTable = new LastTradeTable();
+    stockPriceWebSocketHandler = new StockPriceWebSocketHandler(stockWebSocketService, sessionSenderPool, timerWheel,
+            lastTradeTable);
+
+    lenient().when(appleSession.getId()).thenReturn("session-1");
+    lenient().when(appleSession.isOpen()).thenReturn(true);
+    lenient().when(microsoftSession.getId()).thenReturn("session-2");
+    lenient().when(microsoftSession.isOpen()).thenReturn(true);
+
+    stockPriceWebSocketHandler.afterConnectionEstablished(appleSession);
+    stockPriceWebSocketHandler.afterConnectionEstablished(microsoftSession);
+  }
+
+  @Test
+  void broadcast_ShouldOnlyReachSessionsSubscribedToSymbol() throws Exception {
+    // Arrange
+    stockPriceWebSocketHandler.handleTextMessage(appleSession, new TextMessage("{\"type\":\"subscribe\",\"symbol\":\"aapl\"}"));
+    stockPriceWebSocketHandler.handleTextMessage(microsoftSession, new TextMessage("{\"type\":\"subscribe\",\"symbols\":[\"MSFT\"]}"));
+    clearInvocations(appleSession, microsoftSession);
+
+    // Act
+    stockPriceWebSocketHandler.broadcast(appleTick);
+
+    // Assert
+    verify(appleSession, times(1)).sendMessage(new TextMessage(
+            "{\"type\":\"price_update\",\"data\":{\"symbol\":\"AAPL\",\"price\":150.25,\"timestamp\":1700000000000}}"));
+    verify(microsoftSession, never()).sendMessage(any());
+    verify(stockWebSocketService, times(1)).subscribe("session-1", List.of("AAPL"));
+  }
+
+  @Test
+  void broadcast_AfterUnsubscribe_ShouldSkipSession() throws Exception {
+    // Arrange
+    stockPriceWebSocketHandler.handleTextMessage(appleSession, new TextMessage("{\"type\":\"subscribe\",\"symbol\":\"AAPL\"}"));
+    stockPriceWebSocketHandler.handleTextMessage(appleSession, new TextMessage("{\"type\":\"unsubscribe\",\"symbol\":\"AAPL\"}"));
+    clearInvocations(appleSession);
+
+    // Act
+    stockPriceWebSocketHandler.broadcast(appleTick);
+
+    // Assert
+    verify(appleSession, never()).sendMessage(any());
+    assertEquals(0, stockPriceWebSocketHandler.getSubscriberCount("AAPL"));
+    verify(stockWebSocketService, times(1)).unsubscribe("session-1", List.of("AAPL"));
+  }
+
+  @Test
+  void afterConnectionClosed_ShouldRemoveSessionFromIndex() throws Exception {
+    // Arrange
+    stockPriceWebSocketHandler.handleTextMessage(appleSession, new TextMessage("{\"type\":\"subscribe\",\"symbols\":[\"AAPL\",\"MSFT\"]}"));
+    stockPriceWebSocketHandler.handleTextMessage(microsoftSession, new TextMessage("{\"type\":\"subscribe\",\"symbol\":\"MSFT\"}"));
+
+    // Act
+    stockPriceWebSocketHandler.afterConnectionClosed(appleSession, CloseStatus.NORMAL);
+
+    // Assert
+    assertEquals(0, stockPriceWebSocketHandler.getSubscriberCount("AAPL"));
+    assertEquals(1, stockPriceWebSocketHandler.getSubscriberCount("MSFT"));
+    verify(stockWebSocketService, times(1)).releaseSession("session-1");
+  }
+
+  @Test
+  void broadcast_ShouldShareOneFrameAcrossSessions() throws Exception {
+    // Arrange
+    stockPriceWebSocketHandler.handleTextMessage(appleSession, new TextMessage("{\"type\":\"subscribe\",\"symbol\":\"AAPL\"}"));
+    stockPriceWebSocketHandler.handleTextMessage(microsoftSession, new TextMessage("{\"type\":\"subscribe\",\"symbol\":\"AAPL\"}"));
+    clearInvocations(appleSession, microsoftSession);
+    ArgumentCaptor<TextMessage> appleFrame = ArgumentCaptor.forClass(TextMessage.class);
+    ArgumentCaptor<TextMessage> microsoftFrame = ArgumentCaptor.forClass(TextMessage.class);
+
+    // Act
+    stockPriceWebSocketHandler.broadcast(appleTick);
+
+    // Assert
+    verify(appleSession).sendMessage(appleFrame.capture());
+    verify(microsoftSession).sendMessage(microsoftFrame.capture());
+    assertSame(appleFrame.getValue(), microsoftFrame.getValue());
+  }
+
+  @Test
+  void broadcast_WhenSessionClosed_ShouldDropItFromIndex() throws Exception {
+    // Arrange
+    stockPriceWebSocketHandler.handleTextMessage(appleSession, new TextMessage("{\"type\":\"subscribe\",\"symbol\":\"AAPL\"}"));
+    when(appleSession.isOpen()).thenReturn(false);
+
+    // Act
+    stockPriceWebSocketHandler.broadcast(appleTick);
+
+    // Assert
+    assertEquals(0, stockPriceWebSocketHandler.getSubscriberCount("AAPL"));
+  }
+
+  private StockPriceDTO appleTickAt(double price) {
+    return StockPriceDTO.builder()
+            .symbol("AAPL")
+            .price(price)
+            .timestamp(1700000000000L)
+            .build();
+  }
+
+  @Test
+  void broadcast_WithMaxHz_ShouldSendOneConflatedSnapshotPerInterval() throws Exception {
+    // Arrange
+    stockPriceWebSocketHandler.handleTextMessage(appleSession,
+            new TextMessage("{\"type\":\"subscribe\",\"symbols\":[\"AAPL\"],\"maxHz\":10}"));
+    clearInvocations(appleSession);
+
+    // Act
+    stockPriceWebSocketHandler.broadcast(appleTickAt(150.00));
+    stockPriceWebSocketHandler.broadcast(appleTickAt(151.00));
+    stockPriceWebSocketHandler.broadcast(appleTickAt(152.00));
+    verify(appleSession, never()).sendMessage(any());
+    for (int tick = 0; tick <= 10; tick++) {
+      timerWheel.tick();
+    }
+
+    // Assert
+    ArgumentCaptor<TextMessage> frame = ArgumentCaptor.forClass(TextMessage.class);
+    verify(appleSession, times(1)).sendMessage(frame.capture());
+    assertEquals("{\"type\":\"price_snapshot\",\"data\":[{\"symbol\":\"AAPL\",\"price\":152.0,\"timestamp\":1700000000000}]}",
+            frame.getValue().getPayload());
+  }
+
+  @Test
+  void broadcast_WithMaxHz_WhenNothingChanged_ShouldNotSendSnapshot() throws Exception {
+    // Arrange
+    stockPriceWebSocketHandler.handleTextMessage(appleSession,
+            new TextMessage("{\"type\":\"subscribe\",\"symbols\":[\"AAPL\"],\"maxHz\":10}"));
+    stockPriceWebSocketHandler.broadcast(appleTickAt(150.00));
+    for (int tick = 0; tick <= 10; tick++) {
+      timerWheel.tick();
+    }
+    clearInvocations(appleSession);
+
+    // Act
+    for (int tick = 0; tick <= 10; tick++) {
+      timerWheel.tick();
+    }
+
+    // Assert
+    verify(appleSession, never()).sendMessage(any());
+  }
+
+  @Test
+  void subscribe_WithZeroMaxHz_ShouldReturnToPerTickDelivery() throws Exception {
+    // Arrange
+    stockPriceWebSocketHandler.handleTextMessage(appleSession,
+            new TextMessage("{\"type\":\"subscribe\",\"symbols\":[\"AAPL\"],\"maxHz\":10}"));
+    stockPriceWebSocketHandler.handleTextMessage(appleSession,
+            new TextMessage("{\"type\":\"subscribe\",\"symbols\":[\"AAPL\"],\"maxHz\":0}"));
+    clearInvocations(appleSession);
+
+    // Act
+    stockPriceWebSocketHandler.broadcast(appleTick);
+
+    // Assert
+    verify(appleSession, times(1)).sendMessage(any());
+  }
+
+  @Test
+  void broadcast_ToBinarySession_ShouldPackBatchIntoOneFrame() throws Exception {
+    // Arrange
+    when(binarySession.getId()).thenReturn("session-3");
+    when(binarySession.isOpen()).thenReturn(true);
+    when(binarySession.getAcceptedProtocol()).thenReturn(BinaryPriceFrames.SUBPROTOCOL);
+    stockPriceWebSocketHandler.afterConnectionEstablished(binarySession);
+    stockPriceWebSocketHandler.handleTextMessage(binarySession,
+            new TextMessage("{\"type\":\"subscribe\",\"symbols\":[\"AAPL\",\"MSFT\"]}"));
+    ArgumentCaptor<TextMessage> reply = ArgumentCaptor.forClass(TextMessage.class);
+    verify(binarySession).sendMessage(reply.capture());
+    clearInvocations(binarySession);
+
+    StockPriceDTO microsoftTick = StockPriceDTO.builder()
+            .symbol("MSFT")
+            .price(410.5)
+            .timestamp(1700000000250L)
+            .build();
+
+    // Act
+    stockPriceWebSocketHandler.broadcast(List.of(appleTick, microsoftTick));
+
+    // Assert
+    assertEquals("{\"type\":\"subscribed\",\"symbols\":[\"AAPL\",\"MSFT\"],\"symbolIds\":{\"AAPL\":1,\"MSFT\":2},"
+            + "\"message\":\"Successfully subscribed to symbols\"}", reply.getValue().getPayload());
+
+    ArgumentCaptor<BinaryMessage> frame = ArgumentCaptor.forClass(BinaryMessage.class);
+    verify(binarySession, times(1)).sendMessage(frame.capture());
+    ByteBuffer buffer = frame.getValue().getPayload();
+    assertEquals(BinaryPriceFrames.HEADER_BYTES + 2 * BinaryPriceFrames.RECORD_BYTES, buffer.remaining());
+    assertEquals(BinaryPriceFrames.PRICES, buffer.get());
+    assertEquals(2, buffer.getShort());
+    assertEquals(1700000000000L, buffer.getLong());
+    Map<Short, String> records = new HashMap<>();
+    while (buffer.hasRemaining()) {
+      records.put(buffer.getShort(), buffer.getLong() + "@" + buffer.getInt());
+    }
+    assertEquals(Map.of((short) 1, "150250000@0", (short) 2, "410500000@250"), records);
+  }
+
+  @Test
+  void broadcast_ToJsonSession_ShouldSendOneFramePerTick() throws Exception {
+    // Arrange
+    stockPriceWebSocketHandler.handleTextMessage(appleSession,
+            new TextMessage("{\"type\":\"subscribe\",\"symbols\":[\"AAPL\",\"MSFT\"]}"));
+    clearInvocations(appleSession);
+
+    // Act
+    stockPriceWebSocketHandler.broadcast(List.of(appleTick, appleTickAt(151.00)));
+
+    // Assert
+    verify(appleSession, times(2)).sendMessage(any(TextMessage.class));
+  }
+
+  @Test
+  void subscribe_WhenSymbolHasTraded_ShouldSendLastPrices() throws Exception {
+    // Arrange
+    lastTradeTable.record(appleTick);
+
+    // Act
+    stockPriceWebSocketHandler.handleTextMessage(appleSession,
+            new TextMessage("{\"type\":\"subscribe\",\"symbols\":[\"AAPL\",\"MSFT\"]}"));
+
+    // Assert
+    ArgumentCaptor<TextMessage> frames = ArgumentCaptor.forClass(TextMessage.class);
+    verify(appleSession, times(2)).sendMessage(frames.capture());
+    String snapshot = frames.getAllValues().get(1).getPayload();
+    assertTrue(snapshot.startsWith("{\"type\":\"last_prices\",\"data\":[{\"symbol\":\"AAPL\",\"price\":150.25,"));
+    assertFalse(snapshot.contains("MSFT"));
+  }
+
+  @Test
+  void subscribe_WhenNothingHasTraded_ShouldOnlyReply() throws Exception {
+    // Act
+    stockPriceWebSocketHandler.handleTextMessage(appleSession,
+            new TextMessage("{\"type\":\"subscribe\",\"symbols\":[\"AAPL\"]}"));
+
+    // Assert
+    verify(appleSession, times(1)).sendMessage(any());
+  }
+}
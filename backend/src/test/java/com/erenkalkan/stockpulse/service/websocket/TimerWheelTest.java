@@ -0,0 +1,86 @@
+package com.erenkalkan.stockpulse.service.websocket;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+
+  private TimerWheel timerWheel;
+
+  @BeforeEach
+  void setUp() {
+    timerWheel = new TimerWheel();
+    ReflectionTestUtils.setField(timerWheel, "tickMs", 10L);
+    ReflectionTestUtils.setField(timerWheel, "wheelSize", 8);
+    timerWheel.init();
+  }
+
+  private void advance(int ticks) {
+    for (int i = 0; i < ticks; i++) {
+      timerWheel.tick();
+    }
+  }
+
+  @Test
+  void schedule_ShouldRunTaskOnceDelayHasElapsed() {
+    // Arrange
+    AtomicInteger runs = new AtomicInteger();
+    timerWheel.schedule(runs::incrementAndGet, 30);
+
+    // Act & Assert
+    advance(3);
+    assertEquals(0, runs.get());
+    advance(1);
+    assertEquals(1, runs.get());
+    advance(20);
+    assertEquals(1, runs.get());
+  }
+
+  @Test
+  void schedule_WhenDelayExceedsWheel_ShouldWaitForLaterRound() {
+    // Arrange
+    AtomicInteger runs = new AtomicInteger();
+    timerWheel.schedule(runs::incrementAndGet, 200);
+
+    // Act & Assert
+    advance(20);
+    assertEquals(0, runs.get());
+    advance(1);
+    assertEquals(1, runs.get());
+  }
+
+  @Test
+  void cancel_ShouldPreventTaskFromRunning() {
+    // Arrange
+    AtomicInteger runs = new AtomicInteger();
+    TimerWheel.Timeout timeout = timerWheel.schedule(runs::incrementAndGet, 20);
+
+    // Act
+    timeout.cancel();
+    advance(10);
+
+    // Assert
+    assertEquals(0, runs.get());
+  }
+
+  @Test
+  void tick_WhenTaskThrows_ShouldKeepRunningOtherTasks() {
+    // Arrange
+    AtomicInteger runs = new AtomicInteger();
+    timerWheel.schedule(() -> {
+      throw new IllegalStateException("boom");
+    }, 10);
+    timerWheel.schedule(runs::incrementAndGet, 10);
+
+    // Act
+    advance(2);
+
+    // Assert
+    assertEquals(1, runs.get());
+  }
+}
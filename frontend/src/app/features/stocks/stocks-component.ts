@@ -159,6 +159,10 @@ export class StocksComponent implements OnInit {
         this.updateStockPrice(data.data);
         break;
 
+      case 'last_prices':
+        data.data.forEach((quote: any) => this.updateStockPrice(quote));
+        break;
+
       case 'pong':
         console.log('Received pong at:', new Date(data.timestamp));
         break;
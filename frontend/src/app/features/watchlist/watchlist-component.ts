@@ -134,6 +134,10 @@ export class WatchlistComponent implements OnInit {
         this.updateStockPrice(data.data);
         break;
 
+      case 'last_prices':
+        data.data.forEach((quote: any) => this.updateStockPrice(quote));
+        break;
+
       case 'pong':
         console.log('Received pong at:', new Date(data.timestamp));
         break;